@@ -0,0 +1,38 @@
+package edu.ntnu.stud.Wizard764;
+
+/**
+ * Creates the departures used by the benchmarks. The same size always gives the same departures,
+ * so results from different runs can be compared.
+ */
+final class BenchmarkDepartures {
+  /**
+   * Seed of the generated timetables.
+   */
+  private static final long SEED = 1003;
+
+  private BenchmarkDepartures() {}
+
+  /**
+   * Generates a timetable with the default settings of TimetableGenerator.
+   *
+   * @param size Number of departures to create.
+   * @return The departures.
+   */
+  static TrainDeparture[] create(int size) {
+    return new TimetableGenerator(SEED).generate(size);
+  }
+
+  /**
+   * Creates a registry holding the given departures.
+   *
+   * @param departures The departures to add.
+   * @return The registry.
+   */
+  static TrainDepartureRegistry registryOf(TrainDeparture[] departures) {
+    TrainDepartureRegistry registry = new TrainDepartureRegistry();
+    for (TrainDeparture departure : departures) {
+      registry.addDeparture(departure);
+    }
+    return registry;
+  }
+}
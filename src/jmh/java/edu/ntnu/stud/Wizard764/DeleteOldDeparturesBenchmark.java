@@ -0,0 +1,68 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for TrainDepartureRegistry.deleteOldDepartures(LocalTime). Deleting changes the
+ * registry, so each measurement deletes once from a freshly filled registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DeleteOldDeparturesBenchmark {
+  /**
+   * Number of departures in the registry.
+   */
+  @Param({"100", "10000", "1000000"})
+  private int size;
+  /**
+   * The departures in the registry.
+   */
+  private TrainDeparture[] departures;
+  /**
+   * Registry to delete from, refilled before every measurement.
+   */
+  private TrainDepartureRegistry registry;
+
+  /**
+   * Creates the departures.
+   */
+  @Setup(Level.Trial)
+  public void createDepartures() {
+    departures = BenchmarkDepartures.create(size);
+  }
+
+  /**
+   * Fills a new registry.
+   */
+  @Setup(Level.Iteration)
+  public void fillRegistry() {
+    registry = BenchmarkDepartures.registryOf(departures);
+  }
+
+  /**
+   * Deletes the departures leaving before noon, a bit over half of the registry.
+   *
+   * @return The deleted departures.
+   */
+  @Benchmark
+  public TrainDeparture[] deleteOldDepartures() {
+    return registry.deleteOldDepartures(LocalTime.NOON);
+  }
+}
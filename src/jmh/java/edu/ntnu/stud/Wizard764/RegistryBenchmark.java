@@ -0,0 +1,132 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the operations of TrainDepartureRegistry that leave the registry unchanged, and
+ * for filling a registry. Deleting departures is measured by DeleteOldDeparturesBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RegistryBenchmark {
+  /**
+   * Number of departures in the registry.
+   */
+  @Param({"100", "10000", "1000000"})
+  private int size;
+  /**
+   * The departures in the registry.
+   */
+  private TrainDeparture[] departures;
+  /**
+   * Registry holding every departure.
+   */
+  private TrainDepartureRegistry registry;
+  /**
+   * Position of the next departure to look up, so lookups don't hit the same entry every time.
+   */
+  private int next;
+
+  /**
+   * Creates the departures and the registry.
+   */
+  @Setup
+  public void setUp() {
+    departures = BenchmarkDepartures.create(size);
+    registry = BenchmarkDepartures.registryOf(departures);
+    next = 0;
+  }
+
+  /**
+   * Adds every departure to an empty registry. Divide by size for the cost of one addDeparture.
+   *
+   * @return The filled registry.
+   */
+  @Benchmark
+  public TrainDepartureRegistry addDepartures() {
+    return BenchmarkDepartures.registryOf(departures);
+  }
+
+  /**
+   * Looks up a departure by train number.
+   *
+   * @return The departure.
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public TrainDeparture getDeparture() {
+    next = next + 1 == size ? 0 : next + 1;
+    return registry.getDeparture(departures[next].getTrainNumber());
+  }
+
+  /**
+   * Lists the departures to one of the busiest destinations.
+   *
+   * @return The departures.
+   */
+  @Benchmark
+  public TrainDeparture[] getDeparturesByDestination() {
+    return registry.getDeparturesByDestination("Bergen");
+  }
+
+  /**
+   * Lists the next 20 departures from noon.
+   *
+   * @return The departures.
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public TrainDeparture[] getNextDepartures() {
+    return registry.getNextDepartures(LocalTime.NOON, 20);
+  }
+
+  /**
+   * Sorts the board by scheduled time and writes it to a Writer that discards it.
+   *
+   * @throws IOException never, the Writer discards everything.
+   */
+  @Benchmark
+  public void sortDeparturesByTime() throws IOException {
+    registry.sortDeparturesByTime();
+    registry.writeBoard(Writer.nullWriter());
+  }
+
+  /**
+   * Sorts the board by actual time and writes it to a Writer that discards it.
+   *
+   * @throws IOException never, the Writer discards everything.
+   */
+  @Benchmark
+  public void sortDeparturesByTimeIncDelay() throws IOException {
+    registry.sortDeparturesByTimeIncDelay();
+    registry.writeBoard(Writer.nullWriter());
+  }
+
+  /**
+   * Builds the whole board as one string.
+   *
+   * @return The board.
+   */
+  @Benchmark
+  public String registryToString() {
+    return registry.toString();
+  }
+}
@@ -0,0 +1,67 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for TrainDeparture.toString(), both when the rendered departure is cached and when
+ * the departure has changed since it was last rendered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainDepartureBenchmark {
+  /**
+   * The departure to render.
+   */
+  private TrainDeparture departure;
+  /**
+   * Whether the delay was set on the last call of toStringAfterChange().
+   */
+  private boolean delayed;
+
+  /**
+   * Creates the departure.
+   */
+  @Setup
+  public void setUp() {
+    departure = new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim",
+        LocalTime.of(0, 5), (short) 3, "Few tickets left");
+    delayed = true;
+  }
+
+  /**
+   * Renders a departure that has not changed since it was last rendered.
+   *
+   * @return The rendered departure.
+   */
+  @Benchmark
+  public String toStringCached() {
+    return departure.toString();
+  }
+
+  /**
+   * Changes the delay of a departure and renders it.
+   *
+   * @return The rendered departure.
+   */
+  @Benchmark
+  public String toStringAfterChange() {
+    delayed = !delayed;
+    departure.setDelay(delayed ? LocalTime.of(0, 5) : LocalTime.MIDNIGHT);
+    return departure.toString();
+  }
+}
@@ -0,0 +1,75 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * Clock giving the system time of the application: the time of a base clock, moved by hand by
+ * the user setting the system time. With a stopped base clock the time only moves when set, and
+ * with the system clock as base it keeps running from the time last set. Either way the expiry
+ * wheel and everything else reading the system time read the same clock.
+ */
+class AdjustableClock extends Clock {
+  /**
+   * The clock the time runs with.
+   */
+  private final Clock base;
+  /**
+   * How far the time has been moved from the base clock.
+   */
+  private volatile Duration offset;
+
+  /**
+   * Constructs a clock giving the time of a base clock until the time is set.
+   *
+   * @param base The clock the time runs with.
+   */
+  AdjustableClock(Clock base) {
+    this.base = base;
+    offset = Duration.ZERO;
+  }
+
+  /**
+   * Makes a clock stopped at 00:00 today, so the time only moves when set.
+   *
+   * @param zone The time zone of the clock.
+   * @return The clock.
+   */
+  static AdjustableClock startOfToday(ZoneId zone) {
+    return new AdjustableClock(Clock.fixed(LocalDate.now(zone).atStartOfDay(zone).toInstant(),
+        zone));
+  }
+
+  /**
+   * Sets the time of day, keeping the date. The clock runs on from the new time if the base clock
+   * runs.
+   *
+   * @param time The new time.
+   */
+  void setTime(LocalTime time) {
+    LocalDateTime now = LocalDateTime.now(this);
+    offset = offset.plus(Duration.between(now, now.toLocalDate().atTime(time)));
+  }
+
+  @Override
+  public ZoneId getZone() {
+    return base.getZone();
+  }
+
+  @Override
+  public Clock withZone(ZoneId zone) {
+    AdjustableClock clock = new AdjustableClock(base.withZone(zone));
+    clock.offset = offset;
+    return clock;
+  }
+
+  @Override
+  public Instant instant() {
+    return base.instant().plus(offset);
+  }
+}
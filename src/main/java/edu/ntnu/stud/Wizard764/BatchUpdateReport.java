@@ -0,0 +1,108 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of applying a batch of DepartureUpdates with TrainDepartureRegistry.applyUpdates(List):
+ * whether each update was applied, and why it wasn't if not.
+ */
+public class BatchUpdateReport {
+  /**
+   * Why each update wasn't applied, by position in the batch, null for updates that were.
+   */
+  private final String[] errors;
+  /**
+   * Number of updates applied.
+   */
+  private int noApplied;
+
+  /**
+   * Constructs a report of a batch where every update is applied until rejected.
+   *
+   * @param noUpdates Number of updates in the batch.
+   */
+  BatchUpdateReport(int noUpdates) {
+    errors = new String[noUpdates];
+    noApplied = noUpdates;
+  }
+
+  /**
+   * Records that an update was rejected.
+   *
+   * @param index Position of the update in the batch.
+   * @param reason Why the update was rejected.
+   */
+  void updateRejected(int index, String reason) {
+    if (errors[index] == null) {
+      noApplied--;
+    }
+    errors[index] = reason;
+  }
+
+  /**
+   * Gets number of updates in the batch.
+   *
+   * @return Number of updates.
+   */
+  public int getNoUpdates() {
+    return errors.length;
+  }
+
+  /**
+   * Gets number of updates applied.
+   *
+   * @return Number of updates applied.
+   */
+  public int getNoApplied() {
+    return noApplied;
+  }
+
+  /**
+   * Checks whether an update was applied.
+   *
+   * @param index Position of the update in the batch.
+   * @return true if the update was applied.
+   */
+  public boolean isApplied(int index) {
+    return errors[index] == null;
+  }
+
+  /**
+   * Gets why an update wasn't applied.
+   *
+   * @param index Position of the update in the batch.
+   * @return The reason, or null if the update was applied.
+   */
+  public String getError(int index) {
+    return errors[index];
+  }
+
+  /**
+   * Gets the rejected updates.
+   *
+   * @return Read-only list of errors, each as "Update N: reason" with N starting at 1, in batch
+   *     order.
+   */
+  public List<String> getErrors() {
+    ArrayList<String> list = new ArrayList<>();
+    for (int i = 0; i < errors.length; i++) {
+      if (errors[i] != null) {
+        list.add("Update " + (i + 1) + ": " + errors[i]);
+      }
+    }
+    return Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Summarizes the batch.
+   *
+   * @return A line stating how many updates were applied and rejected.
+   */
+  @Override
+  public String toString() {
+    return "Applied " + noApplied + " of " + errors.length + " update(s). "
+        + (errors.length - noApplied) + " update(s) rejected.";
+  }
+}
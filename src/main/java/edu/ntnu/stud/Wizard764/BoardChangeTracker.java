@@ -0,0 +1,185 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps track of which departures of a registry changed at which version, so displays can be sent
+ * a BoardDiff of what changed since the version they show instead of the whole board. Making a
+ * diff costs time in proportion to the number of departures changed, not the size of the registry.
+ * Only the last change of each departure is kept, and at most a given number of departures, so
+ * the tracker stays small. Displays that fall further behind than that are sent a full diff.
+ * The tracker listens to the registry on the thread changing it, while diffs are made from
+ * published snapshots and may be asked for from any thread.
+ */
+public class BoardChangeTracker implements RegistryListener {
+  /**
+   * The registry tracked.
+   */
+  private final TrainDepartureRegistry registry;
+  /**
+   * Highest number of departures whose last change is kept.
+   */
+  private final int capacity;
+  /**
+   * Train number of each departure changed, by the version of its last change.
+   */
+  private final TreeMap<Long, String> trainNumbersByVersion;
+  /**
+   * Version of the last change of each departure in trainNumbersByVersion.
+   */
+  private final HashMap<String, Long> lastChangeVersions;
+  /**
+   * Version each departure in trainNumbersByVersion was last added at, if it was added while
+   * tracked.
+   */
+  private final HashMap<String, Long> addedVersions;
+  /**
+   * Every change after this version is known.
+   */
+  private long oldestVersion;
+
+  /**
+   * Starts tracking the changes to a registry.
+   *
+   * @param registry The registry to track.
+   * @param capacity Highest number of departures whose last change is kept.
+   * @throws IllegalArgumentException if the capacity is not positive.
+   */
+  BoardChangeTracker(TrainDepartureRegistry registry, int capacity)
+      throws IllegalArgumentException {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+    this.registry = registry;
+    this.capacity = capacity;
+    trainNumbersByVersion = new TreeMap<>();
+    lastChangeVersions = new HashMap<>();
+    addedVersions = new HashMap<>();
+    oldestVersion = registry.getVersion();
+    registry.addListener(this);
+  }
+
+  /**
+   * Makes a diff from the given version to the version of a snapshot of the tracked registry.
+   *
+   * @param fromVersion The version the display shows, or -1 if it shows nothing yet.
+   * @param snapshot A snapshot published by the registry after the tracker was constructed.
+   * @return The diff. A full diff if the changes since fromVersion are no longer known.
+   * @throws IllegalArgumentException if the version is later than the snapshot.
+   */
+  public synchronized BoardDiff diff(long fromVersion, RegistrySnapshot snapshot)
+      throws IllegalArgumentException {
+    if (fromVersion > snapshot.getVersion()) {
+      throw new IllegalArgumentException("Version " + fromVersion
+          + " is later than the snapshot.");
+    }
+    if (fromVersion < oldestVersion) {
+      return new BoardDiff(-1, snapshot.getVersion(),
+          new ArrayList<>(snapshot.getDeparturesByTimeIncDelay()), new ArrayList<>(),
+          new ArrayList<>());
+    }
+    ArrayList<TrainDeparture> added = new ArrayList<>();
+    ArrayList<TrainDeparture> modified = new ArrayList<>();
+    ArrayList<String> removed = new ArrayList<>();
+    // Changes made after the snapshot are included too. Their departures are sent as they are in
+    // the snapshot, which only repeats what the display already has.
+    for (String trainNumber : trainNumbersByVersion.tailMap(fromVersion, false).values()) {
+      Long addedVersion = addedVersions.get(trainNumber);
+      boolean existedBefore = addedVersion == null || addedVersion <= fromVersion;
+      if (snapshot.departureExists(trainNumber)) {
+        (existedBefore ? modified : added).add(snapshot.getDeparture(trainNumber));
+      } else if (existedBefore) {
+        removed.add(trainNumber);
+      }
+    }
+    return new BoardDiff(fromVersion, snapshot.getVersion(), added, modified, removed);
+  }
+
+  /**
+   * Gets the oldest version diffs can be made from without being full.
+   *
+   * @return The version.
+   */
+  public synchronized long getOldestVersion() {
+    return oldestVersion;
+  }
+
+  /**
+   * Stops tracking the registry.
+   */
+  void close() {
+    registry.removeListener(this);
+  }
+
+  @Override
+  public synchronized void departureAdded(long version, TrainDeparture departure) {
+    addedVersions.put(departure.getTrainNumber(), version);
+    changed(version, departure);
+  }
+
+  @Override
+  public synchronized void departureRemoved(long version, TrainDeparture departure) {
+    changed(version, departure);
+  }
+
+  @Override
+  public synchronized void delayChanged(long version, TrainDeparture departure,
+                                        int previousDelayMins) {
+    changed(version, departure);
+  }
+
+  @Override
+  public synchronized void trackChanged(long version, TrainDeparture departure,
+                                        short previousTrack) {
+    changed(version, departure);
+  }
+
+  @Override
+  public synchronized void commentChanged(long version, TrainDeparture departure,
+                                          String previousComment) {
+    changed(version, departure);
+  }
+
+  /**
+   * Comments being shown or hidden changes how every departure is displayed, so diffs from
+   * before are made full.
+   */
+  @Override
+  public synchronized void commentStateChanged(long version, boolean state) {
+    trainNumbersByVersion.clear();
+    lastChangeVersions.clear();
+    addedVersions.clear();
+    oldestVersion = version;
+  }
+
+  @Override
+  public synchronized void departureUpdated(long version, TrainDeparture departure,
+                                            TrainDeparture previous) {
+    changed(version, departure);
+  }
+
+  /**
+   * Records the last change of a departure, forgetting the departure changed longest ago if
+   * there are too many.
+   *
+   * @param version Version of the registry after the change.
+   * @param departure The departure changed.
+   */
+  private void changed(long version, TrainDeparture departure) {
+    String trainNumber = departure.getTrainNumber();
+    Long previousVersion = lastChangeVersions.put(trainNumber, version);
+    if (previousVersion != null) {
+      trainNumbersByVersion.remove(previousVersion);
+    }
+    trainNumbersByVersion.put(version, trainNumber);
+    if (trainNumbersByVersion.size() > capacity) {
+      Map.Entry<Long, String> oldest = trainNumbersByVersion.pollFirstEntry();
+      lastChangeVersions.remove(oldest.getValue());
+      addedVersions.remove(oldest.getValue());
+      oldestVersion = oldest.getKey();
+    }
+  }
+}
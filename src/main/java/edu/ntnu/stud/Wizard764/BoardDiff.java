@@ -0,0 +1,238 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes to the departures of a registry between two versions, made by BoardChangeTracker,
+ * for bringing a copy of the board such as a remote display up to date without sending the whole
+ * board. Lists the departures added, the departures modified and the train numbers of the
+ * departures removed. The departures are taken from an immutable RegistrySnapshot and must not be
+ * modified.
+ * A full diff lists every departure as added, and is made when the changes since the older
+ * version are no longer known. A copy of the board is brought up to date by clearing it first.
+ */
+public class BoardDiff {
+  /**
+   * Version the diff starts from, or -1 for a full diff.
+   */
+  private final long fromVersion;
+  /**
+   * Version the diff leads to.
+   */
+  private final long toVersion;
+  /**
+   * Departures added.
+   */
+  private final List<TrainDeparture> added;
+  /**
+   * Departures modified.
+   */
+  private final List<TrainDeparture> modified;
+  /**
+   * Train numbers of departures removed.
+   */
+  private final List<String> removed;
+
+  /**
+   * Constructs a diff. The lists are taken over by the diff and must not be changed afterwards.
+   *
+   * @param fromVersion Version the diff starts from, or -1 for a full diff.
+   * @param toVersion Version the diff leads to.
+   * @param added Departures added.
+   * @param modified Departures modified.
+   * @param removed Train numbers of departures removed.
+   */
+  BoardDiff(long fromVersion, long toVersion, List<TrainDeparture> added,
+            List<TrainDeparture> modified, List<String> removed) {
+    this.fromVersion = fromVersion;
+    this.toVersion = toVersion;
+    this.added = Collections.unmodifiableList(added);
+    this.modified = Collections.unmodifiableList(modified);
+    this.removed = Collections.unmodifiableList(removed);
+  }
+
+  /**
+   * Gets the version the diff starts from.
+   *
+   * @return The version, or -1 for a full diff.
+   */
+  public long getFromVersion() {
+    return fromVersion;
+  }
+
+  /**
+   * Gets the version the diff leads to.
+   *
+   * @return The version.
+   */
+  public long getToVersion() {
+    return toVersion;
+  }
+
+  /**
+   * Checks whether the diff lists every departure, and the board it is applied to must be cleared
+   * first.
+   *
+   * @return true if the diff is full.
+   */
+  public boolean isFull() {
+    return fromVersion < 0;
+  }
+
+  /**
+   * Checks whether nothing changed between the versions.
+   *
+   * @return true if the diff has no changes and isn't full.
+   */
+  public boolean isEmpty() {
+    return !isFull() && added.isEmpty() && modified.isEmpty() && removed.isEmpty();
+  }
+
+  /**
+   * Gets the departures added.
+   *
+   * @return Read-only list of the departures.
+   */
+  List<TrainDeparture> getAdded() {
+    return added;
+  }
+
+  /**
+   * Gets the departures modified, as they are at the newer version.
+   *
+   * @return Read-only list of the departures.
+   */
+  List<TrainDeparture> getModified() {
+    return modified;
+  }
+
+  /**
+   * Gets the train numbers of the departures removed.
+   *
+   * @return Read-only list of the train numbers.
+   */
+  List<String> getRemoved() {
+    return removed;
+  }
+
+  /**
+   * Brings a copy of the board up to date, i.e. a registry kept by a display. The copy must be at
+   * the version the diff starts from, unless the diff is full. Departures are copied into it, so
+   * the copy can be changed afterwards.
+   *
+   * @param board The copy of the board.
+   */
+  void applyTo(TrainDepartureRegistry board) {
+    if (isFull()) {
+      for (TrainDeparture departure : board.getNextDepartures(LocalTime.MIN, Integer.MAX_VALUE)) {
+        board.removeDeparture(departure.getTrainNumber());
+      }
+    }
+    for (String trainNumber : removed) {
+      board.removeDeparture(trainNumber);
+    }
+    for (TrainDeparture departure : modified) {
+      board.removeDeparture(departure.getTrainNumber());
+      board.addDeparture(new TrainDeparture(departure));
+    }
+    for (TrainDeparture departure : added) {
+      // A departure removed and added again since the copy's version may still be in it.
+      if (board.departureExists(departure.getTrainNumber())) {
+        board.removeDeparture(departure.getTrainNumber());
+      }
+      board.addDeparture(new TrainDeparture(departure));
+    }
+  }
+
+  /**
+   * Writes the diff in a compact text form, one change per line. The first line is
+   * "diff,FROM,TO", or "full,TO" for a full diff. Added and modified departures follow on lines
+   * starting with "+" and "~", then the columns time, line, train number, destination, delay,
+   * track and comment as read by TimetableCsvImporter. Removed departures are on lines "-,NUMBER".
+   *
+   * @param out The output to write to.
+   * @throws IOException if the output fails.
+   */
+  public void writeTo(Appendable out) throws IOException {
+    if (isFull()) {
+      out.append("full,").append(Long.toString(toVersion));
+    } else {
+      out.append("diff,").append(Long.toString(fromVersion)).append(',')
+          .append(Long.toString(toVersion));
+    }
+    for (TrainDeparture departure : added) {
+      writeDeparture(out, '+', departure);
+    }
+    for (TrainDeparture departure : modified) {
+      writeDeparture(out, '~', departure);
+    }
+    for (String trainNumber : removed) {
+      out.append("\n-,");
+      writeField(out, trainNumber);
+    }
+  }
+
+  /**
+   * Gets the diff in the compact text form written by writeTo(Appendable).
+   *
+   * @return The diff as text.
+   */
+  @Override
+  public String toString() {
+    StringBuilder out = new StringBuilder();
+    try {
+      writeTo(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // StringBuilder never fails.
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes a departure on a line of its own.
+   *
+   * @param out The output to write to.
+   * @param change Character marking the change, '+' or '~'.
+   * @param departure The departure.
+   * @throws IOException if the output fails.
+   */
+  private static void writeDeparture(Appendable out, char change, TrainDeparture departure)
+      throws IOException {
+    out.append('\n').append(change).append(',');
+    out.append(departure.getDepartureTime().toString()).append(',');
+    writeField(out, departure.getLine());
+    out.append(',');
+    writeField(out, departure.getTrainNumber());
+    out.append(',');
+    writeField(out, departure.getDestination());
+    out.append(',');
+    if (departure.getDelayInMinutes() > 0) {
+      out.append(departure.getDelay().toString());
+    }
+    out.append(',');
+    if (departure.getTrack() != -1) {
+      out.append(Short.toString(departure.getTrack()));
+    }
+    out.append(',');
+    writeField(out, departure.getComment());
+  }
+
+  /**
+   * Writes a text field, quoting it if it holds a comma or a quote.
+   *
+   * @param out The output to write to.
+   * @param field The field.
+   * @throws IOException if the output fails.
+   */
+  private static void writeField(Appendable out, String field) throws IOException {
+    if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+      out.append(field);
+      return;
+    }
+    out.append('"').append(field.replace("\"", "\"\"")).append('"');
+  }
+}
@@ -0,0 +1,63 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalTime;
+
+/**
+ * Writes information boards, i.e. a title followed by each departure as formatted by
+ * TrainDeparture.toString(), straight to an output such as a Writer, a PrintStream or a
+ * StringBuilder. Nothing is built in memory first, so the size of a board does not matter.
+ */
+final class BoardWriter {
+  /**
+   * Title of a board listing every departure.
+   */
+  static final String COMPLETE_BOARD_TITLE = "Complete list of departures:";
+
+  private BoardWriter() {}
+
+  /**
+   * Writes a board to an output.
+   *
+   * @param out The output to write to.
+   * @param title The first line of the board.
+   * @param departures The departures to list, in the order they are listed.
+   * @throws IOException if the output fails.
+   */
+  static void write(Appendable out, String title, Iterable<TrainDeparture> departures)
+      throws IOException {
+    out.append(title);
+    for (TrainDeparture departure : departures) {
+      out.append('\n');
+      departure.appendTo(out);
+    }
+  }
+
+  /**
+   * Gets the title of a board listing the next departures from a given time.
+   *
+   * @param from The time the board lists departures from.
+   * @return The title of the board.
+   */
+  static String nextDeparturesTitle(LocalTime from) {
+    return "Departures from " + from + ":";
+  }
+
+  /**
+   * Builds a board as a string, for toString() methods.
+   *
+   * @param title The first line of the board.
+   * @param departures The departures to list, in the order they are listed.
+   * @return The board as a string.
+   */
+  static String toString(String title, Iterable<TrainDeparture> departures) {
+    StringBuilder out = new StringBuilder();
+    try {
+      write(out, title, departures);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // StringBuilder never fails.
+    }
+    return out.toString();
+  }
+}
@@ -0,0 +1,140 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves checkpoints of a journaled registry in the background, so the journal never has to be
+ * replayed from the start of the day. A checkpoint is a snapshot file saved with SnapshotFile,
+ * after which the journal segments it makes unnecessary are deleted. Restoring a registry then
+ * takes reading the last checkpoint and replaying the changes made since, which is bounded by the
+ * number of departures and the checkpoint interval rather than by how long the registry has run.
+ * Checkpoints are taken from the last snapshot published by the registry, which is immutable, so
+ * the thread changing the registry is never held up. That thread should publish snapshots
+ * regularly, i.e. after each batch of changes.
+ */
+public class Checkpointer implements Closeable {
+  /**
+   * Name of the snapshot file in the data directory.
+   */
+  static final String SNAPSHOT_FILE_NAME = "registry.snapshot";
+
+  /**
+   * Directory the snapshot and journal are kept in.
+   */
+  private final Path directory;
+  /**
+   * The registry checkpointed.
+   */
+  private final TrainDepartureRegistry registry;
+  /**
+   * Journal of the registry, whose segments are deleted behind each checkpoint.
+   */
+  private final Journal journal;
+  /**
+   * Thread taking checkpoints.
+   */
+  private final ScheduledExecutorService executor;
+  /**
+   * Version of the registry at the last checkpoint. Guarded by this.
+   */
+  private long checkpointVersion;
+  /**
+   * Failure of the last background checkpoint, or null if it succeeded. Guarded by this.
+   */
+  private IOException failure;
+
+  /**
+   * Starts taking a checkpoint every interval.
+   *
+   * @param directory Directory the snapshot and journal are kept in.
+   * @param registry The registry to checkpoint.
+   * @param journal Journal of the registry, kept in the same directory.
+   * @param intervalMillis Time in milliseconds between checkpoints.
+   * @throws IllegalArgumentException if the interval is not positive.
+   */
+  Checkpointer(Path directory, TrainDepartureRegistry registry, Journal journal,
+               long intervalMillis) throws IllegalArgumentException {
+    if (intervalMillis <= 0) {
+      throw new IllegalArgumentException("Checkpoint interval must be positive");
+    }
+    this.directory = directory;
+    this.registry = registry;
+    this.journal = journal;
+    checkpointVersion = -1;
+    failure = null;
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "checkpointer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::checkpointInBackground, intervalMillis,
+        intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Gets the path of the snapshot file in a data directory.
+   *
+   * @param directory The data directory.
+   * @return Path of the snapshot file.
+   */
+  static Path snapshotFile(Path directory) {
+    return directory.resolve(SNAPSHOT_FILE_NAME);
+  }
+
+  /**
+   * Takes a checkpoint of the last published snapshot now, unless it was already checkpointed.
+   *
+   * @return Version of the registry at the checkpoint.
+   * @throws IOException if the snapshot can't be saved or a segment can't be deleted.
+   */
+  synchronized long checkpoint() throws IOException {
+    RegistrySnapshot snapshot = registry.getSnapshot();
+    if (snapshot.getVersion() != checkpointVersion) {
+      SnapshotFile.write(snapshot, snapshotFile(directory));
+      checkpointVersion = snapshot.getVersion();
+    }
+    // Also run when nothing changed, as the last call may have failed after saving.
+    journal.deleteSegmentsThrough(checkpointVersion);
+    return checkpointVersion;
+  }
+
+  /**
+   * Gets the failure of the last background checkpoint.
+   *
+   * @return The failure, or null if the last background checkpoint succeeded.
+   */
+  synchronized IOException getFailure() {
+    return failure;
+  }
+
+  /**
+   * Stops taking checkpoints, waiting for one in progress to finish.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Takes a checkpoint on the background thread, keeping any failure for getFailure(). A failed
+   * checkpoint is tried again next interval.
+   */
+  private synchronized void checkpointInBackground() {
+    try {
+      checkpoint();
+      failure = null;
+    } catch (IOException e) {
+      failure = e;
+    }
+  }
+}
@@ -0,0 +1,347 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * Compact store for very large numbers of departures, i.e. a week of departures for every
+ * station in the country. Instead of one TrainDeparture object per departure, each field is kept
+ * in its own primitive array (one column per field) and strings are stored once in a
+ * StringDictionary and referred to by id. TrainDeparture objects are only created when a
+ * departure is asked for, and changes made to them are not written back to the store.
+ * The store stands apart from TrainDepartureRegistry, which keeps TrainDeparture objects and
+ * indexes of its own. Memory is only saved while departures stay in the store: toRegistry()
+ * creates a TrainDeparture for every row. The heap used by a store is estimated by
+ * estimateMemoryBytes().
+ * Lines, destinations and comments that no departure uses any more, i.e. replaced comments, are
+ * dropped once the dictionary has doubled in size since it was last rebuilt, so changing
+ * comments doesn't make the store grow without bound.
+ * The trade-off is that lookups by anything but train number, and deleting departures, scan the
+ * columns.
+ */
+public class ColumnarDepartureStore {
+  /**
+   * Scheduled departure time of each departure in minutes into the day.
+   */
+  private short[] departureTimes;
+  /**
+   * Delay of each departure in minutes.
+   */
+  private short[] delays;
+  /**
+   * Track of each departure, -1 if not assigned.
+   */
+  private short[] tracks;
+  /**
+   * Id of the line of each departure in texts.
+   */
+  private int[] lines;
+  /**
+   * Id of the destination of each departure in texts.
+   */
+  private int[] destinations;
+  /**
+   * Id of the comment of each departure in texts.
+   */
+  private int[] comments;
+  /**
+   * Train numbers of the departures. The id of a train number is always the row of its departure,
+   * so the dictionary doubles as the index by train number.
+   */
+  private StringDictionary trainNumbers;
+  /**
+   * Lines, destinations and comments of the departures.
+   */
+  private StringDictionary texts;
+  /**
+   * Number of departures in the store.
+   */
+  private int size;
+  /**
+   * Comment state given to departures created from the store.
+   */
+  private boolean commentState;
+  /**
+   * Number of strings in texts when it was last rebuilt, or created.
+   */
+  private int noTextsAfterCompaction;
+
+  /**
+   * Constructs an empty store.
+   */
+  ColumnarDepartureStore() {
+    departureTimes = new short[16];
+    delays = new short[16];
+    tracks = new short[16];
+    lines = new int[16];
+    destinations = new int[16];
+    comments = new int[16];
+    trainNumbers = new StringDictionary();
+    texts = new StringDictionary();
+    size = 0;
+    commentState = true;
+    noTextsAfterCompaction = 0;
+  }
+
+  /**
+   * Initializes the store by list of departures.
+   *
+   * @param departures Array of departures to add to the store.
+   * @throws IllegalArgumentException if two departures share the same identification number.
+   */
+  ColumnarDepartureStore(TrainDeparture[] departures) throws IllegalArgumentException {
+    this();
+    for (TrainDeparture departure : departures) {
+      addDeparture(departure);
+    }
+  }
+
+  /**
+   * Adds a train departure to the store.
+   *
+   * @param departure The TrainDeparture object to be added.
+   * @throws IllegalArgumentException if a departure with the same identification
+   *                                  number already exists (IDs must be unique).
+   */
+  void addDeparture(TrainDeparture departure) throws IllegalArgumentException {
+    addDeparture(departure.getDepartureTimeInMinutes(), departure.getLine(),
+        departure.getTrainNumber(), departure.getDestination(), departure.getDelayInMinutes(),
+        departure.getTrack(), departure.getComment());
+  }
+
+  /**
+   * Adds a train departure to the store without creating a TrainDeparture object.
+   *
+   * @param departureTimeMins The time of departure in minutes into the day.
+   * @param line The line the train runs on.
+   * @param trainNumber Unique number identifying a specific train within a day.
+   * @param destination The destination of the train.
+   * @param delayMins Delay past departure time in minutes.
+   * @param track The track the train will be departing from.
+   * @param comment String containing any extra or special-case information.
+   * @throws IllegalArgumentException if a departure with the same identification number already
+   *     exists, or if the times or track are invalid for a TrainDeparture.
+   */
+  void addDeparture(int departureTimeMins, String line, String trainNumber, String destination,
+                    int delayMins, short track, String comment) throws IllegalArgumentException {
+    TrainDeparture.checkTimes(departureTimeMins, delayMins); // throws IllegalArgumentException
+    TrainDeparture.checkTrack(track); // throws IllegalArgumentException
+    if (trainNumbers.find(trainNumber) >= 0) {
+      String s = "A departure with that identification number already exists. ID must be unique.";
+      throw new IllegalArgumentException(s);
+    }
+    if (size == departureTimes.length) {
+      grow();
+    }
+    int row = trainNumbers.intern(trainNumber); // Equal to size, see trainNumbers.
+    departureTimes[row] = (short) departureTimeMins;
+    delays[row] = (short) delayMins;
+    tracks[row] = track;
+    lines[row] = texts.intern(line);
+    destinations[row] = texts.intern(destination);
+    comments[row] = texts.intern(comment);
+    size++;
+  }
+
+  /**
+   * Retrieves a train departure based on the provided train number. Creates a new TrainDeparture
+   * object on every call.
+   *
+   * @param trainNumIn The train number of the departure to retrieve.
+   * @return The TrainDeparture object corresponding to the provided train number.
+   * @throws IllegalArgumentException if the departure does not exist.
+   */
+  TrainDeparture getDeparture(String trainNumIn) throws IllegalArgumentException {
+    return getDeparture(requireRow(trainNumIn));
+  }
+
+  /**
+   * Creates a TrainDeparture object from a row of the store.
+   *
+   * @param row The row of the departure.
+   * @return The TrainDeparture object for the row.
+   * @throws IndexOutOfBoundsException if there is no such row.
+   */
+  TrainDeparture getDeparture(int row) throws IndexOutOfBoundsException {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("No departure in row " + row);
+    }
+    TrainDeparture departure = TrainDeparture.restore(departureTimes[row],
+        texts.get(lines[row]), trainNumbers.get(row), texts.get(destinations[row]), delays[row],
+        tracks[row], texts.get(comments[row]));
+    departure.setCommentState(commentState);
+    return departure;
+  }
+
+  /**
+   * Checks if a train departure with the given train number exists.
+   *
+   * @param trainNumIn The train number to check.
+   * @return true if the departure exists, false otherwise.
+   */
+  boolean departureExists(String trainNumIn) {
+    return trainNumbers.find(trainNumIn) >= 0;
+  }
+
+  /**
+   * Sets the comment of a departure in the store.
+   *
+   * @param trainNumber Train number of the departure to be modified.
+   * @param comment New comment.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist.
+   */
+  public void setComment(String trainNumber, String comment) throws IllegalArgumentException {
+    comments[requireRow(trainNumber)] = texts.intern(comment);
+    compactTextsIfGrown();
+  }
+
+  /**
+   * Sets the delay of a departure in the store.
+   *
+   * @param trainNumber Train number of the departure to be modified.
+   * @param delay New delay.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist.
+   */
+  public void setDelay(String trainNumber, LocalTime delay) throws IllegalArgumentException {
+    delays[requireRow(trainNumber)] = (short) (delay.getHour() * 60 + delay.getMinute());
+  }
+
+  /**
+   * Sets the track of a departure in the store.
+   *
+   * @param trainNumber Train number of the departure to be modified.
+   * @param track New track.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist or if the track
+   *     is not a positive number.
+   */
+  public void setTrack(String trainNumber, short track) throws IllegalArgumentException {
+    int row = requireRow(trainNumber);
+    TrainDeparture.checkTrack(track); // throws IllegalArgumentException
+    tracks[row] = track;
+  }
+
+  /**
+   * Deletes departures that are past as of the time given as parameter. The remaining rows are
+   * moved up in one pass over the columns, and the train number dictionary is rebuilt so ids
+   * keep matching rows.
+   *
+   * @param currentTime The current time.
+   * @return Number of departures deleted.
+   */
+  public int deleteOldDepartures(LocalTime currentTime) {
+    final int currentTimeMins = currentTime.getHour() * 60 + currentTime.getMinute();
+    StringDictionary keptTrainNumbers = new StringDictionary();
+    int kept = 0;
+    for (int row = 0; row < size; row++) {
+      if (departureTimes[row] + delays[row] < currentTimeMins) {
+        continue;
+      }
+      departureTimes[kept] = departureTimes[row];
+      delays[kept] = delays[row];
+      tracks[kept] = tracks[row];
+      lines[kept] = lines[row];
+      destinations[kept] = destinations[row];
+      comments[kept] = comments[row];
+      keptTrainNumbers.intern(trainNumbers.get(row));
+      kept++;
+    }
+    int deleted = size - kept;
+    if (deleted > 0) {
+      trainNumbers = keptTrainNumbers;
+      size = kept;
+      compactTextsIfGrown();
+    }
+    return deleted;
+  }
+
+  /**
+   * Gets number of departures stored in the store.
+   *
+   * @return Number of departures stored in the store.
+   */
+  public int getNoDepartures() {
+    return size;
+  }
+
+  /**
+   * Sets comment state given to departures created from the store.
+   *
+   * @param state New comment state.
+   */
+  public void setCommentState(boolean state) {
+    commentState = state;
+  }
+
+  /**
+   * Creates a TrainDepartureRegistry holding all departures in the store.
+   *
+   * @return A new registry with a TrainDeparture object for each departure.
+   */
+  TrainDepartureRegistry toRegistry() {
+    TrainDepartureRegistry registry = new TrainDepartureRegistry();
+    for (int row = 0; row < size; row++) {
+      registry.addDeparture(getDeparture(row));
+    }
+    return registry;
+  }
+
+  /**
+   * Estimates the heap used by the store, including spare capacity, counting object and array
+   * headers as 16 bytes.
+   *
+   * @return Approximate size of the store in bytes.
+   */
+  public long estimateMemoryBytes() {
+    long columns = 3 * (16 + departureTimes.length * 2L) + 3 * (16 + lines.length * 4L);
+    return 16 + columns + trainNumbers.estimateMemoryBytes() + texts.estimateMemoryBytes();
+  }
+
+  /**
+   * Finds the row of a departure.
+   *
+   * @param trainNumber Train number of the departure.
+   * @return The row of the departure.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist.
+   */
+  private int requireRow(String trainNumber) throws IllegalArgumentException {
+    int row = trainNumbers.find(trainNumber);
+    if (row < 0) {
+      String ex = "No departure exists with train number: " + trainNumber + ".";
+      throw new IllegalArgumentException(ex);
+    }
+    return row;
+  }
+
+  /**
+   * Rebuilds the dictionary of lines, destinations and comments from the strings the departures
+   * use, once it has doubled in size since it was last rebuilt. Rebuilding costs time in
+   * proportion to the number of departures, so spread over the strings added in between it costs
+   * next to nothing per change.
+   */
+  private void compactTextsIfGrown() {
+    if (texts.size() <= 2 * Integer.max(noTextsAfterCompaction, 16)) {
+      return;
+    }
+    StringDictionary compacted = new StringDictionary();
+    for (int row = 0; row < size; row++) {
+      lines[row] = compacted.intern(texts.get(lines[row]));
+      destinations[row] = compacted.intern(texts.get(destinations[row]));
+      comments[row] = compacted.intern(texts.get(comments[row]));
+    }
+    texts = compacted;
+    noTextsAfterCompaction = compacted.size();
+  }
+
+  /**
+   * Doubles the capacity of every column.
+   */
+  private void grow() {
+    int capacity = departureTimes.length * 2;
+    departureTimes = Arrays.copyOf(departureTimes, capacity);
+    delays = Arrays.copyOf(delays, capacity);
+    tracks = Arrays.copyOf(tracks, capacity);
+    lines = Arrays.copyOf(lines, capacity);
+    destinations = Arrays.copyOf(destinations, capacity);
+    comments = Arrays.copyOf(comments, capacity);
+  }
+}
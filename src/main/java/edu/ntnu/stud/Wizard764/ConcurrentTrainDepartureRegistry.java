@@ -0,0 +1,392 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registry for train departures that may be used by several threads at once, i.e. several
+ * dispatch consoles and a display feed served by the same process.
+ * Departures are never modified once they are in the registry. Every change replaces the
+ * departure with a modified copy, so a reader always sees a complete departure. Changes to the
+ * same train are serialized by one of a fixed number of locks picked by train number, so changes
+ * to different trains rarely wait for each other.
+ * Board reads copy the registry without taking any locks, and retry if a change happened while
+ * copying. Only if changes keep interfering do they briefly take every lock.
+ * The departures are also kept in concurrent sorted sets by actual departure time and by track,
+ * updated together with the departure under its lock, so deleting departures that have left and
+ * unsetting high tracks only visit the departures affected instead of scanning the registry.
+ * Departures returned by this registry are shared and must not be modified.
+ */
+public class ConcurrentTrainDepartureRegistry {
+  /**
+   * Number of locks changes are spread over. Must be a power of two.
+   */
+  private static final int NO_STRIPES = 64;
+  /**
+   * Number of lock-free attempts at copying the registry before taking every lock.
+   */
+  private static final int SNAPSHOT_ATTEMPTS = 8;
+  /**
+   * Orders departures by actual departure time, then by train number so no two are equal.
+   */
+  private static final Comparator<TrainDeparture> BY_TIME_INC_DELAY =
+      Comparator.comparingInt(TrainDeparture::getDepartureTimeIncDelayInMinutes)
+          .thenComparing(TrainDeparture::getTrainNumber);
+  /**
+   * Orders departures by track from the highest, then by train number so no two are equal.
+   */
+  private static final Comparator<TrainDeparture> BY_TRACK_DESCENDING =
+      Comparator.comparingInt((TrainDeparture t) -> -t.getTrack())
+          .thenComparing(TrainDeparture::getTrainNumber);
+  /**
+   * The current version of each departure by train number.
+   */
+  private final ConcurrentHashMap<String, TrainDeparture> departures;
+  /**
+   * The current version of each departure ordered by actual departure time. Changed together with
+   * departures while the lock for the train number is held.
+   */
+  private final ConcurrentSkipListSet<TrainDeparture> departuresByTimeIncDelay;
+  /**
+   * The current version of each departure with a track, ordered by track from the highest.
+   * Changed together with departures while the lock for the train number is held.
+   */
+  private final ConcurrentSkipListSet<TrainDeparture> departuresByTrack;
+  /**
+   * Locks serializing changes, a train always uses the same one.
+   */
+  private final ReentrantLock[] stripes;
+  /**
+   * Number of changes started. Together with changesFinished this lets readers detect changes
+   * made while they were copying.
+   */
+  private final AtomicLong changesStarted;
+  /**
+   * Number of changes finished.
+   */
+  private final AtomicLong changesFinished;
+
+  /**
+   * Constructor for ConcurrentTrainDepartureRegistry. Initializes an empty registry.
+   */
+  ConcurrentTrainDepartureRegistry() {
+    departures = new ConcurrentHashMap<>();
+    departuresByTimeIncDelay = new ConcurrentSkipListSet<>(BY_TIME_INC_DELAY);
+    departuresByTrack = new ConcurrentSkipListSet<>(BY_TRACK_DESCENDING);
+    stripes = new ReentrantLock[NO_STRIPES];
+    for (int i = 0; i < NO_STRIPES; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+    changesStarted = new AtomicLong();
+    changesFinished = new AtomicLong();
+  }
+
+  /**
+   * Adds a train departure to the registry. The registry keeps its own copy.
+   *
+   * @param departure The TrainDeparture object to be added.
+   * @throws IllegalArgumentException if a departure with the same identification
+   *                                  number already exists (IDs must be unique).
+   */
+  void addDeparture(TrainDeparture departure) throws IllegalArgumentException {
+    ReentrantLock lock = stripeFor(departure.getTrainNumber());
+    lock.lock();
+    changesStarted.incrementAndGet();
+    try {
+      TrainDeparture copy = new TrainDeparture(departure);
+      if (departures.putIfAbsent(departure.getTrainNumber(), copy) != null) {
+        String s = "A departure with that identification number already exists. ID must be unique.";
+        throw new IllegalArgumentException(s);
+      }
+      index(copy);
+    } finally {
+      changesFinished.incrementAndGet();
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves a train departure based on the provided train number.
+   *
+   * @param trainNumIn The train number of the departure to retrieve.
+   * @return The current version of the departure, which must not be modified.
+   * @throws IllegalArgumentException if the departure does not exist.
+   */
+  TrainDeparture getDeparture(String trainNumIn) throws IllegalArgumentException {
+    TrainDeparture departure = departures.get(trainNumIn);
+    if (departure == null) {
+      throw new IllegalArgumentException("Departure does not exist.");
+    }
+    return departure;
+  }
+
+  /**
+   * Checks if a train departure with the given train number exists.
+   *
+   * @param trainNumIn The train number to check.
+   * @return true if the departure exists, false otherwise.
+   */
+  boolean departureExists(String trainNumIn) {
+    return departures.containsKey(trainNumIn);
+  }
+
+  /**
+   * Sets the comment of a departure in the registry.
+   *
+   * @param trainNumber Train number of the departure to be modified.
+   * @param comment New comment.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist.
+   */
+  public void setComment(String trainNumber, String comment) throws IllegalArgumentException {
+    ReentrantLock lock = stripeFor(trainNumber);
+    lock.lock();
+    try {
+      TrainDeparture copy = copyForChange(trainNumber);
+      copy.setComment(comment);
+      publish(copy);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sets the delay of a departure in the registry.
+   *
+   * @param trainNumber Train number of the departure to be modified.
+   * @param delay New delay.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist.
+   */
+  public void setDelay(String trainNumber, LocalTime delay) throws IllegalArgumentException {
+    ReentrantLock lock = stripeFor(trainNumber);
+    lock.lock();
+    try {
+      TrainDeparture copy = copyForChange(trainNumber);
+      copy.setDelay(delay);
+      publish(copy);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sets the track of a departure in the registry.
+   *
+   * @param trainNumber Train number of the departure to be modified.
+   * @param track New track.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist or if the track
+   *     is not a positive number.
+   */
+  public void setTrack(String trainNumber, short track) throws IllegalArgumentException {
+    ReentrantLock lock = stripeFor(trainNumber);
+    lock.lock();
+    try {
+      TrainDeparture copy = copyForChange(trainNumber);
+      copy.setTrack(track); // throws IllegalArgumentException
+      publish(copy);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Unsets all tracks higher than provided limit. Only the departures on higher tracks are
+   * visited, found in the track index.
+   *
+   * @param limit Highest track number allowed.
+   * @return Returns number of tracks unset.
+   */
+  public int unsetTrackBelowLimit(short limit) {
+    int departuresUnset = 0;
+    for (TrainDeparture t : departuresByTrack) {
+      if (t.getTrack() <= limit) {
+        break;
+      }
+      ReentrantLock lock = stripeFor(t.getTrainNumber());
+      lock.lock();
+      try {
+        // The departure may have changed since it was read without the lock.
+        TrainDeparture current = departures.get(t.getTrainNumber());
+        if (current != null && current.getTrack() > limit) {
+          TrainDeparture copy = new TrainDeparture(current);
+          copy.unsetTrack();
+          publish(copy);
+          departuresUnset++;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return departuresUnset;
+  }
+
+  /**
+   * Deletes departures that are past as of the time given as parameter. Only the departures that
+   * have left are visited, found in the time index.
+   *
+   * @param currentTime The current time.
+   * @return The deleted departures ordered by actual departure time.
+   */
+  public TrainDeparture[] deleteOldDepartures(LocalTime currentTime) {
+    final int currentTimeMins = currentTime.getHour() * 60 + currentTime.getMinute();
+    ArrayList<TrainDeparture> expired = new ArrayList<>();
+    for (TrainDeparture t : departuresByTimeIncDelay) {
+      if (t.getDepartureTimeIncDelayInMinutes() >= currentTimeMins) {
+        break;
+      }
+      ReentrantLock lock = stripeFor(t.getTrainNumber());
+      lock.lock();
+      changesStarted.incrementAndGet();
+      try {
+        // Only remove the departure if its delay hasn't been changed since it was read.
+        if (departures.remove(t.getTrainNumber(), t)) {
+          unindex(t);
+          expired.add(t);
+        }
+      } finally {
+        changesFinished.incrementAndGet();
+        lock.unlock();
+      }
+    }
+    // Visited in order of actual departure time, so already ordered.
+    return expired.toArray(new TrainDeparture[0]);
+  }
+
+  /**
+   * Gets number of departures stored in the registry.
+   *
+   * @return Number of TrainDeparture objects stored in the registry.
+   */
+  public int getNoDepartures() {
+    return departures.size();
+  }
+
+  /**
+   * Takes a consistent copy of the registry, i.e. one where either all or none of the effects
+   * of each change are included. Does not block changes unless changes keep interfering.
+   *
+   * @return All departures in the registry ordered by scheduled departure time.
+   */
+  TrainDeparture[] getSnapshot() {
+    TrainDeparture[] snapshot = null;
+    for (int attempt = 0; attempt < SNAPSHOT_ATTEMPTS && snapshot == null; attempt++) {
+      long finished = changesFinished.get();
+      long started = changesStarted.get();
+      if (started != finished) {
+        Thread.onSpinWait(); // A change is in progress.
+        continue;
+      }
+      TrainDeparture[] copy = departures.values().toArray(new TrainDeparture[0]);
+      if (changesStarted.get() == started) {
+        snapshot = copy;
+      }
+    }
+    if (snapshot == null) {
+      snapshot = getSnapshotLocked();
+    }
+    Arrays.sort(snapshot, new DepartureComparator());
+    return snapshot;
+  }
+
+  /**
+   * Overrides the default toString() method to provide a formatted string
+   * representation of a consistent copy of the departures sorted by time.
+   *
+   * @return A formatted string containing the complete list of departures.
+   */
+  @Override
+  public String toString() {
+    return BoardWriter.toString(BoardWriter.COMPLETE_BOARD_TITLE, Arrays.asList(getSnapshot()));
+  }
+
+  /**
+   * Copies the registry while holding every lock, so no change can be in progress.
+   *
+   * @return All departures in the registry, unordered.
+   */
+  private TrainDeparture[] getSnapshotLocked() {
+    for (ReentrantLock lock : stripes) {
+      lock.lock();
+    }
+    try {
+      return departures.values().toArray(new TrainDeparture[0]);
+    } finally {
+      for (ReentrantLock lock : stripes) {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Copies the current version of a departure so it can be changed. The lock for the train
+   * number must be held.
+   *
+   * @param trainNumber Train number of the departure.
+   * @return A copy of the departure.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist.
+   */
+  private TrainDeparture copyForChange(String trainNumber) throws IllegalArgumentException {
+    TrainDeparture current = departures.get(trainNumber);
+    if (current == null) {
+      String ex = "No departure exists with train number: " + trainNumber + ".";
+      throw new IllegalArgumentException(ex);
+    }
+    return new TrainDeparture(current);
+  }
+
+  /**
+   * Replaces the current version of a departure with a changed copy. The lock for the train
+   * number must be held.
+   *
+   * @param changed The changed copy.
+   */
+  private void publish(TrainDeparture changed) {
+    changesStarted.incrementAndGet();
+    TrainDeparture previous = departures.put(changed.getTrainNumber(), changed);
+    changesFinished.incrementAndGet();
+    unindex(previous);
+    index(changed);
+  }
+
+  /**
+   * Adds the current version of a departure to the indexes. The lock for the train number must
+   * be held.
+   *
+   * @param departure The departure.
+   */
+  private void index(TrainDeparture departure) {
+    departuresByTimeIncDelay.add(departure);
+    if (departure.getTrack() != -1) {
+      departuresByTrack.add(departure);
+    }
+  }
+
+  /**
+   * Removes a version of a departure from the indexes. The lock for the train number must be
+   * held.
+   *
+   * @param departure The departure.
+   */
+  private void unindex(TrainDeparture departure) {
+    departuresByTimeIncDelay.remove(departure);
+    if (departure.getTrack() != -1) {
+      departuresByTrack.remove(departure);
+    }
+  }
+
+  /**
+   * Picks the lock for a train number.
+   *
+   * @param trainNumber The train number.
+   * @return The lock serializing changes to that train.
+   */
+  private ReentrantLock stripeFor(String trainNumber) {
+    int hash = trainNumber.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & (NO_STRIPES - 1)];
+  }
+}
@@ -0,0 +1,97 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of importing a timetable with TimetableCsvImporter: how many departures were added, and
+ * why each rejected row was rejected.
+ */
+public class CsvImportReport {
+  /**
+   * Number of rows read, not counting the header and blank lines.
+   */
+  private int noRows;
+  /**
+   * Number of departures added to the registry.
+   */
+  private int noImported;
+  /**
+   * Rejected rows, each as "Line N: reason", in line order.
+   */
+  private final ArrayList<String> errors;
+
+  /**
+   * Constructs an empty report.
+   */
+  CsvImportReport() {
+    noRows = 0;
+    noImported = 0;
+    errors = new ArrayList<>();
+  }
+
+  /**
+   * Counts a row read.
+   */
+  void rowRead() {
+    noRows++;
+  }
+
+  /**
+   * Records that a row was rejected.
+   *
+   * @param lineNumber Line of the file the row is on, starting at 1.
+   * @param reason Why the row was rejected.
+   */
+  void rowRejected(int lineNumber, String reason) {
+    errors.add("Line " + lineNumber + ": " + reason);
+  }
+
+  /**
+   * Sets the number of departures added to the registry.
+   *
+   * @param noImported Number of departures added.
+   */
+  void setNoImported(int noImported) {
+    this.noImported = noImported;
+  }
+
+  /**
+   * Gets number of rows read, not counting the header and blank lines.
+   *
+   * @return Number of rows read.
+   */
+  public int getNoRows() {
+    return noRows;
+  }
+
+  /**
+   * Gets number of departures added to the registry.
+   *
+   * @return Number of departures added.
+   */
+  public int getNoImported() {
+    return noImported;
+  }
+
+  /**
+   * Gets the rejected rows.
+   *
+   * @return Read-only list of errors, each as "Line N: reason", in line order.
+   */
+  public List<String> getErrors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * Summarizes the import.
+   *
+   * @return A line stating how many rows were imported and rejected.
+   */
+  @Override
+  public String toString() {
+    return "Imported " + noImported + " of " + noRows + " departure(s). "
+        + errors.size() + " row(s) rejected.";
+  }
+}
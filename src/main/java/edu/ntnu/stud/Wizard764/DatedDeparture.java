@@ -0,0 +1,58 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A departure together with the service day it is scheduled on, as listed by ServiceDayRegistry.
+ * Departures themselves only know times within their service day, so this is what places them in
+ * time across days, i.e. a night train delayed past midnight.
+ */
+public class DatedDeparture {
+  /**
+   * The day the departure is scheduled on.
+   */
+  private final LocalDate serviceDay;
+  /**
+   * The departure.
+   */
+  private final TrainDeparture departure;
+
+  /**
+   * Constructs a dated departure.
+   *
+   * @param serviceDay The day the departure is scheduled on.
+   * @param departure The departure.
+   */
+  DatedDeparture(LocalDate serviceDay, TrainDeparture departure) {
+    this.serviceDay = serviceDay;
+    this.departure = departure;
+  }
+
+  /**
+   * Gets the day the departure is scheduled on.
+   *
+   * @return The service day.
+   */
+  public LocalDate getServiceDay() {
+    return serviceDay;
+  }
+
+  /**
+   * Gets the departure.
+   *
+   * @return The departure, belonging to the registry of its service day.
+   */
+  public TrainDeparture getDeparture() {
+    return departure;
+  }
+
+  /**
+   * Gets the actual date and time of departure including the delay.
+   *
+   * @return The date and time, the day after the service day if delayed past midnight.
+   */
+  public LocalDateTime getDepartureDateTimeIncDelay() {
+    return departure.getDepartureDateTimeIncDelay(serviceDay);
+  }
+}
@@ -0,0 +1,475 @@
+package edu.ntnu.stud.Wizard764;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the departure board as JSON over HTTP on the local machine, for kiosks and other
+ * systems, using the HTTP server built into the JDK. Requests are answered from the last snapshot
+ * published by the registry, so they never wait for or hold up the thread changing it.
+ * The following requests are served:
+ * <ul>
+ *   <li>GET /departures?from=HH:MM&amp;limit=N: the next departures leaving at or after the
+ *   given time including delay, by default from 00:00 and at most 20</li>
+ *   <li>GET /departures?destination=NAME&amp;limit=N: departures to a destination, ignoring
+ *   case</li>
+ *   <li>GET /departures/NUMBER: the departure with the given train number</li>
+ *   <li>GET /departures?since=VERSION: what changed since the version a display shows, made by a
+ *   BoardChangeTracker, so displays can poll without fetching the whole board</li>
+ * </ul>
+ * Lists are answered as {"version":V,"departures":[...]} and single departures as
+ * {"version":V,"departure":{...}}, where V is the version of the snapshot. Changes are answered
+ * as {"version":V,"fromVersion":F,"added":[...],"modified":[...],"removed":["NUMBER",...]},
+ * where F is -1 if every departure is listed as added, i.e. when asked for since -1 or when the
+ * display is too far behind.
+ * Each response is built once per version of the registry and then served from a cache until the
+ * registry changes, so repeated polls cost no more than writing out the bytes. The version is
+ * also sent as an ETag, so clients polling with If-None-Match get an empty 304 response until
+ * something has changed.
+ */
+public class DepartureBoardServer implements Closeable {
+  /**
+   * Number of departures listed if the request doesn't give a limit.
+   */
+  static final int DEFAULT_LIMIT = 20;
+  /**
+   * Highest limit a request may give.
+   */
+  static final int MAX_LIMIT = 1000;
+  /**
+   * Highest number of different responses cached per version. Requests beyond it are answered
+   * without caching, so odd requests can't fill up memory.
+   */
+  private static final int MAX_CACHED_RESPONSES = 1024;
+  /**
+   * Path all requests are under.
+   */
+  private static final String PATH = "/departures";
+  /**
+   * Highest number of departures whose last change is kept for answering changes since a version.
+   */
+  static final int DIFF_CAPACITY = 10_000;
+
+  /**
+   * The registry served.
+   */
+  private final TrainDepartureRegistry registry;
+  /**
+   * Keeps track of the changes to the registry, for answering changes since a version.
+   */
+  private final BoardChangeTracker tracker;
+  /**
+   * The HTTP server.
+   */
+  private final HttpServer server;
+  /**
+   * Threads answering requests.
+   */
+  private final ExecutorService executor;
+  /**
+   * Responses built for the version last served.
+   */
+  private volatile ResponseCache cache;
+  /**
+   * Number of responses built, as opposed to served from the cache.
+   */
+  private final AtomicLong noRendered;
+
+  /**
+   * Responses built for one version of the registry, by request.
+   */
+  private static final class ResponseCache {
+    private final long version;
+    private final ConcurrentHashMap<String, Response> responses;
+
+    private ResponseCache(long version) {
+      this.version = version;
+      responses = new ConcurrentHashMap<>();
+    }
+  }
+
+  /**
+   * A response ready to be sent.
+   */
+  private static final class Response {
+    private final int status;
+    private final byte[] body;
+
+    private Response(int status, String body) {
+      this.status = status;
+      this.body = body.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Constructs a server, without starting it.
+   *
+   * @param registry The registry to serve.
+   * @param tracker Tracker of the changes to the registry.
+   * @param server The HTTP server, bound but not started.
+   * @param executor Threads answering requests.
+   */
+  private DepartureBoardServer(TrainDepartureRegistry registry, BoardChangeTracker tracker,
+                               HttpServer server, ExecutorService executor) {
+    this.registry = registry;
+    this.tracker = tracker;
+    this.server = server;
+    this.executor = executor;
+    cache = new ResponseCache(-1);
+    noRendered = new AtomicLong();
+  }
+
+  /**
+   * Starts serving a registry on the loopback address. The registry must publish snapshots for
+   * changes to be served, i.e. after each batch of changes. Must be called by the thread changing
+   * the registry, as the server starts listening to it.
+   *
+   * @param registry The registry to serve.
+   * @param port The port to listen on, or 0 for any free port.
+   * @param noThreads Number of threads answering requests.
+   * @return The running server.
+   * @throws IOException if the port can't be listened on.
+   * @throws IllegalArgumentException if the number of threads is not positive.
+   */
+  static DepartureBoardServer start(TrainDepartureRegistry registry, int port, int noThreads)
+      throws IOException, IllegalArgumentException {
+    if (noThreads < 1) {
+      throw new IllegalArgumentException("Number of threads must be positive.");
+    }
+    HttpServer server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    ExecutorService executor = Executors.newFixedThreadPool(noThreads, runnable -> {
+      Thread thread = new Thread(runnable, "board-server");
+      thread.setDaemon(true);
+      return thread;
+    });
+    DepartureBoardServer boardServer = new DepartureBoardServer(registry,
+        new BoardChangeTracker(registry, DIFF_CAPACITY), server, executor);
+    server.createContext(PATH, boardServer::handle);
+    server.setExecutor(executor);
+    server.start();
+    return boardServer;
+  }
+
+  /**
+   * Gets the port the server listens on.
+   *
+   * @return The port.
+   */
+  int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Gets the number of responses built so far, as opposed to served from the cache.
+   *
+   * @return Number of responses built.
+   */
+  long getNoRendered() {
+    return noRendered.get();
+  }
+
+  /**
+   * Stops the server, letting requests being answered finish for up to a second, and stops
+   * listening to the registry. Must be called by the thread changing the registry.
+   */
+  @Override
+  public void close() {
+    server.stop(1);
+    executor.shutdown();
+    tracker.close();
+  }
+
+  /**
+   * Answers a request.
+   *
+   * @param exchange The request and its response.
+   * @throws IOException if the response can't be sent.
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String method = exchange.getRequestMethod();
+      boolean head = method.equals("HEAD");
+      if (!head && !method.equals("GET")) {
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        send(exchange, new Response(405, error("Only GET is allowed.")), false);
+        return;
+      }
+      RegistrySnapshot snapshot = registry.getSnapshot();
+      String key;
+      try {
+        key = requestKey(exchange);
+      } catch (IllegalArgumentException e) {
+        send(exchange, new Response(400, error(e.getMessage())), head);
+        return;
+      }
+      String tag = "\"" + snapshot.getVersion() + "\"";
+      exchange.getResponseHeaders().set("ETag", tag);
+      exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+      if (tag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        exchange.sendResponseHeaders(304, -1);
+        return;
+      }
+      send(exchange, response(snapshot, key), head);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Gets the response to a request from the cache, building it if needed.
+   *
+   * @param snapshot The snapshot to answer from.
+   * @param key The request, as made by requestKey(HttpExchange).
+   * @return The response.
+   */
+  private Response response(RegistrySnapshot snapshot, String key) {
+    ResponseCache current = cache;
+    if (current.version != snapshot.getVersion()) {
+      // Racing threads may each start a cache, the last one simply wins.
+      current = new ResponseCache(snapshot.getVersion());
+      cache = current;
+    }
+    Response response = current.responses.get(key);
+    if (response == null) {
+      if (current.responses.size() >= MAX_CACHED_RESPONSES) {
+        return render(snapshot, key);
+      }
+      response = current.responses.computeIfAbsent(key, k -> render(snapshot, k));
+    }
+    return response;
+  }
+
+  /**
+   * Sends a response.
+   *
+   * @param exchange The request and its response.
+   * @param response The response.
+   * @param head Whether to leave out the body, for HEAD requests.
+   * @throws IOException if the response can't be sent.
+   */
+  private static void send(HttpExchange exchange, Response response, boolean head)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    if (head) {
+      exchange.sendResponseHeaders(response.status, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(response.status, response.body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(response.body);
+    }
+  }
+
+  /**
+   * Parses a request into a key naming what is asked for, the same for requests asking for the
+   * same thing in different ways. The key starts with "train:", "since:", "destination:" or
+   * "next:", or is "unknown" for paths that aren't served.
+   *
+   * @param exchange The request.
+   * @return The key.
+   * @throws IllegalArgumentException if the request is not valid.
+   */
+  private static String requestKey(HttpExchange exchange) throws IllegalArgumentException {
+    String path = exchange.getRequestURI().getPath();
+    if (path.startsWith(PATH + "/") && path.length() > PATH.length() + 1) {
+      return "train:" + path.substring(PATH.length() + 1);
+    } else if (!path.equals(PATH) && !path.equals(PATH + "/")) {
+      return "unknown";
+    }
+    HashMap<String, String> parameters = new HashMap<>();
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query != null) {
+      for (String parameter : query.split("&")) {
+        int equals = parameter.indexOf('=');
+        if (equals > 0) {
+          parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+              URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+      }
+    }
+    if (parameters.containsKey("since")) {
+      long since;
+      try {
+        since = Long.parseLong(parameters.get("since"));
+      } catch (NumberFormatException e) {
+        since = -2;
+      }
+      if (since < -1) {
+        throw new IllegalArgumentException("Since must be a version, or -1 for every departure.");
+      }
+      return "since:" + since;
+    }
+    int limit = DEFAULT_LIMIT;
+    if (parameters.containsKey("limit")) {
+      try {
+        limit = Integer.parseInt(parameters.get("limit"));
+      } catch (NumberFormatException e) {
+        limit = -1;
+      }
+      if (limit < 1 || limit > MAX_LIMIT) {
+        throw new IllegalArgumentException("Limit must be a number from 1 to " + MAX_LIMIT + ".");
+      }
+    }
+    String destination = parameters.get("destination");
+    if (destination != null) {
+      return "destination:" + limit + ":" + destination.toLowerCase(Locale.ROOT);
+    }
+    LocalTime from = LocalTime.MIN;
+    if (parameters.containsKey("from")) {
+      try {
+        from = LocalTime.parse(parameters.get("from"));
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException("From must be a time on the format HH:MM.");
+      }
+    }
+    return "next:" + limit + ":" + from.withSecond(0).withNano(0);
+  }
+
+  /**
+   * Builds the response to a request.
+   *
+   * @param snapshot The snapshot to answer from.
+   * @param key The request, as made by requestKey(HttpExchange).
+   * @return The response.
+   */
+  private Response render(RegistrySnapshot snapshot, String key) {
+    noRendered.incrementAndGet();
+    StringBuilder json = new StringBuilder(256);
+    json.append("{\"version\":").append(snapshot.getVersion());
+    if (key.equals("unknown")) {
+      return new Response(404, error("Not found."));
+    } else if (key.startsWith("train:")) {
+      String trainNumber = key.substring("train:".length());
+      if (!snapshot.departureExists(trainNumber)) {
+        return new Response(404, error("No departure exists with train number: "
+            + trainNumber + "."));
+      }
+      json.append(",\"departure\":");
+      appendDeparture(json, snapshot.getDeparture(trainNumber));
+      return new Response(200, json.append('}').toString());
+    } else if (key.startsWith("since:")) {
+      BoardDiff diff;
+      try {
+        diff = tracker.diff(Long.parseLong(key.substring("since:".length())), snapshot);
+      } catch (IllegalArgumentException e) {
+        return new Response(400, error(e.getMessage()));
+      }
+      json.append(",\"fromVersion\":").append(diff.getFromVersion()).append(",\"added\":");
+      appendDepartures(json, diff.getAdded(), Integer.MAX_VALUE);
+      json.append(",\"modified\":");
+      appendDepartures(json, diff.getModified(), Integer.MAX_VALUE);
+      json.append(",\"removed\":[");
+      for (int i = 0; i < diff.getRemoved().size(); i++) {
+        if (i > 0) {
+          json.append(',');
+        }
+        appendString(json, diff.getRemoved().get(i));
+      }
+      return new Response(200, json.append("]}").toString());
+    }
+    String[] parts = key.split(":", 3);
+    int limit = Integer.parseInt(parts[1]);
+    List<TrainDeparture> departures = parts[0].equals("destination")
+        ? snapshot.getDeparturesByDestinationIgnoreCase(parts[2])
+        : snapshot.getNextDepartures(LocalTime.parse(parts[2]), limit);
+    json.append(",\"departures\":");
+    appendDepartures(json, departures, limit);
+    return new Response(200, json.append('}').toString());
+  }
+
+  /**
+   * Appends departures as a JSON array.
+   *
+   * @param json The JSON to append to.
+   * @param departures The departures.
+   * @param limit Highest number of departures to append.
+   */
+  private static void appendDepartures(StringBuilder json, List<TrainDeparture> departures,
+                                       int limit) {
+    json.append('[');
+    for (int i = 0; i < departures.size() && i < limit; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      appendDeparture(json, departures.get(i));
+    }
+    json.append(']');
+  }
+
+  /**
+   * Appends a departure as a JSON object. Departures without a track have track null.
+   *
+   * @param json The JSON to append to.
+   * @param departure The departure.
+   */
+  private static void appendDeparture(StringBuilder json, TrainDeparture departure) {
+    json.append("{\"departureTime\":\"").append(departure.getDepartureTime())
+        .append("\",\"line\":");
+    appendString(json, departure.getLine());
+    json.append(",\"trainNumber\":");
+    appendString(json, departure.getTrainNumber());
+    json.append(",\"destination\":");
+    appendString(json, departure.getDestination());
+    json.append(",\"delay\":\"").append(departure.getDelay())
+        .append("\",\"actualDepartureTime\":\"").append(departure.getDepartureTimeIncDelay())
+        .append("\",\"track\":");
+    if (departure.getTrack() == -1) {
+      json.append("null");
+    } else {
+      json.append(departure.getTrack());
+    }
+    json.append(",\"comment\":");
+    appendString(json, departure.getComment());
+    json.append('}');
+  }
+
+  /**
+   * Appends a string as a JSON string, escaping quotes, backslashes and control characters.
+   *
+   * @param json The JSON to append to.
+   * @param s The string.
+   */
+  private static void appendString(StringBuilder json, String s) {
+    json.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+
+  /**
+   * Builds the body of an error response.
+   *
+   * @param message What went wrong.
+   * @return The body.
+   */
+  private static String error(String message) {
+    StringBuilder json = new StringBuilder("{\"error\":");
+    appendString(json, message);
+    return json.append('}').toString();
+  }
+}
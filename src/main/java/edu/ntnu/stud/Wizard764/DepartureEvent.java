@@ -0,0 +1,94 @@
+package edu.ntnu.stud.Wizard764;
+
+/**
+ * A change to a departure in a TrainDepartureRegistry, as delivered to subscribers. Events are
+ * immutable and may be read on any thread. The departure is a copy taken right after the change,
+ * and must not be modified.
+ */
+public class DepartureEvent {
+  /**
+   * Kinds of change.
+   */
+  public enum Type {
+    /** The departure was added. */
+    ADDED,
+    /** The delay of the departure was set. */
+    DELAYED,
+    /** The departure was given a track, or moved to another. */
+    TRACK_CHANGED,
+    /** The track of the departure was unset. */
+    TRACK_UNSET,
+    /** The comment of the departure was set. */
+    COMMENT_CHANGED,
+    /** More than one of the delay, track and comment of the departure were set in a batch. */
+    UPDATED,
+    /** The departure was removed from the registry, i.e. because it has left. */
+    EXPIRED,
+    /** Comments were shown or hidden on every departure. The event has no departure. */
+    COMMENT_STATE_CHANGED
+  }
+
+  /**
+   * Kind of change.
+   */
+  private final Type type;
+  /**
+   * Version of the registry after the change.
+   */
+  private final long version;
+  /**
+   * The departure as it was right after the change.
+   */
+  private final TrainDeparture departure;
+
+  /**
+   * Constructs an event.
+   *
+   * @param type Kind of change.
+   * @param version Version of the registry after the change.
+   * @param departure Copy of the departure right after the change, not to be modified, or null
+   *     if the change isn't to one departure.
+   */
+  DepartureEvent(Type type, long version, TrainDeparture departure) {
+    this.type = type;
+    this.version = version;
+    this.departure = departure;
+  }
+
+  /**
+   * Gets the kind of change.
+   *
+   * @return The kind of change.
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Gets the version of the registry after the change. Events are delivered in version order.
+   *
+   * @return The version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets the departure as it was right after the change.
+   *
+   * @return The departure, not to be modified, or null for COMMENT_STATE_CHANGED.
+   */
+  public TrainDeparture getDeparture() {
+    return departure;
+  }
+
+  /**
+   * Describes the event, i.e. "DELAYED at version 12: " followed by the departure.
+   *
+   * @return The event as a string.
+   */
+  @Override
+  public String toString() {
+    return type + " at version " + version + ": " + departure;
+  }
+}
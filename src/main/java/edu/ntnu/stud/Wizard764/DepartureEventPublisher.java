@@ -0,0 +1,119 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Turns the changes to a TrainDepartureRegistry into DepartureEvents and offers them to every
+ * open DepartureSubscription. Called by the registry on the thread changing it. Subscriptions may
+ * be opened and closed from any thread. While there are no subscriptions, changes cost no more
+ * than a check of an empty list.
+ */
+class DepartureEventPublisher implements RegistryListener {
+  /**
+   * Open subscriptions, in the order they were opened.
+   */
+  private final CopyOnWriteArrayList<DepartureSubscription> subscriptions;
+
+  /**
+   * Constructs a publisher without subscriptions.
+   */
+  DepartureEventPublisher() {
+    subscriptions = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Opens a subscription getting every event from now on.
+   *
+   * @param capacity Highest number of events queued for the subscriber.
+   * @param policy What to do with events when the queue is full.
+   * @return The subscription.
+   * @throws IllegalArgumentException if the capacity is not positive.
+   */
+  DepartureSubscription subscribe(int capacity, DepartureSubscription.OverflowPolicy policy)
+      throws IllegalArgumentException {
+    DepartureSubscription subscription = new DepartureSubscription(this, capacity, policy);
+    subscriptions.add(subscription);
+    return subscription;
+  }
+
+  /**
+   * Stops offering events to a subscription.
+   *
+   * @param subscription The subscription.
+   */
+  void unsubscribe(DepartureSubscription subscription) {
+    subscriptions.remove(subscription);
+  }
+
+  @Override
+  public void departureAdded(long version, TrainDeparture departure) {
+    publish(DepartureEvent.Type.ADDED, version, departure);
+  }
+
+  @Override
+  public void departureRemoved(long version, TrainDeparture departure) {
+    publish(DepartureEvent.Type.EXPIRED, version, departure);
+  }
+
+  @Override
+  public void delayChanged(long version, TrainDeparture departure, int previousDelayMins) {
+    publish(DepartureEvent.Type.DELAYED, version, departure);
+  }
+
+  @Override
+  public void trackChanged(long version, TrainDeparture departure, short previousTrack) {
+    publish(departure.getTrack() == -1 ? DepartureEvent.Type.TRACK_UNSET
+        : DepartureEvent.Type.TRACK_CHANGED, version, departure);
+  }
+
+  @Override
+  public void commentChanged(long version, TrainDeparture departure, String previousComment) {
+    publish(DepartureEvent.Type.COMMENT_CHANGED, version, departure);
+  }
+
+  @Override
+  public void departureUpdated(long version, TrainDeparture departure, TrainDeparture previous) {
+    boolean delayed = departure.getDelayInMinutes() != previous.getDelayInMinutes();
+    boolean retracked = departure.getTrack() != previous.getTrack();
+    boolean commented = !departure.getComment().equals(previous.getComment());
+    if (delayed && !retracked && !commented) {
+      delayChanged(version, departure, previous.getDelayInMinutes());
+    } else if (retracked && !delayed && !commented) {
+      trackChanged(version, departure, previous.getTrack());
+    } else if (commented && !delayed && !retracked) {
+      commentChanged(version, departure, previous.getComment());
+    } else {
+      publish(DepartureEvent.Type.UPDATED, version, departure);
+    }
+  }
+
+  @Override
+  public void commentStateChanged(long version, boolean state) {
+    if (subscriptions.isEmpty()) {
+      return;
+    }
+    DepartureEvent event = new DepartureEvent(DepartureEvent.Type.COMMENT_STATE_CHANGED, version,
+        null);
+    for (DepartureSubscription subscription : subscriptions) {
+      subscription.offer(event);
+    }
+  }
+
+  /**
+   * Offers an event to every subscription. The departure is copied once, and only if someone
+   * is subscribed.
+   *
+   * @param type Kind of change.
+   * @param version Version of the registry after the change.
+   * @param departure The changed departure.
+   */
+  private void publish(DepartureEvent.Type type, long version, TrainDeparture departure) {
+    if (subscriptions.isEmpty()) {
+      return;
+    }
+    DepartureEvent event = new DepartureEvent(type, version, new TrainDeparture(departure));
+    for (DepartureSubscription subscription : subscriptions) {
+      subscription.offer(event);
+    }
+  }
+}
@@ -0,0 +1,329 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * Removes departures from a registry when they leave, driven by a clock. Departures are filed in
+ * a hierarchical timing wheel by actual departure time: one slot for each minute of the current
+ * hour, and one slot for each later hour of the day. When the wheel reaches a new hour, the
+ * departures of that hour are moved down into the minute slots. Moving the wheel forward then
+ * only touches the slots passed and the departures leaving in them, so expiry costs time in
+ * proportion to the number of departures expired rather than the size of the registry.
+ * The wheel listens to the registry, so departures added, removed or delayed through the registry
+ * are filed, dropped or moved to their new slot as the change happens.
+ * The wheel covers one day, like the registry. Departures leaving after midnight because of their
+ * delay are kept aside until the clock reaches the next day. The wheel then expires what is left
+ * of the day, starts over at 00:00 and files the departures kept aside as departures of the new
+ * day, 24 hours earlier than their time in the registry. Like the registry, the wheel is meant to
+ * be used by one thread at a time, the same thread that changes the registry. When the wheel is
+ * ticking on a thread of its own (see startTicking), that thread only moves the wheel while
+ * holding a lock the other threads changing the registry or reading the wheel hold as well.
+ */
+class DepartureExpiryWheel implements RegistryListener {
+  /**
+   * Number of minutes in a day.
+   */
+  private static final int MINUTES_PER_DAY = 24 * 60;
+
+  /**
+   * The registry departures are removed from.
+   */
+  private final TrainDepartureRegistry registry;
+  /**
+   * Clock read by advance().
+   */
+  private final Clock clock;
+  /**
+   * Departures leaving in each minute of the current hour, by minute past the hour.
+   */
+  private final ArrayList<LinkedHashSet<TrainDeparture>> minuteSlots;
+  /**
+   * Departures leaving in each later hour of the day, by hour.
+   */
+  private final ArrayList<LinkedHashSet<TrainDeparture>> hourSlots;
+  /**
+   * Departures that have left before the current time, but were added or delayed since the wheel
+   * last moved. They are removed the next time the wheel moves.
+   */
+  private final LinkedHashSet<TrainDeparture> due;
+  /**
+   * Departures leaving after midnight.
+   */
+  private final LinkedHashSet<TrainDeparture> afterMidnight;
+  /**
+   * Departures of the previous day delayed past midnight, filed 24 hours earlier than their time
+   * in the registry.
+   */
+  private final LinkedHashSet<TrainDeparture> fromPreviousDay;
+  /**
+   * The day the wheel is at, by the clock.
+   */
+  private LocalDate day;
+  /**
+   * Current time of the wheel in minutes into the day. Departures leaving before it are gone.
+   */
+  private int currentMinute;
+  /**
+   * Thread moving the wheel to the clock at a fixed interval, or null if not ticking.
+   */
+  private ScheduledExecutorService ticker;
+
+  /**
+   * Constructs a wheel at 00:00 holding the departures of the registry, and starts listening to
+   * changes to the registry.
+   *
+   * @param registry The registry to remove departures from.
+   * @param clock Clock read by advance(), i.e. the system clock or a simulated one for tests.
+   */
+  DepartureExpiryWheel(TrainDepartureRegistry registry, Clock clock) {
+    this.registry = registry;
+    this.clock = clock;
+    minuteSlots = new ArrayList<>(60);
+    for (int minute = 0; minute < 60; minute++) {
+      minuteSlots.add(new LinkedHashSet<>());
+    }
+    hourSlots = new ArrayList<>(24);
+    for (int hour = 0; hour < 24; hour++) {
+      hourSlots.add(new LinkedHashSet<>());
+    }
+    due = new LinkedHashSet<>();
+    afterMidnight = new LinkedHashSet<>();
+    fromPreviousDay = new LinkedHashSet<>();
+    day = LocalDate.now(clock);
+    currentMinute = 0;
+    ticker = null;
+    for (TrainDeparture departure : registry.getNextDepartures(LocalTime.MIN, Integer.MAX_VALUE)) {
+      slotOf(departure).add(departure);
+    }
+    registry.addListener(this);
+  }
+
+  /**
+   * Moves the wheel forward to the time of the clock, removing the departures that have left.
+   * If the clock has reached a later day, the rest of each day passed is expired and the wheel
+   * starts over at 00:00 for each of them. A clock earlier than the wheel on the same day, i.e.
+   * because the time was moved forward by hand, leaves the wheel where it is.
+   *
+   * @return The removed departures ordered by actual departure time.
+   */
+  TrainDeparture[] advance() {
+    LocalDateTime now = LocalDateTime.now(clock);
+    ArrayList<TrainDeparture> expired = new ArrayList<>();
+    while (day.isBefore(now.toLocalDate())) {
+      expired.addAll(List.of(advanceTo(MINUTES_PER_DAY)));
+      rollOver();
+    }
+    int nowMins = now.getHour() * 60 + now.getMinute();
+    expired.addAll(List.of(advanceTo(Integer.max(nowMins, currentMinute))));
+    return expired.toArray(new TrainDeparture[0]);
+  }
+
+  /**
+   * Moves the wheel forward to the given time, removing the departures leaving before it.
+   * Also removes departures that were added or delayed into the past since the wheel last moved,
+   * even if the time is the current time of the wheel.
+   *
+   * @param time The time to move to.
+   * @return The removed departures ordered by actual departure time.
+   * @throws IllegalArgumentException if the time is before the current time of the wheel.
+   */
+  TrainDeparture[] advanceTo(LocalTime time) throws IllegalArgumentException {
+    int timeMins = time.getHour() * 60 + time.getMinute();
+    if (timeMins < currentMinute) {
+      throw new IllegalArgumentException("New time must be after current time.");
+    }
+    return advanceTo(timeMins);
+  }
+
+  /**
+   * Gets the current time of the wheel.
+   *
+   * @return The time the wheel was last moved to.
+   */
+  LocalTime getTime() {
+    return LocalTime.of(currentMinute / 60, currentMinute % 60);
+  }
+
+  /**
+   * Starts moving the wheel forward to the clock at a fixed interval on a thread of its own, so
+   * departures are removed as they leave without anyone having to act. Each tick calls advance()
+   * while holding the given lock. If the lock is held by someone else, the tick is skipped rather
+   * than waiting, and the next tick catches up as the wheel moves all the way to the clock.
+   *
+   * @param intervalMillis Time between ticks in milliseconds.
+   * @param lock Lock held by every thread changing the registry.
+   * @param afterTick Called with the departures removed by each tick while the lock is still
+   *     held, i.e. to publish a snapshot of the registry.
+   * @throws IllegalArgumentException if the interval is not positive.
+   * @throws IllegalStateException if the wheel is already ticking.
+   */
+  void startTicking(long intervalMillis, Lock lock, Consumer<TrainDeparture[]> afterTick)
+      throws IllegalArgumentException, IllegalStateException {
+    if (intervalMillis <= 0) {
+      throw new IllegalArgumentException("Tick interval must be positive");
+    }
+    if (ticker != null) {
+      throw new IllegalStateException("Wheel is already ticking");
+    }
+    ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "expiry-wheel");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ticker.scheduleAtFixedRate(() -> {
+      if (lock.tryLock()) {
+        try {
+          afterTick.accept(advance());
+        } finally {
+          lock.unlock();
+        }
+      }
+    }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops ticking, waiting for a tick in progress to finish, and stops listening to the registry.
+   * Departures are no longer removed by the wheel.
+   */
+  void close() {
+    if (ticker != null) {
+      ticker.shutdown();
+      try {
+        ticker.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    registry.removeListener(this);
+  }
+
+  @Override
+  public void departureAdded(long version, TrainDeparture departure) {
+    slotOf(departure).add(departure);
+  }
+
+  @Override
+  public void departureRemoved(long version, TrainDeparture departure) {
+    // Departures removed by the wheel are already out of their slot, removing them is a no-op.
+    slotOf(departure).remove(departure);
+    fromPreviousDay.remove(departure);
+  }
+
+  @Override
+  public void delayChanged(long version, TrainDeparture departure, int previousDelayMins) {
+    slotOf(departure.getDepartureTimeInMinutes() + previousDelayMins - dayOffsetOf(departure))
+        .remove(departure);
+    slotOf(departure).add(departure);
+  }
+
+  @Override
+  public void departureUpdated(long version, TrainDeparture departure, TrainDeparture previous) {
+    delayChanged(version, departure, previous.getDelayInMinutes());
+  }
+
+  /**
+   * Moves the wheel forward to the given minute, removing the departures leaving before it.
+   *
+   * @param timeMins The minute to move to, not before the current minute.
+   * @return The removed departures ordered by actual departure time.
+   */
+  private TrainDeparture[] advanceTo(int timeMins) {
+    ArrayList<TrainDeparture> expired = new ArrayList<>(due);
+    due.clear();
+    while (currentMinute < timeMins) {
+      LinkedHashSet<TrainDeparture> slot = minuteSlots.get(currentMinute % 60);
+      expired.addAll(slot);
+      slot.clear();
+      currentMinute++;
+      if (currentMinute % 60 == 0 && currentMinute < MINUTES_PER_DAY) {
+        LinkedHashSet<TrainDeparture> hour = hourSlots.get(currentMinute / 60);
+        for (TrainDeparture departure : hour) {
+          minuteSlots.get(minuteOf(departure) % 60).add(departure);
+        }
+        hour.clear();
+      }
+    }
+    // Only departures that were due are out of order, and a stable sort keeps the rest as is.
+    expired.sort(Comparator.comparingInt(this::minuteOf));
+    for (TrainDeparture departure : expired) {
+      registry.removeDeparture(departure.getTrainNumber());
+    }
+    return expired.toArray(new TrainDeparture[0]);
+  }
+
+  /**
+   * Starts the wheel over at 00:00 of the next day, once every departure of the day has been
+   * expired. Departures delayed past midnight are filed again as departures of the new day.
+   */
+  private void rollOver() {
+    day = day.plusDays(1);
+    currentMinute = 0;
+    // Departures kept aside from the day before have all left by now.
+    fromPreviousDay.clear();
+    fromPreviousDay.addAll(afterMidnight);
+    afterMidnight.clear();
+    for (TrainDeparture departure : fromPreviousDay) {
+      slotOf(departure).add(departure);
+    }
+  }
+
+  /**
+   * Gets the minute of the day the wheel is at that a departure leaves in.
+   *
+   * @param departure The departure.
+   * @return Actual departure time in minutes into the day of the wheel.
+   */
+  private int minuteOf(TrainDeparture departure) {
+    return departure.getDepartureTimeIncDelayInMinutes() - dayOffsetOf(departure);
+  }
+
+  /**
+   * Gets how much earlier a departure is filed than its time in the registry.
+   *
+   * @param departure The departure.
+   * @return 24 hours in minutes for departures from the previous day, otherwise 0.
+   */
+  private int dayOffsetOf(TrainDeparture departure) {
+    return fromPreviousDay.contains(departure) ? MINUTES_PER_DAY : 0;
+  }
+
+  /**
+   * Finds the slot a departure belongs in at the current time of the wheel.
+   *
+   * @param departure The departure.
+   * @return The slot.
+   */
+  private LinkedHashSet<TrainDeparture> slotOf(TrainDeparture departure) {
+    return slotOf(minuteOf(departure));
+  }
+
+  /**
+   * Finds the slot departures leaving at the given minute belong in at the current time of the
+   * wheel.
+   *
+   * @param minute Actual departure time in minutes into the day.
+   * @return The slot.
+   */
+  private LinkedHashSet<TrainDeparture> slotOf(int minute) {
+    if (minute < currentMinute) {
+      return due;
+    } else if (minute >= MINUTES_PER_DAY) {
+      return afterMidnight;
+    } else if (minute / 60 == currentMinute / 60) {
+      return minuteSlots.get(minute % 60);
+    }
+    return hourSlots.get(minute / 60);
+  }
+}
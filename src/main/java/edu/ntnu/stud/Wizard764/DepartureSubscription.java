@@ -0,0 +1,206 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A subscriber's queue of DepartureEvents from a TrainDepartureRegistry, made with
+ * TrainDepartureRegistry.subscribe(int, OverflowPolicy).
+ * The queue is a bounded ring buffer without locks, filled by the thread changing the registry
+ * and emptied by one subscriber thread. Offering an event never waits, so a slow subscriber never
+ * holds up the registry. When the queue is full, the overflow policy decides what is given up.
+ * Subscribers can tell events were lost by getNoDropped(), and should then resynchronize, i.e.
+ * from a RegistrySnapshot.
+ */
+public class DepartureSubscription implements AutoCloseable {
+  /**
+   * What to do with an event offered to a full queue.
+   */
+  public enum OverflowPolicy {
+    /** Drop the new event, keeping the events already queued. */
+    DROP_NEWEST,
+    /** Drop the oldest queued event to make room for the new one. */
+    DROP_OLDEST,
+    /** Drop the new event and close the subscription. */
+    CLOSE
+  }
+
+  /**
+   * Time in nanoseconds a waiting poll sleeps between looks at the queue.
+   */
+  private static final long POLL_PAUSE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /**
+   * The publisher delivering events to the subscription.
+   */
+  private final DepartureEventPublisher publisher;
+  /**
+   * The ring buffer. Event number i is kept at i % capacity.
+   */
+  private final AtomicReferenceArray<DepartureEvent> slots;
+  /**
+   * Number of slots.
+   */
+  private final int capacity;
+  /**
+   * Policy for full queues.
+   */
+  private final OverflowPolicy policy;
+  /**
+   * Number of the oldest event queued. Moved by the subscriber taking an event, and by the
+   * publisher dropping the oldest event, so it is only ever moved by compare and set.
+   */
+  private final AtomicLong head;
+  /**
+   * Number the next event offered gets. Only moved by the publisher.
+   */
+  private final AtomicLong tail;
+  /**
+   * Number of events dropped.
+   */
+  private final AtomicLong noDropped;
+  /**
+   * Whether the subscription is closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Constructs an open subscription with an empty queue.
+   *
+   * @param publisher The publisher delivering events.
+   * @param capacity Highest number of events queued.
+   * @param policy Policy for full queues.
+   * @throws IllegalArgumentException if the capacity is not positive.
+   */
+  DepartureSubscription(DepartureEventPublisher publisher, int capacity, OverflowPolicy policy)
+      throws IllegalArgumentException {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Queue capacity must be positive.");
+    }
+    this.publisher = publisher;
+    this.capacity = capacity;
+    this.policy = policy;
+    slots = new AtomicReferenceArray<>(capacity);
+    head = new AtomicLong();
+    tail = new AtomicLong();
+    noDropped = new AtomicLong();
+    closed = false;
+  }
+
+  /**
+   * Queues an event. Called by the publisher only, on the thread changing the registry.
+   *
+   * @param event The event.
+   */
+  void offer(DepartureEvent event) {
+    long t = tail.get();
+    while (t - head.get() >= capacity) {
+      if (policy != OverflowPolicy.DROP_OLDEST) {
+        noDropped.incrementAndGet();
+        if (policy == OverflowPolicy.CLOSE) {
+          close();
+        }
+        return;
+      }
+      long h = head.get();
+      if (t - h >= capacity && head.compareAndSet(h, h + 1)) {
+        noDropped.incrementAndGet();
+      }
+    }
+    slots.set((int) (t % capacity), event);
+    tail.set(t + 1); // Publishes the event to the subscriber.
+  }
+
+  /**
+   * Takes the oldest queued event without waiting.
+   *
+   * @return The event, or null if the queue is empty.
+   */
+  public DepartureEvent poll() {
+    while (true) {
+      long h = head.get();
+      if (h == tail.get()) {
+        return null;
+      }
+      DepartureEvent event = slots.get((int) (h % capacity));
+      // Fails if the publisher dropped the event meanwhile, and maybe wrote a new one in its slot.
+      if (head.compareAndSet(h, h + 1)) {
+        return event;
+      }
+    }
+  }
+
+  /**
+   * Takes the oldest queued event, waiting for one if the queue is empty.
+   *
+   * @param timeout Longest time to wait.
+   * @param unit Unit of the timeout.
+   * @return The event, or null if none was queued in time or the subscription is closed.
+   */
+  public DepartureEvent poll(long timeout, TimeUnit unit) {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    DepartureEvent event = poll();
+    while (event == null && !closed && System.nanoTime() - deadline < 0) {
+      LockSupport.parkNanos(POLL_PAUSE_NANOS);
+      event = poll();
+    }
+    return event;
+  }
+
+  /**
+   * Takes up to the given number of queued events without waiting.
+   *
+   * @param events Collection to add the events to, oldest first.
+   * @param maxEvents Highest number of events to take.
+   * @return Number of events taken.
+   */
+  public int drainTo(Collection<? super DepartureEvent> events, int maxEvents) {
+    int noTaken = 0;
+    DepartureEvent event;
+    while (noTaken < maxEvents && (event = poll()) != null) {
+      events.add(event);
+      noTaken++;
+    }
+    return noTaken;
+  }
+
+  /**
+   * Gets the number of events queued.
+   *
+   * @return Number of events queued.
+   */
+  public int size() {
+    return (int) Long.max(tail.get() - head.get(), 0);
+  }
+
+  /**
+   * Gets the number of events dropped because the queue was full.
+   *
+   * @return Number of events dropped.
+   */
+  public long getNoDropped() {
+    return noDropped.get();
+  }
+
+  /**
+   * Checks whether the subscription is closed. A closed subscription gets no more events, but
+   * events already queued can still be taken.
+   *
+   * @return true if closed.
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Closes the subscription. Safe to call from any thread, and more than once.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    publisher.unsubscribe(this);
+  }
+}
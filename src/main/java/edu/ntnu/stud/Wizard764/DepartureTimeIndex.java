@@ -0,0 +1,198 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps a set of departures ordered by a time given in minutes into the day. The index does not
+ * read the time from the departures itself, the caller decides which time to file a departure
+ * under (i.e. scheduled departure time or actual departure time including delay). This means a
+ * departure must be removed with the same time it was added with, so if the time changes the
+ * departure has to be removed before the change and added again afterwards.
+ * Departures filed under the same minute are kept in the order they were added.
+ */
+class DepartureTimeIndex implements Iterable<TrainDeparture> {
+  /**
+   * Departures grouped by the minute they are filed under. Only minutes with at least one
+   * departure are present.
+   */
+  private TreeMap<Integer, ArrayList<TrainDeparture>> departuresByMinute;
+  /**
+   * Total number of departures in the index.
+   */
+  private int size;
+
+  /**
+   * Constructs an empty index.
+   */
+  DepartureTimeIndex() {
+    departuresByMinute = new TreeMap<>();
+    size = 0;
+  }
+
+  /**
+   * Files a departure under the given minute.
+   *
+   * @param minute Time in minutes to file the departure under.
+   * @param departure The departure to add.
+   */
+  void add(int minute, TrainDeparture departure) {
+    departuresByMinute.computeIfAbsent(minute, m -> new ArrayList<>(1)).add(departure);
+    size++;
+  }
+
+  /**
+   * Removes a departure filed under the given minute.
+   *
+   * @param minute Time in minutes the departure was filed under when it was added.
+   * @param departure The departure to remove.
+   * @return Returns true if the departure was found and removed.
+   */
+  boolean remove(int minute, TrainDeparture departure) {
+    ArrayList<TrainDeparture> bucket = departuresByMinute.get(minute);
+    if (bucket == null) {
+      return false;
+    }
+    for (int i = 0; i < bucket.size(); i++) {
+      if (bucket.get(i) == departure) {
+        bucket.remove(i);
+        if (bucket.isEmpty()) {
+          departuresByMinute.remove(minute);
+        }
+        size--;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets number of departures in the index.
+   *
+   * @return Number of departures in the index.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Checks whether the index is empty.
+   *
+   * @return true if there are no departures in the index, false otherwise.
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Gets up to limit departures filed at or after the given minute, in time order.
+   * Finding the starting point is logarithmic in the number of distinct minutes.
+   *
+   * @param minute The earliest minute to include.
+   * @param limit Maximum number of departures to return.
+   * @return Departures in time order.
+   */
+  ArrayList<TrainDeparture> getFrom(int minute, int limit) {
+    ArrayList<TrainDeparture> result = new ArrayList<>(Integer.min(limit, size));
+    for (ArrayList<TrainDeparture> bucket : departuresByMinute.tailMap(minute, true).values()) {
+      for (TrainDeparture departure : bucket) {
+        if (result.size() >= limit) {
+          return result;
+        }
+        result.add(departure);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the departures filed from one minute up to another, in time order.
+   *
+   * @param fromMinute The earliest minute to include.
+   * @param toMinute The first minute not to include.
+   * @return Departures in time order.
+   */
+  ArrayList<TrainDeparture> getBetween(int fromMinute, int toMinute) {
+    ArrayList<TrainDeparture> result = new ArrayList<>();
+    if (fromMinute < toMinute) {
+      for (ArrayList<TrainDeparture> bucket
+          : departuresByMinute.subMap(fromMinute, toMinute).values()) {
+        result.addAll(bucket);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks whether any departure is filed from one minute up to another, without collecting them.
+   *
+   * @param fromMinute The earliest minute to include.
+   * @param toMinute The first minute not to include.
+   * @return true if at least one departure is filed in the range.
+   */
+  boolean hasBetween(int fromMinute, int toMinute) {
+    Integer first = departuresByMinute.ceilingKey(fromMinute);
+    return first != null && first < toMinute;
+  }
+
+  /**
+   * Removes every departure filed before the given minute. The cutoff is found by binary search
+   * in the underlying tree, and the departures are copied out of the expired buckets. The tree
+   * then sheds whichever part is smaller: if fewer minutes expire than remain, the expired
+   * entries are removed one by one in O(k log n), otherwise the remaining entries are copied into
+   * a new tree in O(n - k) and the old one is dropped, so removing most of the day is linear.
+   *
+   * @param minute The first minute to keep.
+   * @return The removed departures in time order.
+   */
+  ArrayList<TrainDeparture> removeBefore(int minute) {
+    SortedMap<Integer, ArrayList<TrainDeparture>> expired = departuresByMinute.headMap(minute);
+    ArrayList<TrainDeparture> result = new ArrayList<>();
+    int noExpiredMinutes = 0;
+    for (ArrayList<TrainDeparture> bucket : expired.values()) {
+      result.addAll(bucket);
+      noExpiredMinutes++;
+    }
+    if (noExpiredMinutes > departuresByMinute.size() - noExpiredMinutes) {
+      departuresByMinute = new TreeMap<>(departuresByMinute.tailMap(minute));
+    } else {
+      expired.clear();
+    }
+    size -= result.size();
+    return result;
+  }
+
+  /**
+   * Iterates over all departures in the index in time order.
+   *
+   * @return Iterator over the departures.
+   */
+  @Override
+  public Iterator<TrainDeparture> iterator() {
+    return new Iterator<>() {
+      private final Iterator<ArrayList<TrainDeparture>> buckets =
+          departuresByMinute.values().iterator();
+      private Iterator<TrainDeparture> current = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && buckets.hasNext()) {
+          current = buckets.next().iterator();
+        }
+        return current.hasNext();
+      }
+
+      @Override
+      public TrainDeparture next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+    };
+  }
+}
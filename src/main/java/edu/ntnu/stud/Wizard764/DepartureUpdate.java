@@ -0,0 +1,167 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+
+/**
+ * A change to one departure, to be applied together with others by
+ * TrainDepartureRegistry.applyUpdates(List). Made with one of the static factory methods, which
+ * check the new value, so a batch only fails for departures that don't exist.
+ */
+public class DepartureUpdate {
+  /**
+   * What an update changes.
+   */
+  public enum Type {
+    DELAY,
+    TRACK,
+    COMMENT
+  }
+
+  /**
+   * What the update changes.
+   */
+  private final Type type;
+  /**
+   * Train number of the departure to change.
+   */
+  private final String trainNumber;
+  /**
+   * The new delay, or null if the delay isn't changed.
+   */
+  private final LocalTime delay;
+  /**
+   * The new track, -1 to unset it.
+   */
+  private final short track;
+  /**
+   * The new comment, or null if the comment isn't changed.
+   */
+  private final String comment;
+
+  /**
+   * Constructs an update. Use the static factory methods.
+   *
+   * @param type What the update changes.
+   * @param trainNumber Train number of the departure to change.
+   * @param delay The new delay.
+   * @param track The new track.
+   * @param comment The new comment.
+   */
+  private DepartureUpdate(Type type, String trainNumber, LocalTime delay, short track,
+                          String comment) {
+    if (trainNumber == null) {
+      throw new IllegalArgumentException("Update must have a train number.");
+    }
+    this.type = type;
+    this.trainNumber = trainNumber;
+    this.delay = delay;
+    this.track = track;
+    this.comment = comment;
+  }
+
+  /**
+   * Makes an update setting the delay of a departure.
+   *
+   * @param trainNumber Train number of the departure.
+   * @param delay The new delay.
+   * @return The update.
+   * @throws IllegalArgumentException if the train number or delay is null.
+   */
+  public static DepartureUpdate delay(String trainNumber, LocalTime delay)
+      throws IllegalArgumentException {
+    if (delay == null) {
+      throw new IllegalArgumentException("Delay may not be null.");
+    }
+    return new DepartureUpdate(Type.DELAY, trainNumber, delay, (short) -1, null);
+  }
+
+  /**
+   * Makes an update setting or unsetting the track of a departure.
+   *
+   * @param trainNumber Train number of the departure.
+   * @param track The new track, -1 to unset it.
+   * @return The update.
+   * @throws IllegalArgumentException if the train number is null or the track is not a positive
+   *     number or -1.
+   */
+  public static DepartureUpdate track(String trainNumber, short track)
+      throws IllegalArgumentException {
+    TrainDeparture.checkTrack(track); // throws IllegalArgumentException
+    return new DepartureUpdate(Type.TRACK, trainNumber, null, track, null);
+  }
+
+  /**
+   * Makes an update setting the comment of a departure.
+   *
+   * @param trainNumber Train number of the departure.
+   * @param comment The new comment.
+   * @return The update.
+   * @throws IllegalArgumentException if the train number or comment is null.
+   */
+  public static DepartureUpdate comment(String trainNumber, String comment)
+      throws IllegalArgumentException {
+    if (comment == null) {
+      throw new IllegalArgumentException("Comment may not be null.");
+    }
+    return new DepartureUpdate(Type.COMMENT, trainNumber, null, (short) -1, comment);
+  }
+
+  /**
+   * Gets what the update changes.
+   *
+   * @return The type of update.
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Gets the train number of the departure to change.
+   *
+   * @return The train number.
+   */
+  public String getTrainNumber() {
+    return trainNumber;
+  }
+
+  /**
+   * Gets the new delay.
+   *
+   * @return The delay, or null unless this is a delay update.
+   */
+  public LocalTime getDelay() {
+    return delay;
+  }
+
+  /**
+   * Gets the new track.
+   *
+   * @return The track, -1 if unset or unless this is a track update.
+   */
+  public short getTrack() {
+    return track;
+  }
+
+  /**
+   * Gets the new comment.
+   *
+   * @return The comment, or null unless this is a comment update.
+   */
+  public String getComment() {
+    return comment;
+  }
+
+  /**
+   * Describes the update.
+   *
+   * @return The type, train number and new value, i.e. "DELAY 123 00:15".
+   */
+  @Override
+  public String toString() {
+    return type + " " + trainNumber + " " + switch (type) {
+      case DELAY -> delay;
+      case TRACK -> track;
+      case COMMENT -> "\"" + comment + "\"";
+    };
+  }
+}
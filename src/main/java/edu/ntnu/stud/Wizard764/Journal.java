@@ -0,0 +1,724 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the changes made to a TrainDepartureRegistry, so that changes made since
+ * the registry was last saved with SnapshotFile survive a crash.
+ * The journal listens to the registry, and each change is appended to an in-memory buffer, which
+ * keeps changes fast. A background thread writes the buffer to disk and forces it to the storage
+ * device once every commit window, so many changes share one fsync (group commit). A crash loses
+ * at most the changes of the last commit window, and sync() may be called to make everything so
+ * far durable at once.
+ * The journal is kept as a series of segment files in a directory, named after the registry
+ * version of the first change in them. Each change is a record of its length, a CRC-32, its type,
+ * the registry version after the change and the fields needed to repeat it. On startup, replay()
+ * repeats the changes newer than the restored snapshot.
+ */
+public class Journal implements RegistryListener, Closeable {
+  /**
+   * Start of the file name of every segment.
+   */
+  static final String SEGMENT_PREFIX = "journal-";
+  /**
+   * End of the file name of every segment.
+   */
+  static final String SEGMENT_SUFFIX = ".log";
+  /**
+   * Size a segment may grow to before a new one is started.
+   */
+  private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+  /**
+   * Largest record body accepted when replaying, anything larger is taken to be damage.
+   */
+  private static final int MAX_RECORD_SIZE = 1024 * 1024;
+  /**
+   * Record type of a departure added.
+   */
+  private static final byte ADDED = 1;
+  /**
+   * Record type of a departure removed.
+   */
+  private static final byte REMOVED = 2;
+  /**
+   * Record type of a delay set.
+   */
+  private static final byte DELAY = 3;
+  /**
+   * Record type of a track set or unset.
+   */
+  private static final byte TRACK = 4;
+  /**
+   * Record type of a comment set.
+   */
+  private static final byte COMMENT = 5;
+  /**
+   * Record type of a departure changed by a batch of updates, holding its delay, track and comment.
+   */
+  private static final byte UPDATED = 6;
+  /**
+   * Record type of comments shown or hidden, with an empty train number.
+   */
+  private static final byte COMMENT_STATE = 7;
+
+  /**
+   * The registry journaled.
+   */
+  private final TrainDepartureRegistry registry;
+  /**
+   * Directory the segments are kept in.
+   */
+  private final Path directory;
+  /**
+   * Longest time in milliseconds a change is kept in memory before it is written and forced.
+   */
+  private final long commitWindowMillis;
+  /**
+   * Guards the pending records, and is waited on by the flusher thread between commits.
+   */
+  private final Object lock;
+  /**
+   * Records not yet written to disk. Guarded by lock.
+   */
+  private ByteArrayOutputStream pending;
+  /**
+   * Registry version of the first pending record. Guarded by lock.
+   */
+  private long pendingFirstVersion;
+  /**
+   * Registry version of the last record appended. Guarded by lock.
+   */
+  private long appendedVersion;
+  /**
+   * Body of the record being appended. Only used by the thread changing the registry.
+   */
+  private final ByteArrayOutputStream record;
+  /**
+   * Writes to record.
+   */
+  private final DataOutputStream recordOut;
+  /**
+   * Computes the checksum of each record.
+   */
+  private final CRC32 crc;
+  /**
+   * Guards the segment being written, so only one thread writes and forces at a time.
+   */
+  private final Object flushLock;
+  /**
+   * The segment records are written to, or null until the first write. Guarded by flushLock.
+   */
+  private FileChannel segment;
+  /**
+   * Whether the next write should start a new segment. Guarded by flushLock.
+   */
+  private boolean rollRequested;
+  /**
+   * Registry version of the last record forced to disk.
+   */
+  private volatile long durableVersion;
+  /**
+   * Number of times the segments have been forced to disk. Written with flushLock held.
+   */
+  private volatile int noForces;
+  /**
+   * First failure of the flusher thread, reported by sync() and close(). Guarded by lock.
+   */
+  private IOException failure;
+  /**
+   * Whether close() has been called. Guarded by lock.
+   */
+  private boolean closed;
+  /**
+   * Thread writing and forcing the pending records once every commit window.
+   */
+  private final Thread flusher;
+
+  /**
+   * Constructs a journal and starts its flusher thread. Use open() to create a journal.
+   *
+   * @param registry The registry journaled.
+   * @param directory Directory the segments are kept in.
+   * @param commitWindowMillis Longest time a change is kept in memory.
+   */
+  private Journal(TrainDepartureRegistry registry, Path directory, long commitWindowMillis) {
+    final long version = registry.getVersion();
+    this.registry = registry;
+    this.directory = directory;
+    this.commitWindowMillis = commitWindowMillis;
+    lock = new Object();
+    pending = new ByteArrayOutputStream(64 * 1024);
+    appendedVersion = version;
+    record = new ByteArrayOutputStream(256);
+    recordOut = new DataOutputStream(record);
+    crc = new CRC32();
+    flushLock = new Object();
+    segment = null;
+    rollRequested = true;
+    durableVersion = version;
+    noForces = 0;
+    failure = null;
+    closed = false;
+    flusher = new Thread(this::runFlusher, "journal-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Starts journaling every change to a registry. Changes are written to a new segment, so
+   * replay() should be called first to bring the registry up to date with the existing ones.
+   *
+   * @param directory Directory to keep the segments in, created if missing.
+   * @param registry The registry to journal.
+   * @param commitWindowMillis Longest time in milliseconds a change is kept in memory before it
+   *     is forced to disk, i.e. the most a crash can lose.
+   * @return The journal, which must be closed when the registry is no longer changed.
+   * @throws IOException if the directory can't be created.
+   * @throws IllegalArgumentException if the commit window is not positive.
+   */
+  static Journal open(Path directory, TrainDepartureRegistry registry, long commitWindowMillis)
+      throws IOException, IllegalArgumentException {
+    if (commitWindowMillis <= 0) {
+      throw new IllegalArgumentException("Commit window must be positive");
+    }
+    Files.createDirectories(directory);
+    Journal journal = new Journal(registry, directory, commitWindowMillis);
+    registry.addListener(journal);
+    return journal;
+  }
+
+  /**
+   * Repeats the journaled changes that are newer than the registry, i.e. those made after the
+   * snapshot it was restored from. A change cut short at the end of the last segment, as left by
+   * a crash while writing, is cut off the file.
+   *
+   * @param directory Directory the segments are kept in.
+   * @param registry The registry to bring up to date.
+   * @return Number of changes repeated.
+   * @throws IOException if a segment can't be read, a segment other than the last is damaged, or
+   *     a change can't be repeated on the registry.
+   */
+  static int replay(Path directory, TrainDepartureRegistry registry) throws IOException {
+    ArrayList<Path> segments = listSegments(directory);
+    int noReplayed = 0;
+    for (int i = 0; i < segments.size(); i++) {
+      noReplayed += replaySegment(segments.get(i), registry, i == segments.size() - 1);
+    }
+    return noReplayed;
+  }
+
+  /**
+   * Gets the registry version of the last change forced to disk.
+   *
+   * @return The last durable version.
+   */
+  long getDurableVersion() {
+    return durableVersion;
+  }
+
+  /**
+   * Gets the number of times records have been forced to disk, each covering every change made
+   * since the one before.
+   *
+   * @return Number of forces.
+   */
+  int getNoForces() {
+    return noForces;
+  }
+
+  /**
+   * Deletes the segments holding only changes up to the given version, i.e. changes included in
+   * a snapshot saved at that version. The segment being written is finished, so it can be deleted
+   * by a later call once a snapshot includes all of it. Changes are not held up while deleting.
+   *
+   * @param version Version of the saved snapshot.
+   * @return Number of segments deleted.
+   * @throws IOException if a segment can't be deleted.
+   */
+  int deleteSegmentsThrough(long version) throws IOException {
+    synchronized (flushLock) {
+      rollRequested = true;
+      ArrayList<Path> segments = listSegments(directory);
+      int noDeleted = 0;
+      // A segment only holds changes before the first change of the next one.
+      for (int i = 0; i + 1 < segments.size(); i++) {
+        if (firstVersionOf(segments.get(i + 1)) <= version + 1) {
+          Files.delete(segments.get(i));
+          noDeleted++;
+        }
+      }
+      return noDeleted;
+    }
+  }
+
+  /**
+   * Writes and forces all changes so far to disk, without waiting for the commit window.
+   *
+   * @throws IOException if the journal can't be written, now or by the flusher thread earlier.
+   */
+  void sync() throws IOException {
+    synchronized (lock) {
+      if (failure != null) {
+        throw failure;
+      }
+    }
+    flush();
+  }
+
+  /**
+   * Stops journaling the registry, writes and forces all changes to disk, and stops the flusher
+   * thread. Must be called by the thread changing the registry.
+   *
+   * @throws IOException if the journal can't be written.
+   */
+  @Override
+  public void close() throws IOException {
+    registry.removeListener(this);
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      lock.notifyAll();
+    }
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      sync();
+    } finally {
+      synchronized (flushLock) {
+        if (segment != null) {
+          segment.close();
+          segment = null;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void departureAdded(long version, TrainDeparture departure) {
+    try {
+      startRecord(ADDED, version, departure);
+      recordOut.writeShort(departure.getDepartureTimeInMinutes());
+      writeString(departure.getLine());
+      writeString(departure.getDestination());
+      recordOut.writeShort(departure.getDelayInMinutes());
+      recordOut.writeShort(departure.getTrack());
+      writeString(departure.getComment());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // Writing to memory never fails.
+    }
+    append(version);
+  }
+
+  @Override
+  public void departureRemoved(long version, TrainDeparture departure) {
+    startRecord(REMOVED, version, departure);
+    append(version);
+  }
+
+  @Override
+  public void delayChanged(long version, TrainDeparture departure, int previousDelayMins) {
+    try {
+      startRecord(DELAY, version, departure);
+      recordOut.writeShort(departure.getDelayInMinutes());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // Writing to memory never fails.
+    }
+    append(version);
+  }
+
+  @Override
+  public void trackChanged(long version, TrainDeparture departure, short previousTrack) {
+    try {
+      startRecord(TRACK, version, departure);
+      recordOut.writeShort(departure.getTrack());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // Writing to memory never fails.
+    }
+    append(version);
+  }
+
+  @Override
+  public void commentChanged(long version, TrainDeparture departure, String previousComment) {
+    startRecord(COMMENT, version, departure);
+    writeString(departure.getComment());
+    append(version);
+  }
+
+  @Override
+  public void departureUpdated(long version, TrainDeparture departure, TrainDeparture previous) {
+    try {
+      startRecord(UPDATED, version, departure);
+      recordOut.writeShort(departure.getDelayInMinutes());
+      recordOut.writeShort(departure.getTrack());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // Writing to memory never fails.
+    }
+    writeString(departure.getComment());
+    append(version);
+  }
+
+  @Override
+  public void commentStateChanged(long version, boolean state) {
+    try {
+      startRecord(COMMENT_STATE, version, "");
+      recordOut.writeBoolean(state);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // Writing to memory never fails.
+    }
+    append(version);
+  }
+
+  /**
+   * Starts a new record body with the fields every record has.
+   *
+   * @param type Type of the record.
+   * @param version Registry version after the change.
+   * @param departure The departure changed.
+   */
+  private void startRecord(byte type, long version, TrainDeparture departure) {
+    startRecord(type, version, departure.getTrainNumber());
+  }
+
+  /**
+   * Starts a new record body with the fields every record has.
+   *
+   * @param type Type of the record.
+   * @param version Registry version after the change.
+   * @param trainNumber Train number of the departure changed, empty if none.
+   */
+  private void startRecord(byte type, long version, String trainNumber) {
+    record.reset();
+    try {
+      recordOut.writeByte(type);
+      recordOut.writeLong(version);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // Writing to memory never fails.
+    }
+    writeString(trainNumber);
+  }
+
+  /**
+   * Writes a string to the record body as its length in bytes followed by its UTF-8 bytes.
+   *
+   * @param s The string to write.
+   */
+  private void writeString(String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    try {
+      recordOut.writeInt(bytes.length);
+      recordOut.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // Writing to memory never fails.
+    }
+  }
+
+  /**
+   * Adds the record body to the pending records, preceded by its length and checksum.
+   *
+   * @param version Registry version after the change.
+   */
+  private void append(long version) {
+    byte[] body = record.toByteArray();
+    crc.reset();
+    crc.update(body);
+    synchronized (lock) {
+      if (pending.size() == 0) {
+        pendingFirstVersion = version;
+      }
+      writeInt(pending, body.length);
+      writeInt(pending, (int) crc.getValue());
+      pending.write(body, 0, body.length);
+      appendedVersion = version;
+    }
+  }
+
+  /**
+   * Writes the pending records to the current segment and forces them to disk.
+   *
+   * @throws IOException if the segment can't be written.
+   */
+  private void flush() throws IOException {
+    synchronized (flushLock) {
+      byte[] bytes;
+      long firstVersion;
+      long lastVersion;
+      synchronized (lock) {
+        if (pending.size() == 0) {
+          return;
+        }
+        bytes = pending.toByteArray();
+        pending.reset();
+        firstVersion = pendingFirstVersion;
+        lastVersion = appendedVersion;
+      }
+      if (segment == null || rollRequested || segment.size() >= SEGMENT_SIZE) {
+        startSegment(firstVersion);
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (buffer.hasRemaining()) {
+        segment.write(buffer);
+      }
+      segment.force(false);
+      noForces++;
+      durableVersion = lastVersion;
+    }
+  }
+
+  /**
+   * Closes the current segment and starts a new one. flushLock must be held.
+   *
+   * @param firstVersion Registry version of the first record written to the new segment.
+   * @throws IOException if the segment can't be created.
+   */
+  private void startSegment(long firstVersion) throws IOException {
+    if (segment != null) {
+      segment.close();
+    }
+    segment = FileChannel.open(directory.resolve(segmentName(firstVersion)),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    rollRequested = false;
+    SnapshotFile.forceDirectory(directory); // Make the new file itself durable.
+  }
+
+  /**
+   * Body of the flusher thread. Writes and forces the pending records once every commit window
+   * until the journal is closed.
+   */
+  private void runFlusher() {
+    while (true) {
+      synchronized (lock) {
+        if (!closed) {
+          try {
+            lock.wait(commitWindowMillis);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        if (closed || failure != null) {
+          return;
+        }
+      }
+      try {
+        flush();
+      } catch (IOException e) {
+        synchronized (lock) {
+          failure = e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the file name of a segment.
+   *
+   * @param firstVersion Registry version of the first record in the segment.
+   * @return The file name, padded so segments sort by version.
+   */
+  static String segmentName(long firstVersion) {
+    return String.format("%s%019d%s", SEGMENT_PREFIX, firstVersion, SEGMENT_SUFFIX);
+  }
+
+  /**
+   * Gets the registry version of the first record in a segment from its file name.
+   *
+   * @param segment The segment.
+   * @return Registry version of the first record.
+   */
+  static long firstVersionOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+        name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * Lists the segments in a directory.
+   *
+   * @param directory The directory.
+   * @return The segments, oldest first. Empty if the directory doesn't exist.
+   * @throws IOException if the directory can't be read.
+   */
+  static ArrayList<Path> listSegments(Path directory) throws IOException {
+    ArrayList<Path> segments = new ArrayList<>();
+    if (!Files.isDirectory(directory)) {
+      return segments;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+        SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      files.forEach(segments::add);
+    }
+    segments.sort(null);
+    return segments;
+  }
+
+  /**
+   * Repeats the changes in one segment that are newer than the registry.
+   *
+   * @param file The segment.
+   * @param registry The registry to bring up to date.
+   * @param last Whether this is the last segment, where a damaged end is cut off.
+   * @return Number of changes repeated.
+   * @throws IOException if the segment can't be read, is damaged and not the last, or a change
+   *     can't be repeated on the registry.
+   */
+  private static int replaySegment(Path file, TrainDepartureRegistry registry, boolean last)
+      throws IOException {
+    int noReplayed = 0;
+    long validLength = 0;
+    boolean damaged = false;
+    CRC32 crc = new CRC32();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        Files.newInputStream(file), 64 * 1024))) {
+      while (true) {
+        byte[] body;
+        try {
+          int length = in.readInt();
+          int checksum = in.readInt();
+          if (length <= 0 || length > MAX_RECORD_SIZE) {
+            damaged = true;
+            break;
+          }
+          body = new byte[length];
+          in.readFully(body);
+          crc.reset();
+          crc.update(body);
+          if ((int) crc.getValue() != checksum) {
+            damaged = true;
+            break;
+          }
+        } catch (EOFException e) {
+          damaged = validLength < Files.size(file);
+          break;
+        }
+        if (applyRecord(body, registry)) {
+          noReplayed++;
+        }
+        validLength += 8 + body.length;
+      }
+    }
+    if (damaged && !last) {
+      throw new IOException("Journal segment is damaged: " + file);
+    }
+    if (last && validLength == 0) {
+      // Nothing but a damaged record, and the next segment may be given the same name.
+      Files.delete(file);
+    } else if (damaged) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.truncate(validLength);
+        channel.force(true);
+      }
+    }
+    return noReplayed;
+  }
+
+  /**
+   * Repeats the change in a record if it is newer than the registry.
+   *
+   * @param body The record body.
+   * @param registry The registry to change.
+   * @return true if the change was repeated, false if the registry already had it.
+   * @throws IOException if the record is malformed or can't be repeated on the registry.
+   */
+  private static boolean applyRecord(byte[] body, TrainDepartureRegistry registry)
+      throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+    byte type = in.readByte();
+    long version = in.readLong();
+    if (version <= registry.getVersion()) {
+      return false;
+    }
+    String trainNumber = readString(in);
+    try {
+      switch (type) {
+        case ADDED -> {
+          int departureTimeMins = in.readShort();
+          String line = readString(in);
+          String destination = readString(in);
+          int delayMins = in.readShort();
+          short track = in.readShort();
+          String comment = readString(in);
+          registry.addDeparture(TrainDeparture.restore(departureTimeMins, line, trainNumber,
+              destination, delayMins, track, comment));
+        }
+        case REMOVED -> registry.removeDeparture(trainNumber);
+        case DELAY -> {
+          int delayMins = in.readShort();
+          registry.setDelay(trainNumber, LocalTime.of(delayMins / 60, delayMins % 60));
+        }
+        case TRACK -> registry.setTrack(trainNumber, in.readShort());
+        case COMMENT -> registry.setComment(trainNumber, readString(in));
+        case COMMENT_STATE -> registry.setCommentState(in.readBoolean());
+        case UPDATED -> {
+          int delayMins = in.readShort();
+          BatchUpdateReport report = registry.applyUpdates(List.of(
+              DepartureUpdate.delay(trainNumber, LocalTime.of(delayMins / 60, delayMins % 60)),
+              DepartureUpdate.track(trainNumber, in.readShort()),
+              DepartureUpdate.comment(trainNumber, readString(in))));
+          if (report.getNoApplied() < report.getNoUpdates()) {
+            throw new IllegalArgumentException(report.getError(0));
+          }
+        }
+        default -> throw new IOException("Unknown journal record type " + type);
+      }
+      registry.restoreVersion(version);
+    } catch (IllegalArgumentException | DateTimeException e) {
+      throw new IOException("Journal does not match the registry at version " + version
+          + ": " + e.getMessage(), e);
+    }
+    return true;
+  }
+
+  /**
+   * Reads a string written by writeString(String).
+   *
+   * @param in The record body.
+   * @return The string.
+   * @throws IOException if the record is malformed.
+   */
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > MAX_RECORD_SIZE) {
+      throw new IOException("Malformed journal record");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes an int to a stream in big endian order.
+   *
+   * @param out The stream.
+   * @param value The int.
+   */
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    out.write(value >>> 24);
+    out.write(value >>> 16);
+    out.write(value >>> 8);
+    out.write(value);
+  }
+}
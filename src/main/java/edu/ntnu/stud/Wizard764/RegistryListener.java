@@ -0,0 +1,69 @@
+package edu.ntnu.stud.Wizard764;
+
+/**
+ * Receives the changes made to a TrainDepartureRegistry. Listeners are called right after each
+ * change, on the thread making it, so they should return quickly. Changes the listener isn't
+ * interested in can be left out, as every method does nothing by default.
+ * The version passed is the version of the registry after the change. Departures passed belong to
+ * the registry and must not be modified, and may change after the call returns.
+ */
+interface RegistryListener {
+  /**
+   * Called after a departure was added.
+   *
+   * @param version Version of the registry after the change.
+   * @param departure The added departure.
+   */
+  default void departureAdded(long version, TrainDeparture departure) {}
+
+  /**
+   * Called after a departure was removed, i.e. because it has left.
+   *
+   * @param version Version of the registry after the change.
+   * @param departure The removed departure.
+   */
+  default void departureRemoved(long version, TrainDeparture departure) {}
+
+  /**
+   * Called after the delay of a departure was set.
+   *
+   * @param version Version of the registry after the change.
+   * @param departure The changed departure.
+   * @param previousDelayMins The delay before the change in minutes.
+   */
+  default void delayChanged(long version, TrainDeparture departure, int previousDelayMins) {}
+
+  /**
+   * Called after the track of a departure was set or unset.
+   *
+   * @param version Version of the registry after the change.
+   * @param departure The changed departure.
+   * @param previousTrack The track before the change, -1 if none.
+   */
+  default void trackChanged(long version, TrainDeparture departure, short previousTrack) {}
+
+  /**
+   * Called after the comment of a departure was set.
+   *
+   * @param version Version of the registry after the change.
+   * @param departure The changed departure.
+   * @param previousComment The comment before the change.
+   */
+  default void commentChanged(long version, TrainDeparture departure, String previousComment) {}
+
+  /**
+   * Called once for each departure changed by a batch of updates, after the whole batch was
+   * applied. Any of the delay, track and comment may have changed, or none of them.
+   * @param version Version of the registry after the change.
+   * @param departure The changed departure.
+   * @param previous Copy of the departure from before the batch.
+   */
+  default void departureUpdated(long version, TrainDeparture departure, TrainDeparture previous) {}
+
+  /**
+   * Called after comments were shown or hidden on every departure.
+   * @param version Version of the registry after the change.
+   * @param state true if comments are shown.
+   */
+  default void commentStateChanged(long version, boolean state) {}
+}
@@ -0,0 +1,206 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of the departures in a TrainDepartureRegistry at a given version. Snapshots are
+ * published by the registry, and may be read by any number of threads without locking while the
+ * registry keeps changing. The departures in a snapshot are copies that are never changed, and
+ * must not be modified by readers either.
+ */
+public class RegistrySnapshot {
+  /**
+   * Version of the registry the snapshot was taken at.
+   */
+  private final long version;
+  /**
+   * Departures ordered by scheduled departure time.
+   */
+  private final List<TrainDeparture> departuresByTime;
+  /**
+   * Departures ordered by actual departure time, i.e. including delay.
+   */
+  private final TrainDeparture[] departuresByTimeIncDelay;
+  /**
+   * Read-only view of departuresByTimeIncDelay handed out to readers.
+   */
+  private final List<TrainDeparture> departuresByTimeIncDelayView;
+  /**
+   * Departures by train number.
+   */
+  private final Map<String, TrainDeparture> departuresByTrainNumber;
+
+  /**
+   * Constructs a snapshot. The arrays and map are taken over by the snapshot and must not be
+   * changed afterwards.
+   *
+   * @param version Version of the registry the snapshot was taken at.
+   * @param departuresByTime Departures ordered by scheduled departure time.
+   * @param departuresByTimeIncDelay Departures ordered by actual departure time.
+   * @param departuresByTrainNumber Departures by train number.
+   */
+  RegistrySnapshot(long version, TrainDeparture[] departuresByTime,
+                   TrainDeparture[] departuresByTimeIncDelay,
+                   Map<String, TrainDeparture> departuresByTrainNumber) {
+    this.version = version;
+    this.departuresByTime = Collections.unmodifiableList(Arrays.asList(departuresByTime));
+    this.departuresByTimeIncDelay = departuresByTimeIncDelay;
+    this.departuresByTimeIncDelayView =
+        Collections.unmodifiableList(Arrays.asList(departuresByTimeIncDelay));
+    this.departuresByTrainNumber = Collections.unmodifiableMap(departuresByTrainNumber);
+  }
+
+  /**
+   * Gets the version of the registry the snapshot was taken at. A later snapshot of the same
+   * registry has a higher version if anything changed in between.
+   *
+   * @return Version of the snapshot.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets number of departures in the snapshot.
+   *
+   * @return Number of departures in the snapshot.
+   */
+  public int getNoDepartures() {
+    return departuresByTrainNumber.size();
+  }
+
+  /**
+   * Gets the departures ordered by scheduled departure time.
+   *
+   * @return Read-only list of the departures.
+   */
+  List<TrainDeparture> getDeparturesByTime() {
+    return departuresByTime;
+  }
+
+  /**
+   * Gets the departures ordered by actual departure time.
+   *
+   * @return Read-only list of the departures.
+   */
+  List<TrainDeparture> getDeparturesByTimeIncDelay() {
+    return departuresByTimeIncDelayView;
+  }
+
+  /**
+   * Retrieves a train departure based on the provided train number.
+   *
+   * @param trainNumIn The train number of the departure to retrieve.
+   * @return The TrainDeparture object corresponding to the provided train number.
+   * @throws IllegalArgumentException if the departure does not exist.
+   */
+  TrainDeparture getDeparture(String trainNumIn) throws IllegalArgumentException {
+    TrainDeparture departure = departuresByTrainNumber.get(trainNumIn);
+    if (departure == null) {
+      throw new IllegalArgumentException("Departure does not exist.");
+    }
+    return departure;
+  }
+
+  /**
+   * Checks if a train departure with the given train number exists.
+   *
+   * @param trainNumIn The train number to check.
+   * @return true if the departure exists, false otherwise.
+   */
+  boolean departureExists(String trainNumIn) {
+    return departuresByTrainNumber.containsKey(trainNumIn);
+  }
+
+  /**
+   * Retrieves the departures with the provided destination, ignoring case.
+   *
+   * @param destinationIn The destination to filter departures.
+   * @return The departures with the destination, ordered by actual departure time.
+   */
+  List<TrainDeparture> getDeparturesByDestinationIgnoreCase(String destinationIn) {
+    ArrayList<TrainDeparture> result = new ArrayList<>();
+    for (TrainDeparture departure : departuresByTimeIncDelay) {
+      if (departure.getDestination().equalsIgnoreCase(destinationIn)) {
+        result.add(departure);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the next departures leaving at or after the given time, including delay. The first
+   * departure is found by binary search.
+   *
+   * @param time The time to list departures from.
+   * @param limit Maximum number of departures to return.
+   * @return Read-only list of up to limit departures ordered by actual departure time.
+   */
+  List<TrainDeparture> getNextDepartures(LocalTime time, int limit) {
+    int timeMins = time.getHour() * 60 + time.getMinute();
+    int from = firstIndexAtOrAfter(timeMins);
+    int to = (int) Long.min((long) from + limit, departuresByTimeIncDelay.length);
+    return departuresByTimeIncDelayView.subList(from, to);
+  }
+
+  /**
+   * Overrides the default toString() method to provide a formatted string
+   * representation of the complete list of departures sorted by time.
+   *
+   * @return A formatted string containing the complete list of departures.
+   */
+  @Override
+  public String toString() {
+    return BoardWriter.toString(BoardWriter.COMPLETE_BOARD_TITLE, departuresByTime);
+  }
+
+  /**
+   * Writes the complete list of departures sorted by time, the same as toString(), straight to
+   * an output without building the whole board in memory.
+   *
+   * @param out The output to write to, i.e. a Writer or a PrintStream.
+   * @throws IOException if the output fails.
+   */
+  public void writeBoard(Appendable out) throws IOException {
+    BoardWriter.write(out, BoardWriter.COMPLETE_BOARD_TITLE, departuresByTime);
+  }
+
+  /**
+   * Writes a page of the board, the next departures leaving at or after the given time
+   * including delay, straight to an output.
+   *
+   * @param out The output to write to, i.e. a Writer or a PrintStream.
+   * @param from The time to list departures from.
+   * @param limit Maximum number of departures to write.
+   * @throws IOException if the output fails.
+   */
+  public void writeBoard(Appendable out, LocalTime from, int limit) throws IOException {
+    BoardWriter.write(out, BoardWriter.nextDeparturesTitle(from), getNextDepartures(from, limit));
+  }
+
+  /**
+   * Finds the first departure in actual departure order leaving at or after the given minute.
+   *
+   * @param minute Time in minutes into the day.
+   * @return Index of the departure, or the number of departures if there is none.
+   */
+  private int firstIndexAtOrAfter(int minute) {
+    int low = 0;
+    int high = departuresByTimeIncDelay.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (departuresByTimeIncDelay[mid].getDepartureTimeIncDelayInMinutes() < minute) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,161 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Registry of departures over several days, partitioned by service day. Each day is a
+ * TrainDepartureRegistry of its own, holding the departures scheduled on that day, so train
+ * numbers only have to be unique within a day and queries about one day only touch that day.
+ * Departures delayed past midnight stay in the day they were scheduled on, and are listed after
+ * the other departures of that day. Listing the next departures from a date and time therefore
+ * looks at the day before as well, for night trains that haven't left yet.
+ * Past days are dropped as a whole with removeDaysBefore(LocalDate), at a cost that depends on the
+ * number of days rather than the number of departures.
+ * Like TrainDepartureRegistry, this registry is meant to be changed by one thread at a time.
+ */
+public class ServiceDayRegistry {
+  /**
+   * The registry of each day, by service day.
+   */
+  private final TreeMap<LocalDate, TrainDepartureRegistry> days;
+
+  /**
+   * Constructs a registry without any days.
+   */
+  ServiceDayRegistry() {
+    days = new TreeMap<>();
+  }
+
+  /**
+   * Gets the registry of a day, adding an empty one if the day has none yet.
+   *
+   * @param serviceDay The day.
+   * @return The registry of the day.
+   */
+  TrainDepartureRegistry getDay(LocalDate serviceDay) {
+    return days.computeIfAbsent(serviceDay, day -> new TrainDepartureRegistry());
+  }
+
+  /**
+   * Checks if a day has a registry.
+   *
+   * @param serviceDay The day.
+   * @return true if the day has a registry.
+   */
+  boolean hasDay(LocalDate serviceDay) {
+    return days.containsKey(serviceDay);
+  }
+
+  /**
+   * Gets the days that have a registry.
+   *
+   * @return Read-only set of the days in order.
+   */
+  NavigableSet<LocalDate> getDays() {
+    return Collections.unmodifiableNavigableSet(days.navigableKeySet());
+  }
+
+  /**
+   * Adds a departure to the registry of the day it is scheduled on.
+   *
+   * @param serviceDay The day the departure is scheduled on.
+   * @param departure The departure.
+   * @throws IllegalArgumentException if the day already has a departure with the same train
+   *     number.
+   */
+  void addDeparture(LocalDate serviceDay, TrainDeparture departure)
+      throws IllegalArgumentException {
+    getDay(serviceDay).addDeparture(departure); // throws IllegalArgumentException
+  }
+
+  /**
+   * Retrieves a departure of a day by train number.
+   *
+   * @param serviceDay The day the departure is scheduled on.
+   * @param trainNumber The train number.
+   * @return The departure.
+   * @throws IllegalArgumentException if the departure does not exist.
+   */
+  TrainDeparture getDeparture(LocalDate serviceDay, String trainNumber)
+      throws IllegalArgumentException {
+    TrainDepartureRegistry day = days.get(serviceDay);
+    if (day == null) {
+      throw new IllegalArgumentException("Departure does not exist.");
+    }
+    return day.getDeparture(trainNumber); // throws IllegalArgumentException
+  }
+
+  /**
+   * Gets number of departures stored over all days.
+   *
+   * @return Number of departures.
+   */
+  public int getNoDepartures() {
+    int noDepartures = 0;
+    for (TrainDepartureRegistry day : days.values()) {
+      noDepartures += day.getNoDepartures();
+    }
+    return noDepartures;
+  }
+
+  /**
+   * Gets the next departures leaving at or after the given date and time, including delay, over
+   * all days. Only the days that can hold one of them are looked at: the day before, for
+   * departures delayed past midnight, and the following days until enough departures are found.
+   *
+   * @param from The date and time to list departures from.
+   * @param limit Maximum number of departures to return.
+   * @return Up to limit departures ordered by actual date and time of departure.
+   * @throws IllegalArgumentException if the limit is not positive.
+   */
+  List<DatedDeparture> getNextDepartures(LocalDateTime from, int limit)
+      throws IllegalArgumentException {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limit must be at least 1.");
+    }
+    ArrayList<DatedDeparture> found = new ArrayList<>();
+    Comparator<DatedDeparture> byTime =
+        Comparator.comparing(DatedDeparture::getDepartureDateTimeIncDelay);
+    LocalDate firstDay = from.toLocalDate().minusDays(1);
+    for (Map.Entry<LocalDate, TrainDepartureRegistry> day : days.tailMap(firstDay).entrySet()) {
+      LocalDateTime dayStart = day.getKey().atStartOfDay();
+      // Every departure of this day and later days leaves at or after the start of this day.
+      if (found.size() >= limit
+          && !found.get(limit - 1).getDepartureDateTimeIncDelay().isAfter(dayStart)) {
+        break;
+      }
+      long fromMins = Long.max(ChronoUnit.MINUTES.between(dayStart, from), 0);
+      for (TrainDeparture departure
+          : day.getValue().getNextDepartures((int) Long.min(fromMins, 2 * 24 * 60), limit)) {
+        found.add(new DatedDeparture(day.getKey(), departure));
+      }
+      found.sort(byTime);
+    }
+    return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+  }
+
+  /**
+   * Removes every day before the given day, i.e. to archive or drop days that are over. The
+   * registries of the days are handed back as they are. Departures of those days delayed past
+   * midnight are removed with them.
+   *
+   * @param serviceDay The first day to keep.
+   * @return The removed days and their registries, in order.
+   */
+  SortedMap<LocalDate, TrainDepartureRegistry> removeDaysBefore(LocalDate serviceDay) {
+    SortedMap<LocalDate, TrainDepartureRegistry> past = days.headMap(serviceDay);
+    TreeMap<LocalDate, TrainDepartureRegistry> removed = new TreeMap<>(past);
+    past.clear();
+    return removed;
+  }
+}
@@ -0,0 +1,270 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Saves and restores registries in a compact binary file, written and read through memory mapped
+ * files so the contents are copied in bulk instead of parsed.
+ * The file is laid out like ColumnarDepartureStore: one column per field of a fixed width, and
+ * the strings of all departures stored once each in a StringDictionary, referred to by id. All
+ * numbers are little endian. The file starts with a header of 32 bytes:
+ * <ul>
+ *   <li>int: the magic number "TDRS"</li>
+ *   <li>int: the format version, currently 2</li>
+ *   <li>long: the version of the registry the file was saved at</li>
+ *   <li>int: number of departures, n</li>
+ *   <li>int: number of distinct strings, s</li>
+ *   <li>int: total number of characters of the strings, c</li>
+ *   <li>int: CRC-32 of everything after the header</li>
+ * </ul>
+ * followed by the columns int[n] line, int[n] train number, int[n] destination, int[n] comment,
+ * the string offsets int[s + 1], then short[n] departure time, short[n] delay, short[n] track,
+ * the characters of the strings char[c], and last byte[n] comment state, 1 if the comment is
+ * shown and 0 if not. Files of version 1 have no comment state column, and are restored with
+ * every comment shown.
+ * Departures are saved in scheduled departure time order, which is the order they are added
+ * back in when restored.
+ */
+final class SnapshotFile {
+  /**
+   * Magic number at the start of every snapshot file, "TDRS" in ASCII.
+   */
+  private static final int MAGIC = 0x54445253;
+  /**
+   * Version of the file format written.
+   */
+  private static final int FORMAT_VERSION = 2;
+  /**
+   * Size of the header in bytes.
+   */
+  private static final int HEADER_SIZE = 32;
+
+  private SnapshotFile() {}
+
+  /**
+   * Saves a snapshot to a file. The file is written under a temporary name and then renamed, so
+   * an existing file is only replaced by a complete one.
+   *
+   * @param snapshot The snapshot to save.
+   * @param file The file to save to.
+   * @throws IOException if the file can't be written.
+   */
+  static void write(RegistrySnapshot snapshot, Path file) throws IOException {
+    List<TrainDeparture> departures = snapshot.getDeparturesByTime();
+    final int n = departures.size();
+    StringDictionary strings = new StringDictionary();
+    int[] lines = new int[n];
+    int[] trainNumbers = new int[n];
+    int[] destinations = new int[n];
+    int[] comments = new int[n];
+    short[] times = new short[n];
+    short[] delays = new short[n];
+    short[] tracks = new short[n];
+    byte[] commentStates = new byte[n];
+    for (int i = 0; i < n; i++) {
+      TrainDeparture t = departures.get(i);
+      lines[i] = strings.intern(t.getLine());
+      trainNumbers[i] = strings.intern(t.getTrainNumber());
+      destinations[i] = strings.intern(t.getDestination());
+      comments[i] = strings.intern(t.getComment());
+      times[i] = (short) t.getDepartureTimeInMinutes();
+      delays[i] = (short) t.getDelayInMinutes();
+      tracks[i] = t.getTrack();
+      commentStates[i] = (byte) (t.getCommentState() ? 1 : 0);
+    }
+    final long size = HEADER_SIZE + 16L * n + 4L * (strings.size() + 1) + 6L * n
+        + 2L * strings.charCount() + n;
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      out.order(ByteOrder.LITTLE_ENDIAN);
+      out.position(HEADER_SIZE);
+      putInts(out, lines);
+      putInts(out, trainNumbers);
+      putInts(out, destinations);
+      putInts(out, comments);
+      IntBuffer offsetsOut = out.asIntBuffer();
+      CharBuffer charsOut = out.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+          .position(out.position() + 4 * (strings.size() + 1) + 6 * n).asCharBuffer();
+      strings.writeTo(offsetsOut, charsOut);
+      out.position(out.position() + 4 * (strings.size() + 1));
+      putShorts(out, times);
+      putShorts(out, delays);
+      putShorts(out, tracks);
+      out.position(out.position() + 2 * strings.charCount());
+      out.put(commentStates);
+      out.putInt(0, MAGIC);
+      out.putInt(4, FORMAT_VERSION);
+      out.putLong(8, snapshot.getVersion());
+      out.putInt(16, n);
+      out.putInt(20, strings.size());
+      out.putInt(24, strings.charCount());
+      out.putInt(28, checksum(out));
+      out.force();
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    forceDirectory(file.toAbsolutePath().getParent());
+  }
+
+  /**
+   * Forces the entries of a directory to disk, so a file created or renamed in it survives a
+   * crash. Does nothing on platforms that don't allow forcing a directory.
+   *
+   * @param directory The directory.
+   */
+  static void forceDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Not every platform allows opening a directory.
+    }
+  }
+
+  /**
+   * Restores a registry from a file.
+   *
+   * @param file The file to restore from.
+   * @return A registry holding the saved departures, at the version it was saved at.
+   * @throws IOException if the file can't be read, or is not a valid snapshot file.
+   */
+  static TrainDepartureRegistry read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new IOException("Not a snapshot file: " + file);
+      }
+      MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      in.order(ByteOrder.LITTLE_ENDIAN);
+      if (in.getInt(0) != MAGIC) {
+        throw new IOException("Not a snapshot file: " + file);
+      }
+      final int formatVersion = in.getInt(4);
+      if (formatVersion != 1 && formatVersion != FORMAT_VERSION) {
+        throw new IOException("Unsupported snapshot format version " + formatVersion);
+      }
+      final long version = in.getLong(8);
+      final int n = in.getInt(16);
+      final int noStrings = in.getInt(20);
+      final int noChars = in.getInt(24);
+      final int commentStateSize = formatVersion == 1 ? 0 : n;
+      if (n < 0 || noStrings < 0 || noChars < 0 || size != HEADER_SIZE + 22L * n
+          + 4L * (noStrings + 1) + 2L * noChars + commentStateSize) {
+        throw new IOException("Snapshot file is truncated or corrupt: " + file);
+      }
+      if (in.getInt(28) != checksum(in)) {
+        throw new IOException("Snapshot file is corrupt, checksum does not match: " + file);
+      }
+      in.position(HEADER_SIZE);
+      int[] lines = getInts(in, n);
+      int[] trainNumbers = getInts(in, n);
+      int[] destinations = getInts(in, n);
+      int[] comments = getInts(in, n);
+      int[] offsets = getInts(in, noStrings + 1);
+      short[] times = getShorts(in, n);
+      short[] delays = getShorts(in, n);
+      short[] tracks = getShorts(in, n);
+      char[] chars = new char[noChars];
+      in.asCharBuffer().get(chars);
+      in.position(in.position() + 2 * noChars);
+      byte[] commentStates = new byte[commentStateSize];
+      in.get(commentStates);
+      String[] strings = new String[noStrings];
+      for (int id = 0; id < noStrings; id++) {
+        if (offsets[id] < 0 || offsets[id] > offsets[id + 1] || offsets[id + 1] > noChars) {
+          throw new IOException("Snapshot file is corrupt, bad string offset: " + file);
+        }
+        strings[id] = new String(chars, offsets[id], offsets[id + 1] - offsets[id]);
+      }
+      TrainDepartureRegistry registry = new TrainDepartureRegistry();
+      try {
+        for (int i = 0; i < n; i++) {
+          TrainDeparture t = TrainDeparture.restore(times[i], strings[lines[i]],
+              strings[trainNumbers[i]], strings[destinations[i]], delays[i], tracks[i],
+              strings[comments[i]]);
+          t.setCommentState(commentStateSize == 0 || commentStates[i] != 0);
+          registry.addDeparture(t);
+        }
+        registry.restoreVersion(version);
+      } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+        throw new IOException("Snapshot file is corrupt: " + e.getMessage(), e);
+      }
+      return registry;
+    }
+  }
+
+  /**
+   * Computes the checksum of everything after the header.
+   *
+   * @param buffer The whole file.
+   * @return CRC-32 of the body.
+   */
+  private static int checksum(ByteBuffer buffer) {
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate().position(HEADER_SIZE).limit(buffer.capacity()));
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Puts an int column at the position of a buffer and moves past it.
+   *
+   * @param out The buffer.
+   * @param column The column.
+   */
+  private static void putInts(ByteBuffer out, int[] column) {
+    out.asIntBuffer().put(column);
+    out.position(out.position() + 4 * column.length);
+  }
+
+  /**
+   * Puts a short column at the position of a buffer and moves past it.
+   *
+   * @param out The buffer.
+   * @param column The column.
+   */
+  private static void putShorts(ByteBuffer out, short[] column) {
+    out.asShortBuffer().put(column);
+    out.position(out.position() + 2 * column.length);
+  }
+
+  /**
+   * Gets an int column at the position of a buffer and moves past it.
+   *
+   * @param in The buffer.
+   * @param length Length of the column.
+   * @return The column.
+   */
+  private static int[] getInts(ByteBuffer in, int length) {
+    int[] column = new int[length];
+    in.asIntBuffer().get(column);
+    in.position(in.position() + 4 * length);
+    return column;
+  }
+
+  /**
+   * Gets a short column at the position of a buffer and moves past it.
+   *
+   * @param in The buffer.
+   * @param length Length of the column.
+   * @return The column.
+   */
+  private static short[] getShorts(ByteBuffer in, int length) {
+    short[] column = new short[length];
+    in.asShortBuffer().get(column);
+    in.position(in.position() + 2 * length);
+    return column;
+  }
+}
@@ -0,0 +1,224 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Assigns each distinct string a small integer id, so tables of departures can store an int
+ * instead of a reference to a String object. Ids are handed out in the order strings are first
+ * added, starting at 0, and never change.
+ * The characters of all strings are stored back to back in one char array, and ids are found
+ * through an open addressing hash table of ints. A stored string therefore costs roughly two bytes
+ * per character plus twelve bytes, compared to around 50 bytes for a short String object.
+ * Strings are only created again when asked for by get(int).
+ */
+class StringDictionary {
+  /**
+   * The characters of all strings in the dictionary, in id order.
+   */
+  private char[] chars;
+  /**
+   * Start of each string in chars, indexed by id. offsets[size] is the end of the last string.
+   */
+  private int[] offsets;
+  /**
+   * Number of strings in the dictionary.
+   */
+  private int size;
+  /**
+   * Hash table of ids. Each slot holds id + 1, or 0 if the slot is empty. The length is always a
+   * power of two and at least twice the number of strings.
+   */
+  private int[] table;
+
+  /**
+   * Constructs an empty dictionary.
+   */
+  StringDictionary() {
+    chars = new char[64];
+    offsets = new int[17];
+    size = 0;
+    table = new int[32];
+  }
+
+  /**
+   * Gets the id of a string, adding it to the dictionary if it is not already present.
+   *
+   * @param s The string to look up.
+   * @return The id of the string.
+   */
+  int intern(String s) {
+    int id = find(s);
+    if (id >= 0) {
+      return id;
+    }
+    return append(s);
+  }
+
+  /**
+   * Gets the id of a string without adding it.
+   *
+   * @param s The string to look up.
+   * @return The id of the string, or -1 if it is not in the dictionary.
+   */
+  int find(String s) {
+    int mask = table.length - 1;
+    for (int i = spread(s.hashCode()) & mask; table[i] != 0; i = (i + 1) & mask) {
+      if (equalsAt(table[i] - 1, s)) {
+        return table[i] - 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the string with the given id. Creates a new String object on every call.
+   *
+   * @param id The id of the string.
+   * @return The string with the given id.
+   * @throws IndexOutOfBoundsException if there is no string with the given id.
+   */
+  String get(int id) throws IndexOutOfBoundsException {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("No string with id " + id);
+    }
+    return new String(chars, offsets[id], offsets[id + 1] - offsets[id]);
+  }
+
+  /**
+   * Gets number of strings in the dictionary.
+   *
+   * @return Number of strings in the dictionary.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Gets the total number of characters of the strings in the dictionary.
+   *
+   * @return Number of characters stored.
+   */
+  int charCount() {
+    return offsets[size];
+  }
+
+  /**
+   * Copies the dictionary to buffers, i.e. views of a file. The start of every string followed by
+   * the end of the last are put in offsetsOut, and the characters of all strings in charsOut. A
+   * string with a given id is then the characters from offset id up to offset id + 1.
+   *
+   * @param offsetsOut Buffer with room for size() + 1 ints.
+   * @param charsOut Buffer with room for charCount() chars.
+   */
+  void writeTo(IntBuffer offsetsOut, CharBuffer charsOut) {
+    offsetsOut.put(offsets, 0, size + 1);
+    charsOut.put(chars, 0, offsets[size]);
+  }
+
+  /**
+   * Estimates the heap used by the dictionary, counting array headers as 16 bytes.
+   *
+   * @return Approximate size of the dictionary in bytes.
+   */
+  long estimateMemoryBytes() {
+    return 16 + (16 + chars.length * 2L) + (16 + offsets.length * 4L) + (16 + table.length * 4L);
+  }
+
+  /**
+   * Adds a string that is not already in the dictionary.
+   *
+   * @param s The string to add.
+   * @return The id of the added string.
+   */
+  private int append(String s) {
+    int start = offsets[size];
+    if (start + s.length() > chars.length) {
+      chars = Arrays.copyOf(chars, Integer.max(chars.length * 2, start + s.length()));
+    }
+    if (size + 2 > offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+    }
+    s.getChars(0, s.length(), chars, start);
+    offsets[size + 1] = start + s.length();
+    int id = size++;
+    if (size * 2 > table.length) {
+      rehash(table.length * 2);
+    } else {
+      insert(id, s.hashCode());
+    }
+    return id;
+  }
+
+  /**
+   * Rebuilds the hash table with a new capacity.
+   *
+   * @param capacity New length of the table, must be a power of two.
+   */
+  private void rehash(int capacity) {
+    table = new int[capacity];
+    for (int id = 0; id < size; id++) {
+      insert(id, hashAt(id));
+    }
+  }
+
+  /**
+   * Puts an id in the first free slot for its hash.
+   *
+   * @param id The id to insert.
+   * @param hash Hash code of the string with that id.
+   */
+  private void insert(int id, int hash) {
+    int mask = table.length - 1;
+    int i = spread(hash) & mask;
+    while (table[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    table[i] = id + 1;
+  }
+
+  /**
+   * Computes the hash code of a stored string the same way String.hashCode() does.
+   *
+   * @param id The id of the string.
+   * @return The hash code of the string.
+   */
+  private int hashAt(int id) {
+    int hash = 0;
+    for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    return hash;
+  }
+
+  /**
+   * Compares a stored string with a String without creating a new String.
+   *
+   * @param id The id of the stored string.
+   * @param s The string to compare with.
+   * @return true if the strings are equal, false otherwise.
+   */
+  private boolean equalsAt(int id, String s) {
+    int start = offsets[id];
+    if (offsets[id + 1] - start != s.length()) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (chars[start + i] != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Mixes the high bits of a hash code into the low bits used to pick a slot.
+   *
+   * @param hash The hash code.
+   * @return The spread hash code.
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
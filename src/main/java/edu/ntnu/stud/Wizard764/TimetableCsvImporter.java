@@ -0,0 +1,317 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Imports departures in bulk from a CSV file with one departure per line and the columns
+ * time, line, train number, destination, delay, track and comment. Time and delay are written as
+ * "HH:MM". Delay, track and comment may be left empty, and the comment column may be left out.
+ * Fields containing commas or quotes are quoted with double quotes, and quotes inside them are
+ * doubled. A first line that does not start with a digit is taken to be a header and skipped.
+ * The file is read one line at a time, and times and tracks are parsed straight from the line
+ * without creating LocalTime objects. Rows that are invalid, whose train number is already taken
+ * or whose track is above the limit are reported in a CsvImportReport and skipped, while the rest
+ * are imported. Valid rows are only added to the registry once the whole file has been read, so
+ * a file that fails to read part way adds nothing.
+ */
+public class TimetableCsvImporter {
+  /**
+   * Number of columns, including the optional comment.
+   */
+  private static final int NO_COLUMNS = 7;
+
+  /**
+   * Highest track number allowed.
+   */
+  private final short noTracks;
+  /**
+   * Highest number of departures the registry may hold after the import.
+   */
+  private final int maxNoDepartures;
+  /**
+   * Fields of the row being parsed, unquoted and back to back. Reused for every row.
+   */
+  private final StringBuilder fields;
+  /**
+   * End of each field of the row being parsed in fields. The field starts where the previous
+   * field ends.
+   */
+  private final int[] fieldEnds;
+
+  /**
+   * Constructs an importer enforcing the given limits.
+   *
+   * @param noTracks Highest track number allowed.
+   * @param maxNoDepartures Highest number of departures the registry may hold after the import.
+   */
+  TimetableCsvImporter(short noTracks, int maxNoDepartures) {
+    this.noTracks = noTracks;
+    this.maxNoDepartures = maxNoDepartures;
+    fields = new StringBuilder(128);
+    fieldEnds = new int[NO_COLUMNS];
+  }
+
+  /**
+   * Imports departures from a UTF-8 encoded file.
+   *
+   * @param registry The registry to add the departures to.
+   * @param file The CSV file.
+   * @return Report of the departures imported and the rows rejected.
+   * @throws IOException if the file can't be read. Nothing is imported in that case.
+   */
+  CsvImportReport importFile(TrainDepartureRegistry registry, Path file) throws IOException {
+    try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return importFrom(registry, in);
+    }
+  }
+
+  /**
+   * Imports departures from a reader, reading it to the end.
+   *
+   * @param registry The registry to add the departures to.
+   * @param in The CSV text.
+   * @return Report of the departures imported and the rows rejected.
+   * @throws IOException if the reader fails. Nothing is imported in that case.
+   */
+  CsvImportReport importFrom(TrainDepartureRegistry registry, Reader in) throws IOException {
+    BufferedReader reader = in instanceof BufferedReader b ? b : new BufferedReader(in);
+    CsvImportReport report = new CsvImportReport();
+    ArrayList<TrainDeparture> accepted = new ArrayList<>();
+    HashSet<String> trainNumbers = new HashSet<>();
+    int room = maxNoDepartures - registry.getNoDepartures();
+    int lineNumber = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (lineNumber == 1 && line.startsWith("\uFEFF")) { // Byte order mark.
+        line = line.substring(1);
+      }
+      if (line.isBlank() || (lineNumber == 1 && !Character.isDigit(line.charAt(0)))) {
+        continue;
+      }
+      report.rowRead();
+      try {
+        TrainDeparture departure = parseRow(line);
+        String trainNumber = departure.getTrainNumber();
+        if (registry.departureExists(trainNumber) || !trainNumbers.add(trainNumber)) {
+          throw new IllegalArgumentException("Train number " + trainNumber + " is not unique.");
+        }
+        if (accepted.size() == room) {
+          throw new IllegalArgumentException("Maximum number of departures reached.");
+        }
+        accepted.add(departure);
+      } catch (IllegalArgumentException e) {
+        report.rowRejected(lineNumber, e.getMessage());
+      }
+    }
+    for (TrainDeparture departure : accepted) {
+      registry.addDeparture(departure);
+    }
+    report.setNoImported(accepted.size());
+    return report;
+  }
+
+  /**
+   * Parses a row into a departure.
+   *
+   * @param line The row.
+   * @return The departure.
+   * @throws IllegalArgumentException if the row is not a valid departure.
+   */
+  private TrainDeparture parseRow(String line) throws IllegalArgumentException {
+    int noFields = split(line);
+    if (noFields < NO_COLUMNS - 1) {
+      throw new IllegalArgumentException("Expected at least " + (NO_COLUMNS - 1)
+          + " columns, found " + noFields + ".");
+    }
+    int departureTimeMins = parseTime(0, "departure time");
+    if (departureTimeMins < 0) {
+      throw new IllegalArgumentException("Departure time must be given as HH:MM.");
+    }
+    int delayMins = Integer.max(parseTime(4, "delay"), 0);
+    short track = parseTrack(5);
+    String comment = noFields == NO_COLUMNS ? field(6) : "";
+    return new TrainDeparture(departureTimeMins, requireField(1, "line"),
+        requireField(2, "train number"), requireField(3, "destination"), delayMins, track,
+        comment); // throws IllegalArgumentException
+  }
+
+  /**
+   * Splits a row into fields, removing quotes.
+   *
+   * @param line The row.
+   * @return Number of fields in the row.
+   * @throws IllegalArgumentException if the row has too many fields or an unterminated quote.
+   */
+  private int split(String line) throws IllegalArgumentException {
+    fields.setLength(0);
+    int noFields = 0;
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          fields.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          fields.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        if (noFields == NO_COLUMNS - 1) {
+          throw new IllegalArgumentException("Expected at most " + NO_COLUMNS + " columns.");
+        }
+        fieldEnds[noFields++] = fields.length();
+      } else {
+        fields.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Quote is not closed.");
+    }
+    fieldEnds[noFields++] = fields.length();
+    return noFields;
+  }
+
+  /**
+   * Gets where a field starts in fields.
+   *
+   * @param field Index of the field.
+   * @return Start of the field.
+   */
+  private int fieldStart(int field) {
+    return field == 0 ? 0 : fieldEnds[field - 1];
+  }
+
+  /**
+   * Gets a field as a string with surrounding whitespace removed.
+   *
+   * @param field Index of the field.
+   * @return The field.
+   */
+  private String field(int field) {
+    return fields.substring(fieldStart(field), fieldEnds[field]).strip();
+  }
+
+  /**
+   * Gets a field that must not be empty.
+   *
+   * @param field Index of the field.
+   * @param name Name of the field, for the error message.
+   * @return The field.
+   * @throws IllegalArgumentException if the field is empty.
+   */
+  private String requireField(int field, String name) throws IllegalArgumentException {
+    String value = field(field);
+    if (value.isEmpty()) {
+      throw new IllegalArgumentException("Departure must have a " + name + ".");
+    }
+    return value;
+  }
+
+  /**
+   * Parses a field written as "HH:MM" or "H:MM" into minutes.
+   *
+   * @param field Index of the field.
+   * @param name Name of the field, for the error message.
+   * @return Minutes, or -1 if the field is empty.
+   * @throws IllegalArgumentException if the field is not a valid time.
+   */
+  private int parseTime(int field, String name) throws IllegalArgumentException {
+    int start = skipSpaces(fieldStart(field), fieldEnds[field]);
+    int end = trimSpaces(start, fieldEnds[field]);
+    if (start == end) {
+      return -1;
+    }
+    int colon = end - 3;
+    int hours = colon > start && colon - start <= 2 && fields.charAt(colon) == ':'
+        ? parseDigits(start, colon) : -1;
+    int minutes = hours >= 0 ? parseDigits(colon + 1, end) : -1;
+    if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+      throw new IllegalArgumentException("The " + name + " must be given as HH:MM.");
+    }
+    return hours * 60 + minutes;
+  }
+
+  /**
+   * Parses a track field.
+   *
+   * @param field Index of the field.
+   * @return The track, or -1 if the field is empty or -1.
+   * @throws IllegalArgumentException if the track is not a number, or not from 1 to the number
+   *     of tracks.
+   */
+  private short parseTrack(int field) throws IllegalArgumentException {
+    int start = skipSpaces(fieldStart(field), fieldEnds[field]);
+    int end = trimSpaces(start, fieldEnds[field]);
+    if (start == end || (end - start == 2 && fields.charAt(start) == '-'
+        && fields.charAt(start + 1) == '1')) {
+      return -1;
+    }
+    int track = end - start <= 5 ? parseDigits(start, end) : -1;
+    if (track < 1 || track > noTracks) {
+      throw new IllegalArgumentException("Track must be a number from 1 to " + noTracks + ".");
+    }
+    return (short) track;
+  }
+
+  /**
+   * Parses a run of decimal digits in fields.
+   *
+   * @param start Start of the digits.
+   * @param end End of the digits.
+   * @return The number, or -1 if there are no digits or something other than digits.
+   */
+  private int parseDigits(int start, int end) {
+    if (start == end) {
+      return -1;
+    }
+    int value = 0;
+    for (int i = start; i < end; i++) {
+      int digit = fields.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /**
+   * Skips whitespace at the start of a range of fields.
+   *
+   * @param start Start of the range.
+   * @param end End of the range.
+   * @return Position of the first character that isn't whitespace, or end.
+   */
+  private int skipSpaces(int start, int end) {
+    while (start < end && Character.isWhitespace(fields.charAt(start))) {
+      start++;
+    }
+    return start;
+  }
+
+  /**
+   * Skips whitespace at the end of a range of fields.
+   *
+   * @param start Start of the range.
+   * @param end End of the range.
+   * @return Position after the last character that isn't whitespace, or start.
+   */
+  private int trimSpaces(int start, int end) {
+    while (end > start && Character.isWhitespace(fields.charAt(end - 1))) {
+      end--;
+    }
+    return end;
+  }
+}
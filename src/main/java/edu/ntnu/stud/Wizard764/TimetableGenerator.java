@@ -0,0 +1,357 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic timetables for load tests, benchmarks and demos. A generator created with
+ * the same seed and settings always generates the same departures, in the same order, on any JVM.
+ * Departures are spread over the day with peaks in the morning and afternoon rush hours. Lines
+ * and destinations are picked so that a few are much busier than the rest, like at a real station.
+ * The skew of each is set as the exponent of a Zipf distribution, where 0 makes every line or
+ * destination equally common. Delays follow an exponential distribution, so most delayed trains
+ * are a few minutes late and a few are very late.
+ * Train numbers are "T" followed by a running number, which keeps counting across calls so
+ * several batches from one generator may be added to the same registry.
+ */
+public class TimetableGenerator {
+  /**
+   * Relative number of departures in each hour of the day.
+   */
+  private static final int[] HOUR_WEIGHTS = {1, 1, 1, 1, 2, 4, 8, 12, 12, 8, 6, 6,
+    6, 6, 7, 10, 12, 11, 8, 6, 5, 4, 3, 2};
+  /**
+   * Names used for the first destinations, after which destinations are numbered.
+   */
+  private static final String[] STATION_NAMES = {"Oslo S", "Trondheim S", "Bergen", "Stavanger",
+    "Bodø", "Lillehammer", "Drammen", "Hamar", "Steinkjer", "Molde", "Kristiansand", "Skien",
+    "Halden", "Gjøvik", "Kongsberg", "Støren", "Røros", "Åndalsnes", "Narvik", "Arendal"};
+  /**
+   * Prefixes of line names, i.e. regional and local trains.
+   */
+  private static final String[] LINE_PREFIXES = {"R", "RE", "L", "F"};
+  /**
+   * Words comments are made of.
+   */
+  private static final String[] COMMENT_WORDS = {"Few", "tickets", "left", "Change", "trains",
+    "at", "the", "next", "station", "Bus", "replacement", "from", "Track", "changed", "Delayed",
+    "due", "to", "signal", "fault", "Cancelled", "Board", "front", "carriages", "only"};
+
+  /**
+   * Random number generator all choices are drawn from.
+   */
+  private final Random random;
+  /**
+   * Number of the next train generated.
+   */
+  private long nextTrainNumber;
+  /**
+   * Number of distinct lines.
+   */
+  private int noLines;
+  /**
+   * Zipf exponent of the line distribution.
+   */
+  private double lineSkew;
+  /**
+   * Number of distinct destinations.
+   */
+  private int noDestinations;
+  /**
+   * Zipf exponent of the destination distribution.
+   */
+  private double destinationSkew;
+  /**
+   * Share of departures that are delayed, from 0 to 1.
+   */
+  private double delayedShare;
+  /**
+   * Mean delay of delayed departures in minutes.
+   */
+  private double meanDelayMins;
+  /**
+   * Number of tracks, i.e. the highest track number assigned.
+   */
+  private short noTracks;
+  /**
+   * Share of departures without a track, from 0 to 1.
+   */
+  private double unassignedTrackShare;
+  /**
+   * Share of departures with a comment, from 0 to 1.
+   */
+  private double commentShare;
+  /**
+   * Maximum length of a comment.
+   */
+  private int maxCommentLength;
+
+  /**
+   * Constructs a generator with settings resembling a large station: 40 lines, 60 destinations,
+   * a fifth of departures delayed by 8 minutes on average, 20 tracks, and short comments on a
+   * tenth of departures.
+   *
+   * @param seed Seed for the random number generator.
+   */
+  TimetableGenerator(long seed) {
+    random = new Random(seed);
+    nextTrainNumber = 1;
+    noLines = 40;
+    lineSkew = 1.0;
+    noDestinations = 60;
+    destinationSkew = 1.0;
+    delayedShare = 0.2;
+    meanDelayMins = 8;
+    noTracks = 20;
+    unassignedTrackShare = 0.05;
+    commentShare = 0.1;
+    maxCommentLength = 40;
+  }
+
+  /**
+   * Sets the number of lines and how unevenly departures are spread over them.
+   *
+   * @param noLines Number of distinct lines.
+   * @param skew Zipf exponent, 0 for an even spread.
+   * @throws IllegalArgumentException if the number of lines is not positive or the skew is
+   *     negative.
+   */
+  public void setLines(int noLines, double skew) throws IllegalArgumentException {
+    if (noLines <= 0 || skew < 0) {
+      throw new IllegalArgumentException("Number of lines must be positive and skew not negative");
+    }
+    this.noLines = noLines;
+    lineSkew = skew;
+  }
+
+  /**
+   * Sets the number of destinations and how unevenly departures are spread over them.
+   *
+   * @param noDestinations Number of distinct destinations.
+   * @param skew Zipf exponent, 0 for an even spread.
+   * @throws IllegalArgumentException if the number of destinations is not positive or the skew
+   *     is negative.
+   */
+  public void setDestinations(int noDestinations, double skew) throws IllegalArgumentException {
+    if (noDestinations <= 0 || skew < 0) {
+      String e = "Number of destinations must be positive and skew not negative";
+      throw new IllegalArgumentException(e);
+    }
+    this.noDestinations = noDestinations;
+    destinationSkew = skew;
+  }
+
+  /**
+   * Sets how many departures are delayed and by how much.
+   *
+   * @param delayedShare Share of departures that are delayed, from 0 to 1.
+   * @param meanDelayMins Mean delay of delayed departures in minutes.
+   * @throws IllegalArgumentException if the share is outside 0 to 1 or the mean is not positive.
+   */
+  public void setDelays(double delayedShare, double meanDelayMins)
+      throws IllegalArgumentException {
+    if (delayedShare < 0 || delayedShare > 1 || meanDelayMins <= 0) {
+      String e = "Share of delayed departures must be from 0 to 1 and mean delay positive";
+      throw new IllegalArgumentException(e);
+    }
+    this.delayedShare = delayedShare;
+    this.meanDelayMins = meanDelayMins;
+  }
+
+  /**
+   * Sets the number of tracks and how many departures have no track.
+   *
+   * @param noTracks Number of tracks, i.e. the highest track number assigned.
+   * @param unassignedShare Share of departures without a track, from 0 to 1.
+   * @throws IllegalArgumentException if the number of tracks is not positive or the share is
+   *     outside 0 to 1.
+   */
+  public void setTracks(short noTracks, double unassignedShare) throws IllegalArgumentException {
+    if (noTracks <= 0 || unassignedShare < 0 || unassignedShare > 1) {
+      String e = "Number of tracks must be positive and share without track from 0 to 1";
+      throw new IllegalArgumentException(e);
+    }
+    this.noTracks = noTracks;
+    unassignedTrackShare = unassignedShare;
+  }
+
+  /**
+   * Sets how many departures have a comment and how long comments may be.
+   *
+   * @param commentShare Share of departures with a comment, from 0 to 1.
+   * @param maxLength Maximum length of a comment.
+   * @throws IllegalArgumentException if the share is outside 0 to 1 or the length is not
+   *     positive.
+   */
+  public void setComments(double commentShare, int maxLength) throws IllegalArgumentException {
+    if (commentShare < 0 || commentShare > 1 || maxLength <= 0) {
+      String e = "Share of departures with comments must be from 0 to 1 and length positive";
+      throw new IllegalArgumentException(e);
+    }
+    this.commentShare = commentShare;
+    maxCommentLength = maxLength;
+  }
+
+  /**
+   * Generates departures.
+   *
+   * @param count Number of departures to generate.
+   * @return The departures, in the order they were generated.
+   * @throws IllegalArgumentException if the count is negative.
+   */
+  TrainDeparture[] generate(int count) throws IllegalArgumentException {
+    if (count < 0) {
+      throw new IllegalArgumentException("Number of departures can't be negative");
+    }
+    double[] lineWeights = zipfCumulative(noLines, lineSkew);
+    double[] destinationWeights = zipfCumulative(noDestinations, destinationSkew);
+    double[] hourWeights = new double[HOUR_WEIGHTS.length];
+    double total = 0;
+    for (int hour = 0; hour < HOUR_WEIGHTS.length; hour++) {
+      total += HOUR_WEIGHTS[hour];
+      hourWeights[hour] = total;
+    }
+    TrainDeparture[] departures = new TrainDeparture[count];
+    for (int i = 0; i < count; i++) {
+      int departureTimeMins = pick(hourWeights) * 60 + random.nextInt(60);
+      departures[i] = new TrainDeparture(departureTimeMins, lineName(pick(lineWeights)),
+          "T" + nextTrainNumber++, destinationName(pick(destinationWeights)),
+          nextDelayMins(departureTimeMins), nextTrack(), nextComment());
+    }
+    return departures;
+  }
+
+  /**
+   * Generates departures and adds them to a registry.
+   *
+   * @param registry The registry to add to.
+   * @param count Number of departures to generate.
+   * @throws IllegalArgumentException if the count is negative, or if the registry already holds
+   *     a generated train number.
+   */
+  void loadInto(TrainDepartureRegistry registry, int count) throws IllegalArgumentException {
+    for (TrainDeparture departure : generate(count)) {
+      registry.addDeparture(departure);
+    }
+  }
+
+  /**
+   * Generates a registry holding the given number of departures.
+   *
+   * @param count Number of departures to generate.
+   * @return The registry.
+   * @throws IllegalArgumentException if the count is negative.
+   */
+  TrainDepartureRegistry generateRegistry(int count) throws IllegalArgumentException {
+    TrainDepartureRegistry registry = new TrainDepartureRegistry();
+    loadInto(registry, count);
+    return registry;
+  }
+
+  /**
+   * Draws a delay, keeping the departure within the day.
+   *
+   * @param departureTimeMins Scheduled departure time in minutes into the day.
+   * @return Delay in minutes.
+   */
+  private int nextDelayMins(int departureTimeMins) {
+    if (random.nextDouble() >= delayedShare) {
+      return 0;
+    }
+    int delayMins = 1 + (int) (-meanDelayMins * Math.log(1 - random.nextDouble()));
+    return Integer.min(delayMins, 24 * 60 - 1 - departureTimeMins);
+  }
+
+  /**
+   * Draws a track.
+   *
+   * @return Track number, or -1 for no track.
+   */
+  private short nextTrack() {
+    if (random.nextDouble() < unassignedTrackShare) {
+      return -1;
+    }
+    return (short) (1 + random.nextInt(noTracks));
+  }
+
+  /**
+   * Draws a comment of random words.
+   *
+   * @return The comment, empty for no comment.
+   */
+  private String nextComment() {
+    if (random.nextDouble() >= commentShare) {
+      return "";
+    }
+    int length = 1 + random.nextInt(maxCommentLength);
+    StringBuilder comment = new StringBuilder(length + 12);
+    while (comment.length() < length) {
+      if (comment.length() > 0) {
+        comment.append(' ');
+      }
+      comment.append(COMMENT_WORDS[random.nextInt(COMMENT_WORDS.length)]);
+    }
+    comment.setLength(length);
+    return comment.toString().strip();
+  }
+
+  /**
+   * Draws an index from a cumulative distribution.
+   *
+   * @param cumulative Cumulative weights, the last being the total.
+   * @return The index drawn.
+   */
+  private int pick(double[] cumulative) {
+    double target = random.nextDouble() * cumulative[cumulative.length - 1];
+    int low = 0;
+    int high = cumulative.length - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulative[mid] <= target) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Builds the cumulative weights of a Zipf distribution.
+   *
+   * @param size Number of values.
+   * @param skew Zipf exponent.
+   * @return Cumulative weights, where value k has weight 1 / (k + 1)^skew.
+   */
+  private static double[] zipfCumulative(int size, double skew) {
+    double[] cumulative = new double[size];
+    double total = 0;
+    for (int k = 0; k < size; k++) {
+      total += 1 / Math.pow(k + 1, skew);
+      cumulative[k] = total;
+    }
+    return cumulative;
+  }
+
+  /**
+   * Gets the name of a line.
+   *
+   * @param line Index of the line.
+   * @return The name of the line, i.e. "R10".
+   */
+  private static String lineName(int line) {
+    return LINE_PREFIXES[line % LINE_PREFIXES.length] + (10 + line);
+  }
+
+  /**
+   * Gets the name of a destination.
+   *
+   * @param destination Index of the destination.
+   * @return The name of the destination.
+   */
+  private static String destinationName(int destination) {
+    if (destination < STATION_NAMES.length) {
+      return STATION_NAMES[destination];
+    }
+    return "Station " + (destination + 1);
+  }
+}
@@ -0,0 +1,178 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Assigns tracks to every departure in a registry that has none, i.e. after unsetTrack or
+ * unsetTrackBelowLimit, without putting two departures on the same track within a dwell window
+ * of each other (see TrackConflictDetector).
+ * The departures are swept through once in order of actual departure time, greedily partitioning
+ * them over the tracks: a departure is given the lowest numbered track that is usable, i.e. whose
+ * previous departure left at least the dwell window earlier, and where no departure that already
+ * has the track leaves within the dwell window after the departure being placed. Departures that
+ * already have a track keep it and make their track busy as they are swept past. Tracks that are
+ * busy wait in a heap ordered by when they become free. Usable tracks are kept in an ordered set,
+ * and wait in a second heap ordered by the minute the next departure already on the track blocks
+ * them, when they leave the set. A usable track is thus found in one lookup, and each departure
+ * costs time logarithmic in the number of tracks.
+ * The tracks found are set in the registry as one batch at the end of the sweep.
+ * Departures no track can be found for keep track -1 and are reported back.
+ */
+class TrackAssigner {
+  /**
+   * The registry to assign tracks in.
+   */
+  private final TrainDepartureRegistry registry;
+  /**
+   * The highest track number that may be assigned.
+   */
+  private final short noTracks;
+  /**
+   * Minutes a departure occupies its track before it leaves.
+   */
+  private final int dwellMins;
+  /**
+   * Number of departures given a track by the last assignment.
+   */
+  private int noAssigned;
+
+  /**
+   * Constructs an assigner for a registry.
+   *
+   * @param registry The registry to assign tracks in.
+   * @param noTracks The highest track number that may be assigned.
+   * @param dwellMins Minutes a departure occupies its track before it leaves.
+   * @throws IllegalArgumentException if the number of tracks or the dwell window is not positive.
+   */
+  TrackAssigner(TrainDepartureRegistry registry, short noTracks, int dwellMins)
+      throws IllegalArgumentException {
+    if (noTracks < 1) {
+      throw new IllegalArgumentException("There must be at least 1 track.");
+    }
+    if (dwellMins < 1) {
+      throw new IllegalArgumentException("Dwell time must be at least 1 minute.");
+    }
+    this.registry = registry;
+    this.noTracks = noTracks;
+    this.dwellMins = dwellMins;
+    noAssigned = 0;
+  }
+
+  /**
+   * Gets the number of departures given a track by the last call to assignTracks().
+   *
+   * @return Number of departures assigned a track.
+   */
+  int getNoAssigned() {
+    return noAssigned;
+  }
+
+  /**
+   * Assigns a track to every departure without one, where possible.
+   *
+   * @return The departures no track could be assigned to, ordered by actual departure time.
+   */
+  List<TrainDeparture> assignTracks() {
+    ArrayList<TrainDeparture> unplaced = new ArrayList<>();
+    ArrayList<DepartureUpdate> assignments = new ArrayList<>();
+    TrainDeparture[] departures = registry.getNextDepartures(0, Integer.MAX_VALUE);
+    // Departures that already have a track, as a list per track linked by position in the sweep:
+    // nextFixed[track] is the next one not swept past yet, and followingFixed[i] the one after
+    // departure i on its track, -1 if there is none.
+    int[] nextFixed = new int[noTracks + 1];
+    int[] followingFixed = new int[departures.length];
+    Arrays.fill(nextFixed, -1);
+    for (int i = departures.length - 1; i >= 0; i--) {
+      short track = departures[i].getTrack();
+      if (track != -1 && track <= noTracks) {
+        followingFixed[i] = nextFixed[track];
+        nextFixed[track] = i;
+      }
+    }
+    // Minute from which each track is free, 0 if it has been free all along.
+    int[] busyUntil = new int[noTracks + 1];
+    // Busy tracks as {busyUntil, track}, soonest free first. Entries are stale if busyUntil of
+    // the track has moved on since they were added.
+    PriorityQueue<int[]> busy = new PriorityQueue<>((a, b) -> Integer.compare(a[0], b[0]));
+    TreeSet<Short> usable = new TreeSet<>();
+    // Usable tracks as {blocked from, track}, soonest blocked first. Entries are stale if the
+    // next departure already on the track has been swept past since they were added.
+    PriorityQueue<int[]> blocking = new PriorityQueue<>((a, b) -> Integer.compare(a[0], b[0]));
+    for (short track = 1; track <= noTracks && track > 0; track++) {
+      makeFree(track, departures, nextFixed, usable, blocking);
+    }
+    for (int i = 0; i < departures.length; i++) {
+      TrainDeparture departure = departures[i];
+      int leaves = departure.getDepartureTimeIncDelayInMinutes();
+      while (!busy.isEmpty() && busy.peek()[0] <= leaves) {
+        int[] entry = busy.poll();
+        if (busyUntil[entry[1]] == entry[0]) {
+          makeFree((short) entry[1], departures, nextFixed, usable, blocking);
+        }
+      }
+      while (!blocking.isEmpty() && blocking.peek()[0] <= leaves) {
+        int[] entry = blocking.poll();
+        if (blockedFrom((short) entry[1], departures, nextFixed) == entry[0]) {
+          usable.remove((short) entry[1]);
+        }
+      }
+      short track = departure.getTrack();
+      if (track == -1) {
+        if (usable.isEmpty()) {
+          unplaced.add(departure);
+          continue;
+        }
+        track = usable.first();
+        assignments.add(DepartureUpdate.track(departure.getTrainNumber(), track));
+      } else if (track > noTracks) {
+        continue;
+      } else {
+        nextFixed[track] = followingFixed[i];
+      }
+      usable.remove(track);
+      busyUntil[track] = Integer.max(busyUntil[track], leaves + dwellMins);
+      busy.add(new int[] {busyUntil[track], track});
+    }
+    noAssigned = registry.applyUpdates(assignments).getNoApplied();
+    return unplaced;
+  }
+
+  /**
+   * Makes a track usable once it is free, unless the next departure already on it blocks it.
+   *
+   * @param track The track.
+   * @param departures The departures swept through.
+   * @param nextFixed Position of the next departure already on each track, -1 if none.
+   * @param usable The usable tracks.
+   * @param blocking The usable tracks by when they are blocked.
+   */
+  private void makeFree(short track, TrainDeparture[] departures, int[] nextFixed,
+                        TreeSet<Short> usable, PriorityQueue<int[]> blocking) {
+    usable.add(track);
+    int blockedFrom = blockedFrom(track, departures, nextFixed);
+    if (blockedFrom != Integer.MAX_VALUE) {
+      // If the track is already blocked, it is dropped again before the next lookup.
+      blocking.add(new int[] {blockedFrom, track});
+    }
+  }
+
+  /**
+   * Finds the first minute at which a departure placed on a track would leave within the dwell
+   * window before the next departure already on it.
+   *
+   * @param track The track.
+   * @param departures The departures swept through.
+   * @param nextFixed Position of the next departure already on each track, -1 if none.
+   * @return The minute, Integer.MAX_VALUE if no departure already on the track is left.
+   */
+  private int blockedFrom(short track, TrainDeparture[] departures, int[] nextFixed) {
+    if (nextFixed[track] == -1) {
+      return Integer.MAX_VALUE;
+    }
+    return departures[nextFixed[track]].getDepartureTimeIncDelayInMinutes() - dwellMins + 1;
+  }
+}
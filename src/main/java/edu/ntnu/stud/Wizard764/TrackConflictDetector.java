@@ -0,0 +1,147 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds departures assigned the same track at overlapping times. A departure occupies its track
+ * for a dwell window of a given number of minutes up to its actual departure time, so two
+ * departures on the same track conflict if they leave less than the dwell window apart.
+ * As every departure occupies the track for the same length of time, the departures overlapping
+ * a window are exactly those leaving within a dwell window either side of it. They are found by
+ * a range lookup in the per-track index of the registry, which is ordered by actual departure
+ * time, so checking a change costs time logarithmic in the number of departures on the track.
+ * Changes are checked before they are made, so the dispatcher can be warned.
+ */
+class TrackConflictDetector {
+  /**
+   * The registry checked.
+   */
+  private final TrainDepartureRegistry registry;
+  /**
+   * Minutes a departure occupies its track before it leaves.
+   */
+  private int dwellMins;
+
+  /**
+   * Constructs a detector for a registry.
+   *
+   * @param registry The registry to check.
+   * @param dwellMins Minutes a departure occupies its track before it leaves.
+   * @throws IllegalArgumentException if the dwell window is not positive.
+   */
+  TrackConflictDetector(TrainDepartureRegistry registry, int dwellMins)
+      throws IllegalArgumentException {
+    this.registry = registry;
+    setDwellMins(dwellMins); // throws IllegalArgumentException
+  }
+
+  /**
+   * Gets the dwell window.
+   *
+   * @return Minutes a departure occupies its track before it leaves.
+   */
+  int getDwellMins() {
+    return dwellMins;
+  }
+
+  /**
+   * Sets the dwell window.
+   *
+   * @param dwellMins Minutes a departure occupies its track before it leaves.
+   * @throws IllegalArgumentException if the dwell window is not positive.
+   */
+  void setDwellMins(int dwellMins) throws IllegalArgumentException {
+    if (dwellMins < 1) {
+      throw new IllegalArgumentException("Dwell time must be at least 1 minute.");
+    }
+    this.dwellMins = dwellMins;
+  }
+
+  /**
+   * Finds the departures a new departure would conflict with if added.
+   *
+   * @param departure The new departure.
+   * @return The conflicting departures ordered by actual departure time, empty if none.
+   */
+  TrainDeparture[] checkDeparture(TrainDeparture departure) {
+    return findConflicts(departure.getTrack(), departure.getDepartureTimeIncDelayInMinutes(),
+        null);
+  }
+
+  /**
+   * Finds the departures a departure would conflict with if moved to a track.
+   *
+   * @param trainNumber Train number of the departure.
+   * @param track The new track.
+   * @return The conflicting departures ordered by actual departure time, empty if none.
+   * @throws IllegalArgumentException if the departure doesn't exist.
+   */
+  TrainDeparture[] checkTrack(String trainNumber, short track) throws IllegalArgumentException {
+    TrainDeparture departure = registry.getDeparture(trainNumber);
+    return findConflicts(track, departure.getDepartureTimeIncDelayInMinutes(), departure);
+  }
+
+  /**
+   * Finds the departures a departure would conflict with if given a new delay.
+   *
+   * @param trainNumber Train number of the departure.
+   * @param delay The new delay.
+   * @return The conflicting departures ordered by actual departure time, empty if none.
+   * @throws IllegalArgumentException if the departure doesn't exist.
+   */
+  TrainDeparture[] checkDelay(String trainNumber, LocalTime delay)
+      throws IllegalArgumentException {
+    TrainDeparture departure = registry.getDeparture(trainNumber);
+    int actualMins = departure.getDepartureTimeInMinutes() + delay.getHour() * 60
+        + delay.getMinute();
+    return findConflicts(departure.getTrack(), actualMins, departure);
+  }
+
+  /**
+   * Finds every pair of conflicting departures in the registry.
+   *
+   * @return The pairs, each an array of two departures ordered by actual departure time. Pairs
+   *     are listed by track, then by time.
+   */
+  List<TrainDeparture[]> findAllConflicts() {
+    ArrayList<TrainDeparture[]> conflicts = new ArrayList<>();
+    for (short track = 1; track <= registry.getHighestTrackNo() && track > 0; track++) {
+      TrainDeparture[] departures =
+          registry.getDeparturesByTrackBetween(track, Integer.MIN_VALUE, Integer.MAX_VALUE);
+      for (int i = 0; i < departures.length; i++) {
+        int leaves = departures[i].getDepartureTimeIncDelayInMinutes();
+        for (int j = i + 1; j < departures.length
+            && departures[j].getDepartureTimeIncDelayInMinutes() - leaves < dwellMins; j++) {
+          conflicts.add(new TrainDeparture[] {departures[i], departures[j]});
+        }
+      }
+    }
+    return conflicts;
+  }
+
+  /**
+   * Finds the departures on a track whose dwell window overlaps that of a departure leaving at
+   * the given time.
+   *
+   * @param track The track, -1 for none.
+   * @param actualMins Actual departure time in minutes into the day.
+   * @param ignored Departure to leave out, i.e. the one being changed, or null.
+   * @return The conflicting departures ordered by actual departure time, empty if none.
+   */
+  private TrainDeparture[] findConflicts(short track, int actualMins, TrainDeparture ignored) {
+    if (track == -1) {
+      return new TrainDeparture[0];
+    }
+    TrainDeparture[] overlapping = registry.getDeparturesByTrackBetween(track,
+        actualMins - dwellMins + 1, actualMins + dwellMins);
+    ArrayList<TrainDeparture> conflicts = new ArrayList<>(overlapping.length);
+    for (TrainDeparture departure : overlapping) {
+      if (departure != ignored) {
+        conflicts.add(departure);
+      }
+    }
+    return conflicts.toArray(new TrainDeparture[0]);
+  }
+}
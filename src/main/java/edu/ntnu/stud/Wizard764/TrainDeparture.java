@@ -1,5 +1,9 @@
 package edu.ntnu.stud.Wizard764;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 /**
@@ -11,11 +15,16 @@ import java.time.LocalTime;
  */
 public class TrainDeparture {
   /**
-   * The time of departure, only accurate to hours and minutes; seconds and below should be 0. Note
-   * that second != 0 does not affect function and can simply be ignored. The departure time is
-   * immutable, any change is represented by delay.
+   * Number of minutes in a day.
    */
-  private final LocalTime departureTime;
+  private static final int MINUTES_PER_DAY = 24 * 60;
+  /**
+   * The time of departure in minutes into the day, i.e. 12:04 is stored as 724. Only accurate to
+   * hours and minutes; seconds given on construction are ignored. Stored as a number rather than
+   * LocalTime so comparing and sorting departures is simple integer arithmetic. The departure
+   * time is immutable, any change is represented by delay.
+   */
+  private final short departureTimeMins;
   /**
    * The line the train runs on. Core information defining a departure, and is thus immutable. If
    * need be, one should create a new departure to avoid confusion. Note: I have elaborated on my
@@ -33,8 +42,11 @@ public class TrainDeparture {
    * is immutable.
    */
   private final String destination;
-  /** Delay past departure time if relevant. This may change over time and is thus variable. */
-  private LocalTime delay;
+  /**
+   * Delay past departure time in minutes if relevant. This may change over time and is thus
+   * variable.
+   */
+  private short delayMins;
   /**
    * The track the train will be departing from. It is impossible unlikely that it will ever be
    * necessary to have more than 32'767 tracks, regardless of naming convention. Therefore, it is
@@ -52,6 +64,11 @@ public class TrainDeparture {
    * Represents wether comment is to be included in toString return.
    */
   private boolean commentState;
+  /**
+   * The string last built by toString(), or null if something shown in it has changed since.
+   * Lets a board be re-rendered without rebuilding departures that haven't changed.
+   */
+  private String renderCache;
 
   /**
    * Constructs a TrainDeparture with specified parameters including departure time, line, train
@@ -71,23 +88,85 @@ public class TrainDeparture {
                         String trainNumber, String destination,
                         LocalTime delay, short track,
                         String comment) throws IllegalArgumentException {
-    int depTimeMins = departureTime.getHour() * 60 + departureTime.getMinute();
-    int delayMins = delay.getHour() * 60 + delay.getMinute();
-    int actDepTimeMins = depTimeMins + delayMins;
-    if (actDepTimeMins >= 24 * 60) {
-      String e = "Train is delayed past current day and is not allowed in system";
-      throw new IllegalArgumentException(e);
-    }
+    this(departureTime.getHour() * 60 + departureTime.getMinute(), line, trainNumber,
+        destination, delay.getHour() * 60 + delay.getMinute(), track,
+        comment); // Throws IllegalArgumentException
+  }
+
+  /**
+   * Constructs a TrainDeparture from times given in minutes into the day. Lets callers that
+   * already work with minutes, such as bulk imports, avoid creating LocalTime objects.
+   *
+   * @param departureTimeMins The time of departure in minutes into the day, i.e. 12:04 is 724.
+   * @param line The line the train runs on.
+   * @param trainNumber Unique number identifying a specific train within a day.
+   * @param destination The destination of the train.
+   * @param delayMins Delay past departure time in minutes.
+   * @param track The track the train will be departing from.
+   * @param comment String containing any extra or special-case information.
+   * @throws IllegalArgumentException if a time is outside the day, if the train is delayed past
+   *     the current day or if the track is not a positive number.
+   */
+  TrainDeparture(int departureTimeMins, String line,
+                 String trainNumber, String destination,
+                 int delayMins, short track,
+                 String comment) throws IllegalArgumentException {
+    checkTimes(departureTimeMins, delayMins); // throws IllegalArgumentException
     setTrack(track); // throws IllegalArgumentException
-    this.departureTime = LocalTime.of(departureTime.getHour(), departureTime.getMinute());
+    this.departureTimeMins = (short) departureTimeMins;
     this.line = line;
     this.trainNumber = trainNumber;
     this.destination = destination;
-    this.delay = LocalTime.of(delay.getHour(), delay.getMinute());
+    this.delayMins = (short) delayMins;
     this.comment = comment;
     this.commentState = true;
   }
 
+  /**
+   * Rebuilds a departure kept in another form, i.e. in a snapshot file, a journal or a columnar
+   * store. Unlike the constructors, the delay may take the departure past midnight, as
+   * setDelay(LocalTime) allows once a departure is in the system.
+   *
+   * @param departureTimeMins The time of departure in minutes into the day.
+   * @param line The line the train runs on.
+   * @param trainNumber Unique number identifying a specific train within a day.
+   * @param destination The destination of the train.
+   * @param delayMins Delay past departure time in minutes, less than a day.
+   * @param track The track the train will be departing from.
+   * @param comment String containing any extra or special-case information.
+   * @return The departure.
+   * @throws IllegalArgumentException if a time is outside the day or if the track is not a
+   *     positive number.
+   */
+  static TrainDeparture restore(int departureTimeMins, String line, String trainNumber,
+                                String destination, int delayMins, short track, String comment)
+      throws IllegalArgumentException {
+    if (delayMins < 0 || delayMins >= 24 * 60) {
+      throw new IllegalArgumentException("Departure time and delay must be within a day");
+    }
+    TrainDeparture departure = new TrainDeparture(departureTimeMins, line, trainNumber,
+        destination, 0, track, comment); // throws IllegalArgumentException
+    departure.delayMins = (short) delayMins;
+    return departure;
+  }
+
+  /**
+   * Constructs a copy of a TrainDeparture, including its comment state.
+   *
+   * @param other The departure to copy.
+   */
+  TrainDeparture(TrainDeparture other) {
+    this.departureTimeMins = other.departureTimeMins;
+    this.line = other.line;
+    this.trainNumber = other.trainNumber;
+    this.destination = other.destination;
+    this.delayMins = other.delayMins;
+    this.track = other.track;
+    this.comment = other.comment;
+    this.commentState = other.commentState;
+    this.renderCache = other.renderCache;
+  }
+
   /**
    * Constructs a TrainDeparture without a specified delay. Delay is set to "00:00".
    *
@@ -229,7 +308,7 @@ public class TrainDeparture {
 
   // Simple getters
   public LocalTime getDepartureTime() {
-    return departureTime;
+    return LocalTime.of(departureTimeMins / 60, departureTimeMins % 60);
   }
 
   public String getLine() {
@@ -245,7 +324,7 @@ public class TrainDeparture {
   }
 
   public LocalTime getDelay() {
-    return delay;
+    return LocalTime.of(delayMins / 60, delayMins % 60);
   }
 
   public short getTrack() {
@@ -256,6 +335,10 @@ public class TrainDeparture {
     return comment;
   }
 
+  public boolean getCommentState() {
+    return commentState;
+  }
+
   // Getters
   /**
    * Useful for comparing timestamps with simple integer manipulation.
@@ -263,7 +346,7 @@ public class TrainDeparture {
    * @return Returns the time of departure in minutes, i.e: 12:04 returns 724 & 03:30 returns 210
    */
   public int getDepartureTimeInMinutes() {
-    return departureTime.getHour() * 60 + departureTime.getMinute();
+    return departureTimeMins;
   }
 
   /**
@@ -272,37 +355,59 @@ public class TrainDeparture {
    * @return Returns the time of departure in minutes, i.e: 12:04 returns 724 & 03:30 returns 210
    */
   public int getDelayInMinutes() {
-    return delay.getHour() * 60 + delay.getMinute();
+    return delayMins;
   }
 
   /**
-   * Calculates the actual time of departure including the delay.
+   * Calculates the actual time of departure including the delay. A departure delayed past
+   * midnight leaves the next day, see departsNextDay().
    *
-   * @return Returns the actual time of departure
+   * @return Returns the actual time of departure as a time of day.
    */
   public LocalTime getDepartureTimeIncDelay() {
-    int minutes = departureTime.getMinute() + delay.getMinute();
-    int hours = departureTime.getHour() + delay.getHour() + minutes / 60;
-    minutes %= 60;
-    return LocalTime.of(hours, minutes);
+    int minutes = getDepartureTimeIncDelayInMinutes() % MINUTES_PER_DAY;
+    return LocalTime.of(minutes / 60, minutes % 60);
+  }
+
+  /**
+   * Calculates the actual date and time of departure including the delay, for a departure of the
+   * given service day.
+   *
+   * @param serviceDay The day the departure is scheduled on.
+   * @return Returns the actual date and time of departure, the next day if delayed past midnight.
+   */
+  public LocalDateTime getDepartureDateTimeIncDelay(LocalDate serviceDay) {
+    return serviceDay.atStartOfDay().plusMinutes(getDepartureTimeIncDelayInMinutes());
+  }
+
+  /**
+   * Checks whether the departure is delayed past midnight, into the day after its service day.
+   * Departures can't be created that way, but may be delayed that way later.
+   *
+   * @return true if the departure leaves the next day.
+   */
+  public boolean departsNextDay() {
+    return getDepartureTimeIncDelayInMinutes() >= MINUTES_PER_DAY;
   }
 
   /**
    * Calculates the actual time of departure including the delay.
    *
-   * @return Returns the actual time of departure as minutes into the day, ie: departure time of
-   *     12:10 and delay of 00:05 returns 735.
+   * @return Returns the actual time of departure as minutes into the service day, ie: departure
+   *     time of 12:10 and delay of 00:05 returns 735. Departures delayed past midnight return 1440
+   *     or more, so they still sort after the rest of the day.
    */
   public int getDepartureTimeIncDelayInMinutes() {
-    return departureTime.getHour() * 60
-        + departureTime.getMinute()
-        + delay.getHour() * 60
-        + delay.getMinute();
+    return departureTimeMins + delayMins;
   }
 
   // Setters
   public void setDelay(LocalTime delay) throws IllegalArgumentException {
-    this.delay = delay;
+    short newDelayMins = (short) (delay.getHour() * 60 + delay.getMinute());
+    if (newDelayMins != delayMins) {
+      delayMins = newDelayMins;
+      renderCache = null;
+    }
   }
 
   /**
@@ -311,121 +416,162 @@ public class TrainDeparture {
    * @param track The track number to assign the departure.
    */
   public void setTrack(short track) {
+    checkTrack(track); // throws IllegalArgumentException
+    if (track != this.track) {
+      this.track = track;
+      renderCache = null;
+    }
+  }
+
+  /**
+   * Checks that a departure time and delay describe a departure within the current day.
+   * Shared with other representations of departures so they follow the same rules.
+   *
+   * @param departureTimeMins The time of departure in minutes into the day.
+   * @param delayMins Delay past departure time in minutes.
+   * @throws IllegalArgumentException if a time is outside the day or if the train is delayed past
+   *     the current day.
+   */
+  static void checkTimes(int departureTimeMins, int delayMins) throws IllegalArgumentException {
+    if (departureTimeMins < 0 || departureTimeMins >= 24 * 60 || delayMins < 0) {
+      throw new IllegalArgumentException("Departure time and delay must be within a day");
+    }
+    if (departureTimeMins + delayMins >= 24 * 60) {
+      String e = "Train is delayed past current day and is not allowed in system";
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * Checks that a track number is valid, i.e. positive or -1 for not assigned.
+   *
+   * @param track The track number to check.
+   * @throws IllegalArgumentException if the track is not a positive number or -1.
+   */
+  static void checkTrack(short track) throws IllegalArgumentException {
     if (track <= (short) 0 && track != (short) -1) {
       throw new IllegalArgumentException("Track must be a positive number");
     }
-    this.track = track;
   }
 
   /** track value of -1 signifies it's not assigned. */
   public void unsetTrack() {
-    track = (short) -1;
+    if (track != (short) -1) {
+      track = (short) -1;
+      renderCache = null;
+    }
   }
 
+  /**
+   * Sets the comment, forgetting the rendered departure if it changed.
+   *
+   * @param comment New comment.
+   */
   public void setComment(String comment) {
-    this.comment = comment;
+    if (!comment.equals(this.comment)) {
+      this.comment = comment;
+      renderCache = null;
+    }
   }
 
+  /**
+   * Sets whether the comment is shown by toString(), forgetting the rendered departure if it
+   * changed.
+   *
+   * @param state New comment state.
+   */
   public void setCommentState(boolean state) {
-    commentState = state;
+    if (state != commentState) {
+      commentState = state;
+      renderCache = null;
+    }
   }
 
   /**
    * Builds a complex multi-line string containing information about the departure in an aesthetic
-   * fashion.
+   * fashion. The string is kept until something shown in it changes, so calling this again for an
+   * unchanged departure costs next to nothing.
    *
    * @return Returns a string containing all relevant information about the departure formatted over
    *     several lines.
    */
   @Override
   public String toString() {
-    int desiredSegmentWidth =
-        calcDesiredSegmentWidth(); // Determine the minimum required length of a segment so a line
-    // will fit. At least 25.
-    StringBuilder out = new StringBuilder(); // Initialize output string
-    // Add the first line where all 3 segments are filled with "#".
-    out.append("##")
-        .append(
-            createInfoLine(
-                new String[] { // FIRST LINE beginning with ##
-                  "#".repeat(desiredSegmentWidth), // 1. segment (#)
-                  "#".repeat(desiredSegmentWidth), // 2. segment (#)
-                  "#".repeat(desiredSegmentWidth) // 3. segment (#)
-                },
-                desiredSegmentWidth))
-        .append("##\n"); // End with ##\n
-    // Add the departure time, line and train number.
-    out.append("# ")
-        .append(
-            createInfoLine(
-                new String[] { // SECOND LINE  beginning with #
-                  "Departure time: " + getDepartureTime().toString(), // 1. segment (departure time)
-                  "Line: " + line, // 2. segment (line)
-                  "Train number: " + trainNumber // 3. segment (train number)
-                },
-                desiredSegmentWidth))
-        .append(" #\n"); // End with ##\n
-    // Add the destination in a separate line
-    out.append("# ")
-        .append(
-            createInfoLine(
-                new String[] { // THIRD LINE  beginning with #
-                  "Destination: " + destination, // 1. segment (destination)
-                  "", // 2. segment (empty)
-                  "" // 3. segment (empty)
-                },
-                desiredSegmentWidth))
-        .append(" #\n"); // End with ##\n
-    if (getDelayInMinutes() != 0) { // Add delay information if applicable
-      out.append("# ")
-          .append(
-              createInfoLine(
-                  new String[] { // FOURTH LINE  beginning with #
-                    "Delay: " + getDelay().toString(), // 1. segment (delay)
-                    "Actual departure time(including delay): "
-                        + getDepartureTimeIncDelay()
-                            .toString(), // 2. segment (departure time including delay)
-                    "" // 3. segment (empty)
-                  },
-                  desiredSegmentWidth))
-          .append(" #\n"); // End with ##\n
+    String rendered = renderCache;
+    if (rendered == null) {
+      StringBuilder out = new StringBuilder(8 * (3 * calcDesiredSegmentWidth() + 5));
+      try {
+        render(out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e); // StringBuilder never fails.
+      }
+      rendered = out.toString();
+      renderCache = rendered;
+    }
+    return rendered;
+  }
+
+  /**
+   * Appends the departure as formatted by toString() to an output, i.e. a Writer or a
+   * StringBuilder, so boards can be written without first building one string of all departures.
+   * The departure is rendered and kept the same way as by toString(), so writing the board again
+   * without changes costs next to nothing.
+   *
+   * @param out The output to append to.
+   * @throws IOException if the output fails.
+   */
+  void appendTo(Appendable out) throws IOException {
+    out.append(toString());
+  }
+
+  /**
+   * Writes the departure as formatted by toString(). Each line is three segments wide, where every
+   * segment is padded with spaces to the desired segment width. Segments are written straight into
+   * the output rather than built as separate strings first, keeping count of the column so they
+   * can be padded.
+   *
+   * @param out The output to write to.
+   * @throws IOException if the output fails.
+   */
+  private void render(Appendable out) throws IOException {
+    // Determine the minimum required length of a segment so a line will fit. At least 25.
+    final int w = calcDesiredSegmentWidth();
+    appendBorderLine(out, w); // FIRST LINE of "#"
+    out.append('\n');
+    // SECOND LINE with departure time, line and train number.
+    out.append("# ");
+    int column = append(out, "Departure time: ") + appendTime(out, departureTimeMins);
+    column = padTo(out, column, w);
+    column += append(out, "Line: ") + append(out, line);
+    column = padTo(out, column, 2 * w);
+    column += append(out, "Train number: ") + append(out, trainNumber);
+    endInfoLine(out, column, w);
+    // THIRD LINE with the destination.
+    out.append("# ");
+    column = append(out, "Destination: ") + append(out, destination);
+    endInfoLine(out, column, w);
+    if (delayMins != 0) { // FOURTH LINE with delay information if applicable.
+      out.append("# ");
+      column = append(out, "Delay: ") + appendTime(out, delayMins);
+      column = padTo(out, column, w);
+      column += append(out, "Actual departure time(including delay): ")
+          + appendTime(out, getDepartureTimeIncDelayInMinutes() % MINUTES_PER_DAY);
+      if (departsNextDay()) {
+        column += append(out, " (next day)");
+      }
+      endInfoLine(out, column, w);
     }
-    if (track != -1) { // Add track information if applicable
-      out.append("# ")
-          .append(
-              createInfoLine(
-                  new String[] { // FIFTH LINE  beginning with #
-                    "Track: " + track, // 1. segment (track)
-                    "", // 2. segment (empty)
-                    "" // 3. segment (empty)
-                  },
-                  desiredSegmentWidth))
-          .append(" #\n"); // End with ##\n
+    if (track != -1) { // FIFTH LINE with track information if applicable.
+      out.append("# ");
+      column = append(out, "Track: ") + append(out, Short.toString(track));
+      endInfoLine(out, column, w);
     }
-    if (!comment.isEmpty() && commentState) { // Add comment if there is one
-      out.append("# ")
-          .append(
-              createInfoLine(
-                  new String[] { // SIXTH LINE  beginning with #
-                    "Comment: " + comment, // 1. segment (comment)
-                    "", // 2. segment (empty)
-                    "" // 3. segment (empty)
-                  },
-                  desiredSegmentWidth))
-          .append(" #\n"); // End with ##\n
+    if (!comment.isEmpty() && commentState) { // SIXTH LINE with comment if there is one.
+      out.append("# ");
+      column = append(out, "Comment: ") + append(out, comment);
+      endInfoLine(out, column, w);
     }
-    // Add the last line, the "bottom lid", row of "#"
-    out.append("##")
-        .append(
-            createInfoLine(
-                new String[] { // LAST LINE  beginning with ##
-                  "#".repeat(desiredSegmentWidth), // 1. segment (#)
-                  "#".repeat(desiredSegmentWidth), // 2. segment (#)
-                  "#".repeat(desiredSegmentWidth) // 3. segment (#)
-                },
-                desiredSegmentWidth))
-        .append("##"); // End with ##
-    return out.toString(); // Return completed string
+    appendBorderLine(out, w); // LAST LINE of "#", the "bottom lid"
   }
 
   /**
@@ -433,9 +579,8 @@ public class TrainDeparture {
    * displaying information in a formatted manner. The minimum required length is determined by
    * considering the length of each line of significant content and selecting the longest one. The
    * method takes into account the length of the train number, destination, and comment lines. The
-   * standard segment width is set to 25, where each line is assumed to be 3 segments long. The
-   * method iteratively increases the desired segment width until it is sufficient to accommodate
-   * the minimum required length.
+   * standard segment width is set to 25, where each line is assumed to be 3 segments long, and is
+   * increased to the smallest width sufficient to accommodate the minimum required length.
    *
    * @return The calculated desired segment width that ensures proper formatting of information.
    */
@@ -444,28 +589,79 @@ public class TrainDeparture {
     // significant length and using the longest
     int minimumRequiredLength = Integer.max(46 + line.length() + trainNumber.length(),
             Integer.max(13 + destination.length(), 9 + comment.length()));
-    int desiredSegmentWidth = 25; // Standard segment width. Each line is 3 segments long
-    // Increase the desiredSegment width until sufficient
-    while (desiredSegmentWidth * 3 < minimumRequiredLength) {
-      desiredSegmentWidth++;
+    // Standard segment width is 25. Otherwise, round up to a whole number of characters.
+    return Integer.max(25, (minimumRequiredLength + 2) / 3);
+  }
+
+  /**
+   * Appends a line of "#" framing the departure, without a line break.
+   *
+   * @param out The output to append to.
+   * @param w The desired segment width.
+   * @throws IOException if the output fails.
+   */
+  private static void appendBorderLine(Appendable out, int w) throws IOException {
+    for (int i = 0; i < 3 * w + 4; i++) {
+      out.append('#');
     }
-    return desiredSegmentWidth;
   }
 
   /**
-   * Creates a formatted line by concatenating an array of strings, adjusting spacing for each
-   * segment based on the desired segment width.
+   * Appends text to a line of information.
    *
-   * @param parts An array of strings representing the segments to be concatenated.
-   * @param desiredSegmentWidth The desired width for each segment.
-   * @return A formatted line containing concatenated segments with adjusted spacing.
-   */
-  private String createInfoLine(String[] parts, int desiredSegmentWidth) {
-    StringBuilder out = new StringBuilder();
-    for (int i = 0; i < parts.length; i++) {
-      out.append(parts[i]);
-      out.append(" ".repeat(Integer.max(desiredSegmentWidth * (i + 1) - out.length(), 0)));
+   * @param out The output to append to.
+   * @param text The text.
+   * @return Number of characters appended.
+   * @throws IOException if the output fails.
+   */
+  private static int append(Appendable out, String text) throws IOException {
+    out.append(text);
+    return text.length();
+  }
+
+  /**
+   * Pads the last segment of a line of information and ends the line.
+   *
+   * @param out The output to append to.
+   * @param column Number of characters written of the segments of the line.
+   * @param w The desired segment width.
+   * @throws IOException if the output fails.
+   */
+  private static void endInfoLine(Appendable out, int column, int w) throws IOException {
+    padTo(out, column, 3 * w);
+    out.append(" #\n");
+  }
+
+  /**
+   * Appends spaces until the segments of the line reach the given column. Appends nothing if they
+   * already do, so a segment that is too long pushes the rest of the line to the right.
+   *
+   * @param out The output to append to.
+   * @param column Number of characters written of the segments of the line.
+   * @param target The column to pad to.
+   * @return The column after padding.
+   * @throws IOException if the output fails.
+   */
+  private static int padTo(Appendable out, int column, int target) throws IOException {
+    for (; column < target; column++) {
+      out.append(' ');
     }
-    return out.toString();
+    return column;
+  }
+
+  /**
+   * Appends a time given in minutes in the format "HH:MM", the same as LocalTime.toString().
+   *
+   * @param out The output to append to.
+   * @param minutes The time in minutes.
+   * @return Number of characters appended.
+   * @throws IOException if the output fails.
+   */
+  private static int appendTime(Appendable out, int minutes) throws IOException {
+    int hours = minutes / 60;
+    int mins = minutes % 60;
+    out.append((char) ('0' + hours / 10)).append((char) ('0' + hours % 10)).append(':')
+        .append((char) ('0' + mins / 10)).append((char) ('0' + mins % 10));
+    return 5;
   }
-}
\ No newline at end of file
+}
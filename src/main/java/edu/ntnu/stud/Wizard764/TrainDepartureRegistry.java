@@ -1,36 +1,113 @@
 package edu.ntnu.stud.Wizard764;
 
+import java.io.IOException;
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * The TrainDepartureRegistry class represents a registry for train departures.
  * It allows adding, retrieving, and checking the existence of train departures,
  * as well as getting departures by destination and generating a formatted string
  * containing the complete list of departures.
+ * Departures are kept ordered by both scheduled and actual departure time at all times, so the
+ * list never has to be sorted. For this to hold, departures in the registry must be modified
+ * through the registry (i.e. setDelay(String, LocalTime)) rather than directly.
+ * The registry itself is meant to be changed by one thread at a time. Other threads, such as
+ * board renderers, read immutable snapshots published with publishSnapshot() after a batch of
+ * changes, and never see the registry half-way through a change.
  */
 public class TrainDepartureRegistry {
   /**
-   * List containing TrainDeparture objects representing the train departures.
+   * Departures in the registry by train number, in the order they were added.
    */
-  private ArrayList<TrainDeparture> departures;
+  private LinkedHashMap<String, TrainDeparture> departuresByTrainNumber;
+  /**
+   * Departures ordered by scheduled departure time.
+   */
+  private DepartureTimeIndex departuresByTime;
+  /**
+   * Departures ordered by actual departure time, i.e. including delay.
+   */
+  private DepartureTimeIndex departuresByTimeIncDelay;
+  /**
+   * Departures grouped by destination, each group ordered by actual departure time. Keyed by the
+   * destination in lower case so case-insensitive and prefix searches are simple range lookups.
+   */
+  private TreeMap<String, DepartureTimeIndex> departuresByDestination;
+  /**
+   * Departures with a track grouped by track, each group ordered by actual departure time. The
+   * highest track in use is the last key.
+   */
+  private TreeMap<Short, DepartureTimeIndex> departuresByTrack;
+  /**
+   * The order departures are listed in by toString(). Insertion order until one of the sort
+   * methods selects one of the time indexes.
+   */
+  private Iterable<TrainDeparture> boardOrder;
+  /**
+   * Counts changes to the registry. Every change to the departures increments it.
+   */
+  private long version;
+  /**
+   * Train numbers of departures added or changed since the last snapshot was published.
+   */
+  private HashSet<String> changedSinceSnapshot;
+  /**
+   * Whether every departure has changed since the last snapshot was published.
+   */
+  private boolean allChangedSinceSnapshot;
+  /**
+   * The last published snapshot. Volatile so readers on other threads see it fully built.
+   */
+  private volatile RegistrySnapshot snapshot;
+  /**
+   * Listeners told about every change, in the order they were added.
+   */
+  private ArrayList<RegistryListener> listeners;
+  /**
+   * Delivers events to subscribers. Always the first listener.
+   */
+  private final DepartureEventPublisher events;
 
   /**
    * Constructor for TrainDepartureRegistry. Initializes the list of departures.
    */
   TrainDepartureRegistry() {
-    departures = new ArrayList<>();
+    departuresByTrainNumber = new LinkedHashMap<>();
+    departuresByTime = new DepartureTimeIndex();
+    departuresByTimeIncDelay = new DepartureTimeIndex();
+    departuresByDestination = new TreeMap<>();
+    departuresByTrack = new TreeMap<>();
+    boardOrder = departuresByTrainNumber.values();
+    version = 0;
+    changedSinceSnapshot = new HashSet<>();
+    allChangedSinceSnapshot = false;
+    snapshot = new RegistrySnapshot(0, new TrainDeparture[0], new TrainDeparture[0],
+        new HashMap<>());
+    listeners = new ArrayList<>();
+    events = new DepartureEventPublisher();
+    listeners.add(events);
   }
 
   /**
    * Initializes TrainDepartureRegistry by list of departures.
    *
    * @param departures Array of departures to add to the registry.
+   * @throws IllegalArgumentException if two departures share the same identification number.
    */
   TrainDepartureRegistry(TrainDeparture[] departures) {
     this();
-    this.departures.addAll(Arrays.asList(departures));
+    for (TrainDeparture departure : departures) {
+      addDeparture(departure);
+    }
   }
 
   /**
@@ -41,13 +118,158 @@ public class TrainDepartureRegistry {
    *                                  number already exists (IDs must be unique).
    */
   void addDeparture(TrainDeparture departure) throws IllegalArgumentException {
-    departures.forEach(x -> {
-      if (x.getTrainNumber().equals(departure.getTrainNumber())) {
-        String s = "A departure with that identification number already exists. ID must be unique.";
-        throw new IllegalArgumentException(s);
-      }
-    });
-    departures.add(departure);
+    if (departuresByTrainNumber.putIfAbsent(departure.getTrainNumber(), departure) != null) {
+      String s = "A departure with that identification number already exists. ID must be unique.";
+      throw new IllegalArgumentException(s);
+    }
+    departuresByTime.add(departure.getDepartureTimeInMinutes(), departure);
+    departuresByTimeIncDelay.add(departure.getDepartureTimeIncDelayInMinutes(), departure);
+    addToDestinationIndex(departure);
+    addToTrackIndex(departure);
+    changed(departure);
+    for (RegistryListener listener : listeners) {
+      listener.departureAdded(version, departure);
+    }
+  }
+
+  /**
+   * Removes a departure from the registry, whether or not it has left.
+   *
+   * @param trainNumber Train number of the departure to remove.
+   * @return The removed departure.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist.
+   */
+  TrainDeparture removeDeparture(String trainNumber) throws IllegalArgumentException {
+    TrainDeparture departure = requireDeparture(trainNumber);
+    departuresByTrainNumber.remove(trainNumber);
+    departuresByTime.remove(departure.getDepartureTimeInMinutes(), departure);
+    departuresByTimeIncDelay.remove(departure.getDepartureTimeIncDelayInMinutes(), departure);
+    removeFromDestinationIndex(departure);
+    removeFromTrackIndex(departure);
+    removed(departure);
+    return departure;
+  }
+
+  /**
+   * Adds a listener that is told about every change to the registry from now on.
+   *
+   * @param listener The listener to add.
+   */
+  void addListener(RegistryListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Subscribes to events for every change to the registry from now on. Unlike listeners,
+   * subscriptions may be opened and closed from any thread, and subscribers take events from
+   * their own queue on their own thread, so the registry is never held up by them.
+   *
+   * @param capacity Highest number of events queued for the subscriber.
+   * @param policy What to do with events when the queue is full.
+   * @return The subscription. Closing it ends the subscription.
+   * @throws IllegalArgumentException if the capacity is not positive.
+   */
+  public DepartureSubscription subscribe(int capacity,
+                                         DepartureSubscription.OverflowPolicy policy)
+      throws IllegalArgumentException {
+    return events.subscribe(capacity, policy);
+  }
+
+  /**
+   * Removes a listener added with addListener(RegistryListener).
+   *
+   * @param listener The listener to remove.
+   */
+  void removeListener(RegistryListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Records that a departure was removed.
+   *
+   * @param departure The removed departure.
+   */
+  private void removed(TrainDeparture departure) {
+    // Removed departures are left out of the next snapshot, no need to mark them as changed.
+    version++;
+    for (RegistryListener listener : listeners) {
+      listener.departureRemoved(version, departure);
+    }
+  }
+
+  /**
+   * Records that a departure was added or changed.
+   *
+   * @param departure The departure that changed.
+   */
+  private void changed(TrainDeparture departure) {
+    version++;
+    changedSinceSnapshot.add(departure.getTrainNumber());
+  }
+
+  /**
+   * Adds a departure with a track to the track index under its actual departure time.
+   *
+   * @param departure The departure to add.
+   */
+  private void addToTrackIndex(TrainDeparture departure) {
+    if (departure.getTrack() != -1) {
+      departuresByTrack.computeIfAbsent(departure.getTrack(), t -> new DepartureTimeIndex())
+          .add(departure.getDepartureTimeIncDelayInMinutes(), departure);
+    }
+  }
+
+  /**
+   * Removes a departure from the track index, dropping the track if it was the last departure
+   * there. Departures without a track are not in the index.
+   *
+   * @param departure The departure to remove.
+   */
+  private void removeFromTrackIndex(TrainDeparture departure) {
+    if (departure.getTrack() == -1) {
+      return;
+    }
+    DepartureTimeIndex index = departuresByTrack.get(departure.getTrack());
+    index.remove(departure.getDepartureTimeIncDelayInMinutes(), departure);
+    if (index.isEmpty()) {
+      departuresByTrack.remove(departure.getTrack());
+    }
+  }
+
+  /**
+   * Adds a departure to the destination index under its actual departure time.
+   *
+   * @param departure The departure to add.
+   */
+  private void addToDestinationIndex(TrainDeparture departure) {
+    departuresByDestination
+        .computeIfAbsent(destinationKey(departure.getDestination()), d -> new DepartureTimeIndex())
+        .add(departure.getDepartureTimeIncDelayInMinutes(), departure);
+  }
+
+  /**
+   * Removes a departure from the destination index, dropping the destination if it was the last
+   * departure there.
+   *
+   * @param departure The departure to remove.
+   */
+  private void removeFromDestinationIndex(TrainDeparture departure) {
+    String key = destinationKey(departure.getDestination());
+    DepartureTimeIndex index = departuresByDestination.get(key);
+    index.remove(departure.getDepartureTimeIncDelayInMinutes(), departure);
+    if (index.isEmpty()) {
+      departuresByDestination.remove(key);
+    }
+  }
+
+  /**
+   * Normalizes a destination for use as key in the destination index.
+   *
+   * @param destination The destination to normalize.
+   * @return The destination in lower case.
+   */
+  private static String destinationKey(String destination) {
+    return destination.toLowerCase(Locale.ROOT);
   }
 
   /**
@@ -58,12 +280,11 @@ public class TrainDepartureRegistry {
    * @throws IllegalArgumentException if the departure does not exist.
    */
   TrainDeparture getDeparture(String trainNumIn) throws IllegalArgumentException {
-    for (TrainDeparture departure : departures) {
-      if (departure.getTrainNumber().equals(trainNumIn)) {
-        return departure;
-      }
+    TrainDeparture departure = departuresByTrainNumber.get(trainNumIn);
+    if (departure == null) {
+      throw new IllegalArgumentException("Departure does not exist.");
     }
-    throw new IllegalArgumentException("Departure does not exist.");
+    return departure;
   }
 
   /**
@@ -73,23 +294,23 @@ public class TrainDepartureRegistry {
    * @return true if the departure exists, false otherwise.
    */
   boolean departureExists(String trainNumIn) {
-    try {
-      getDeparture(trainNumIn);
-      return true;
-    } catch (IllegalArgumentException e) {
-      return false;
-    }
+    return departuresByTrainNumber.containsKey(trainNumIn);
   }
 
   /**
    * Retrieves an array of train departures based on the provided destination.
    *
    * @param destinationIn The destination to filter departures.
-   * @return An array of TrainDeparture objects with the specified destination.
+   * @return An array of TrainDeparture objects with the specified destination,
+   *     ordered by actual departure time.
    */
   TrainDeparture[] getDeparturesByDestination(String destinationIn) {
-    ArrayList<TrainDeparture> tempResult = new ArrayList<>();
-    for (TrainDeparture departure : departures) {
+    DepartureTimeIndex index = departuresByDestination.get(destinationKey(destinationIn));
+    if (index == null) {
+      return new TrainDeparture[0];
+    }
+    ArrayList<TrainDeparture> tempResult = new ArrayList<>(index.size());
+    for (TrainDeparture departure : index) {
       if (departure.getDestination().equals(destinationIn)) {
         tempResult.add(departure);
       }
@@ -98,32 +319,117 @@ public class TrainDepartureRegistry {
   }
 
   /**
-   * Finds the highest track number used.
-   * @return Returns 0 if no departures exist, -1 if no tracks are set.
+   * Retrieves an array of train departures based on the provided destination, ignoring case.
+   *
+   * @param destinationIn The destination to filter departures.
+   * @return An array of TrainDeparture objects with the specified destination,
+   *     ordered by actual departure time.
    */
-  public short getHighestTrackNo() {
-    short highestTrackNo = 0;
-    for (TrainDeparture t : departures) {
-      highestTrackNo = (short) Integer.max(highestTrackNo, t.getTrack());
+  TrainDeparture[] getDeparturesByDestinationIgnoreCase(String destinationIn) {
+    DepartureTimeIndex index = departuresByDestination.get(destinationKey(destinationIn));
+    if (index == null) {
+      return new TrainDeparture[0];
     }
-    return highestTrackNo;
+    ArrayList<TrainDeparture> tempResult = new ArrayList<>(index.size());
+    index.forEach(tempResult::add);
+    return tempResult.toArray(new TrainDeparture[0]);
   }
 
   /**
-   * Unsets all tracks higher than provided limit.
+   * Retrieves an array of train departures with a destination starting with the provided prefix,
+   * ignoring case. I.e. "tron" matches both "Trondheim" and "Trondheim S".
+   *
+   * @param prefix The start of the destinations to search for.
+   * @return An array of TrainDeparture objects with a matching destination,
+   *     ordered by actual departure time.
+   */
+  TrainDeparture[] getDeparturesByDestinationPrefix(String prefix) {
+    String from = destinationKey(prefix);
+    ArrayList<TrainDeparture> tempResult = new ArrayList<>();
+    for (DepartureTimeIndex index
+        : departuresByDestination.subMap(from, from + Character.MAX_VALUE).values()) {
+      index.forEach(tempResult::add);
+    }
+    // Each destination is already in order, only the destinations need merging.
+    tempResult.sort(new DepartureComparatorIncDelay());
+    return tempResult.toArray(new TrainDeparture[0]);
+  }
+
+  /**
+   * Finds the highest track number used. Read straight from the track index.
+   * @return Returns 0 if no departures have a track set.
+   */
+  public short getHighestTrackNo() {
+    return departuresByTrack.isEmpty() ? 0 : departuresByTrack.lastKey();
+  }
+
+  /**
+   * Unsets all tracks higher than provided limit. Only the departures on those tracks are
+   * touched, found through the track index.
    *
    * @param limit Highest track number allowed.
    * @return Returns number of tracks unset.
    */
   public int unsetTrackBelowLimit(short limit) {
-    int departuresUnset = 0;
-    for (TrainDeparture t : departures) {
-      if (t.getTrack() > limit) {
-        t.unsetTrack();
-        departuresUnset++;
+    SortedMap<Short, DepartureTimeIndex> aboveLimit = departuresByTrack.tailMap(limit, false);
+    ArrayList<TrainDeparture> unset = new ArrayList<>();
+    for (DepartureTimeIndex index : aboveLimit.values()) {
+      index.forEach(unset::add);
+    }
+    aboveLimit.clear();
+    for (TrainDeparture t : unset) {
+      short previousTrack = t.getTrack();
+      t.unsetTrack();
+      changed(t);
+      for (RegistryListener listener : listeners) {
+        listener.trackChanged(version, t, previousTrack);
       }
     }
-    return departuresUnset;
+    return unset.size();
+  }
+
+  /**
+   * Gets the departures leaving from a track within a period, i.e. the next hour.
+   *
+   * @param track The track.
+   * @param from Start of the period.
+   * @param durationMins Length of the period in minutes. The period may run past midnight, to
+   *     include departures delayed into the next day.
+   * @return The departures leaving from the track at or after from and before the end of the
+   *     period, ordered by actual departure time.
+   */
+  TrainDeparture[] getDeparturesByTrack(short track, LocalTime from, int durationMins) {
+    int fromMins = from.getHour() * 60 + from.getMinute();
+    return getDeparturesByTrackBetween(track, fromMins, fromMins + durationMins);
+  }
+
+  /**
+   * Gets the departures leaving from a track from one minute up to another.
+   *
+   * @param track The track.
+   * @param fromMins The earliest actual departure time to include, in minutes into the day.
+   * @param toMins The first actual departure time not to include, in minutes into the day.
+   * @return The departures ordered by actual departure time.
+   */
+  TrainDeparture[] getDeparturesByTrackBetween(short track, int fromMins, int toMins) {
+    DepartureTimeIndex index = departuresByTrack.get(track);
+    if (index == null) {
+      return new TrainDeparture[0];
+    }
+    return index.getBetween(fromMins, toMins).toArray(new TrainDeparture[0]);
+  }
+
+  /**
+   * Checks whether any departure leaves from a track from one minute up to another.
+   *
+   * @param track The track.
+   * @param fromMins The earliest actual departure time to include, in minutes into the day.
+   * @param toMins The first actual departure time not to include, in minutes into the day.
+   * @return true if at least one departure leaves from the track in the range.
+   */
+  boolean hasDeparturesOnTrackBetween(short track, int fromMins, int toMins) {
+    DepartureTimeIndex index = departuresByTrack.get(track);
+    return index != null && index.hasBetween(fromMins, toMins);
   }
 
   /**
@@ -131,23 +437,23 @@ public class TrainDepartureRegistry {
    * METACOMMENT-NOTE: In actual use it would make sense for this method to fetch the current time,
    *     but the task description asks for time to be adjusted manually.
    * Final version will be private. Public for test purposes.
+   * All departures leaving before the given time are found by a single range lookup in the
+   * index ordered by actual departure time and dropped together.
    *
    * @param currentTime The current time.
+   * @return The deleted departures ordered by actual departure time, so they may be archived.
    */
-  public void deleteOldDepartures(LocalTime currentTime) {
-    if (departures.isEmpty()) {
-      return;
-    }
-    sortDeparturesByTimeIncDelay();
+  public TrainDeparture[] deleteOldDepartures(LocalTime currentTime) {
     final int currentTimeMins = currentTime.getHour() * 60 + currentTime.getMinute();
-    int currentDepActDepartureTimeMins = departures.get(0).getDepartureTimeIncDelayInMinutes();
-    while (currentDepActDepartureTimeMins < currentTimeMins) {
-      departures.remove(0);
-      if (departures.isEmpty()) {
-        return;
-      }
-      currentDepActDepartureTimeMins = departures.get(0).getDepartureTimeIncDelayInMinutes();
+    ArrayList<TrainDeparture> expired = departuresByTimeIncDelay.removeBefore(currentTimeMins);
+    for (TrainDeparture departure : expired) {
+      departuresByTrainNumber.remove(departure.getTrainNumber());
+      departuresByTime.remove(departure.getDepartureTimeInMinutes(), departure);
+      removeFromDestinationIndex(departure);
+      removeFromTrackIndex(departure);
+      removed(departure);
     }
+    return expired.toArray(new TrainDeparture[0]);
   }
 
   /**
@@ -158,14 +464,13 @@ public class TrainDepartureRegistry {
    * @throws IllegalArgumentException Throws exception if departure doesn't exist.
    */
   public void setComment(String trainNumber, String comment) throws IllegalArgumentException {
-    for (TrainDeparture t : departures) {
-      if (t.getTrainNumber().equals(trainNumber)) {
-        t.setComment(comment);
-        return;
-      }
+    TrainDeparture departure = requireDeparture(trainNumber);
+    String previousComment = departure.getComment();
+    departure.setComment(comment);
+    changed(departure);
+    for (RegistryListener listener : listeners) {
+      listener.commentChanged(version, departure, previousComment);
     }
-    String ex = "\"No departure exists with train number: " + trainNumber + ".";
-    throw new IllegalArgumentException();
   }
 
   /**
@@ -176,14 +481,20 @@ public class TrainDepartureRegistry {
    * @throws IllegalArgumentException Throws exception if departure doesn't exist.
    */
   public void setDelay(String trainNumber, LocalTime delay) throws IllegalArgumentException {
-    for (TrainDeparture t : departures) {
-      if (t.getTrainNumber().equals(trainNumber)) {
-        t.setDelay(delay);
-        return;
-      }
+    TrainDeparture departure = requireDeparture(trainNumber);
+    int previousDelayMins = departure.getDelayInMinutes();
+    // Only indexes ordered by actual departure time depend on delay and need repositioning.
+    departuresByTimeIncDelay.remove(departure.getDepartureTimeIncDelayInMinutes(), departure);
+    removeFromDestinationIndex(departure);
+    removeFromTrackIndex(departure);
+    departure.setDelay(delay);
+    departuresByTimeIncDelay.add(departure.getDepartureTimeIncDelayInMinutes(), departure);
+    addToDestinationIndex(departure);
+    addToTrackIndex(departure);
+    changed(departure);
+    for (RegistryListener listener : listeners) {
+      listener.delayChanged(version, departure, previousDelayMins);
     }
-    String ex = "\"No departure exists with train number: " + trainNumber + ".";
-    throw new IllegalArgumentException();
   }
 
   /**
@@ -194,29 +505,146 @@ public class TrainDepartureRegistry {
    * @throws IllegalArgumentException Throws exception if departure doesn't exist.
    */
   public void setTrack(String trainNumber, short track) throws IllegalArgumentException {
-    for (TrainDeparture t : departures) {
-      if (t.getTrainNumber().equals(trainNumber)) {
-        t.setTrack(track);
-        return;
+    TrainDeparture departure = requireDeparture(trainNumber);
+    short previousTrack = departure.getTrack();
+    TrainDeparture.checkTrack(track); // throws IllegalArgumentException
+    removeFromTrackIndex(departure);
+    departure.setTrack(track);
+    addToTrackIndex(departure);
+    changed(departure);
+    for (RegistryListener listener : listeners) {
+      listener.trackChanged(version, departure, previousTrack);
+    }
+  }
+
+  /**
+   * Applies a batch of changes to departures together, i.e. when a signalling fault delays many
+   * trains at once. Updates to departures that don't exist are rejected, the rest are applied in
+   * order. Every departure whose actual departure time or track changes is taken out of the
+   * indexes depending on them once, and put back once after all its changes, however many there
+   * are. Listeners are only told after the whole batch is applied, with one departureUpdated call
+   * for each departure changed, in order of first change, giving its state before and after the
+   * batch. Each departure changed counts as one version, however many of its fields changed.
+   *
+   * @param updates The updates, in the order to apply them.
+   * @return Whether each update was applied.
+   */
+  public BatchUpdateReport applyUpdates(List<DepartureUpdate> updates) {
+    BatchUpdateReport report = new BatchUpdateReport(updates.size());
+    // The departure each update applies to, null if rejected.
+    TrainDeparture[] targets = new TrainDeparture[updates.size()];
+    // Copy of each departure changed from before the batch, in order of first change.
+    LinkedHashMap<TrainDeparture, TrainDeparture> previous = new LinkedHashMap<>();
+    HashSet<TrainDeparture> delayed = new HashSet<>();
+    HashSet<TrainDeparture> retracked = new HashSet<>();
+    for (int i = 0; i < targets.length; i++) {
+      DepartureUpdate update = updates.get(i);
+      TrainDeparture departure = departuresByTrainNumber.get(update.getTrainNumber());
+      if (departure == null) {
+        report.updateRejected(i, "No departure exists with train number: "
+            + update.getTrainNumber() + ".");
+        continue;
+      }
+      targets[i] = departure;
+      previous.computeIfAbsent(departure, TrainDeparture::new);
+      switch (update.getType()) {
+        case DELAY -> delayed.add(departure);
+        case TRACK -> retracked.add(departure);
+        case COMMENT -> { }
+        default -> throw new Error("Error. Default condition executed unexpectedly.");
+      }
+    }
+    for (TrainDeparture departure : previous.keySet()) {
+      if (delayed.contains(departure)) {
+        departuresByTimeIncDelay.remove(departure.getDepartureTimeIncDelayInMinutes(), departure);
+        removeFromDestinationIndex(departure);
+      }
+      if (delayed.contains(departure) || retracked.contains(departure)) {
+        removeFromTrackIndex(departure);
+      }
+    }
+    for (int i = 0; i < targets.length; i++) {
+      if (targets[i] != null) {
+        DepartureUpdate update = updates.get(i);
+        switch (update.getType()) {
+          case DELAY -> targets[i].setDelay(update.getDelay());
+          case TRACK -> targets[i].setTrack(update.getTrack());
+          case COMMENT -> targets[i].setComment(update.getComment());
+          default -> throw new Error("Error. Default condition executed unexpectedly.");
+        }
       }
     }
-    String ex = "\"No departure exists with train number: " + trainNumber + ".";
-    throw new IllegalArgumentException();
+    for (TrainDeparture departure : previous.keySet()) {
+      if (delayed.contains(departure)) {
+        departuresByTimeIncDelay.add(departure.getDepartureTimeIncDelayInMinutes(), departure);
+        addToDestinationIndex(departure);
+      }
+      if (delayed.contains(departure) || retracked.contains(departure)) {
+        addToTrackIndex(departure);
+      }
+    }
+    for (Map.Entry<TrainDeparture, TrainDeparture> change : previous.entrySet()) {
+      changed(change.getKey());
+      for (RegistryListener listener : listeners) {
+        listener.departureUpdated(version, change.getKey(), change.getValue());
+      }
+    }
+    return report;
   }
 
   /**
-   * Private method to sort the list of departures by time using DepartureComparator.
+   * Looks up a departure by train number for modification.
+   *
+   * @param trainNumber Train number of the departure.
+   * @return The departure with the given train number.
+   * @throws IllegalArgumentException Throws exception if departure doesn't exist.
+   */
+  private TrainDeparture requireDeparture(String trainNumber) throws IllegalArgumentException {
+    TrainDeparture departure = departuresByTrainNumber.get(trainNumber);
+    if (departure == null) {
+      String ex = "No departure exists with train number: " + trainNumber + ".";
+      throw new IllegalArgumentException(ex);
+    }
+    return departure;
+  }
+
+  /**
+   * Lists departures by scheduled departure time from now on. The departures are always kept in
+   * order, so this only selects which order toString() uses.
    */
   public void sortDeparturesByTime() {
-    departures.sort(new DepartureComparator());
+    boardOrder = departuresByTime;
   }
 
   /**
-   * Private method to sort the list of departures by actual departure time
-   * using DepartureComparatorIncDelay.
+   * Lists departures by actual departure time from now on. The departures are always kept in
+   * order, so this only selects which order toString() uses.
    */
   public void sortDeparturesByTimeIncDelay() {
-    departures.sort(new DepartureComparatorIncDelay());
+    boardOrder = departuresByTimeIncDelay;
+  }
+
+  /**
+   * Gets the next departures leaving at or after the given time, including delay.
+   *
+   * @param time The time to list departures from.
+   * @param limit Maximum number of departures to return.
+   * @return Up to limit departures ordered by actual departure time.
+   */
+  TrainDeparture[] getNextDepartures(LocalTime time, int limit) {
+    return getNextDepartures(time.getHour() * 60 + time.getMinute(), limit);
+  }
+
+  /**
+   * Gets the next departures leaving at or after the given minute, including delay.
+   *
+   * @param timeMins The time to list departures from in minutes into the service day. May be
+   *     1440 or more to list only departures delayed past midnight.
+   * @param limit Maximum number of departures to return.
+   * @return Up to limit departures ordered by actual departure time.
+   */
+  TrainDeparture[] getNextDepartures(int timeMins, int limit) {
+    return departuresByTimeIncDelay.getFrom(timeMins, limit).toArray(new TrainDeparture[0]);
   }
 
   /**
@@ -225,7 +653,7 @@ public class TrainDepartureRegistry {
    * @return Number of TrainDeparture objects stored in the registry.
    */
   public int getNoDepartures() {
-    return departures.size();
+    return departuresByTrainNumber.size();
   }
 
   /**
@@ -234,7 +662,82 @@ public class TrainDepartureRegistry {
    * @param state New comment state.
    */
   public void setCommentState(boolean state) {
-    departures.forEach(t -> t.setCommentState(state));
+    departuresByTrainNumber.values().forEach(t -> t.setCommentState(state));
+    version++;
+    allChangedSinceSnapshot = true;
+    for (RegistryListener listener : listeners) {
+      listener.commentStateChanged(version, state);
+    }
+  }
+
+  /**
+   * Gets the current version of the registry. The version increases with every change.
+   *
+   * @return The current version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Sets the version of a registry restored from a saved snapshot, so versions keep counting
+   * from where the saved registry left off instead of from the number of departures restored.
+   *
+   * @param restoredVersion The version of the saved snapshot.
+   * @throws IllegalArgumentException if the version is lower than the current version.
+   */
+  void restoreVersion(long restoredVersion) throws IllegalArgumentException {
+    if (restoredVersion < version) {
+      throw new IllegalArgumentException("Version can't be lower than the current version.");
+    }
+    version = restoredVersion;
+  }
+
+  /**
+   * Publishes an immutable snapshot of the registry as it is now, for readers on any thread.
+   * Should be called by the thread changing the registry after each batch of changes. Only
+   * departures changed since the last snapshot are copied, the rest are shared with it.
+   *
+   * @return The published snapshot. The previous snapshot if nothing has changed since.
+   */
+  public RegistrySnapshot publishSnapshot() {
+    RegistrySnapshot previous = snapshot;
+    if (previous.getVersion() == version) {
+      return previous;
+    }
+    HashMap<String, TrainDeparture> copies = new HashMap<>(departuresByTrainNumber.size() * 2);
+    for (TrainDeparture departure : departuresByTrainNumber.values()) {
+      String trainNumber = departure.getTrainNumber();
+      TrainDeparture copy = null;
+      if (!allChangedSinceSnapshot && !changedSinceSnapshot.contains(trainNumber)
+          && previous.departureExists(trainNumber)) {
+        copy = previous.getDeparture(trainNumber);
+      }
+      copies.put(trainNumber, copy == null ? new TrainDeparture(departure) : copy);
+    }
+    TrainDeparture[] byTime = new TrainDeparture[copies.size()];
+    int i = 0;
+    for (TrainDeparture departure : departuresByTime) {
+      byTime[i++] = copies.get(departure.getTrainNumber());
+    }
+    TrainDeparture[] byTimeIncDelay = new TrainDeparture[copies.size()];
+    i = 0;
+    for (TrainDeparture departure : departuresByTimeIncDelay) {
+      byTimeIncDelay[i++] = copies.get(departure.getTrainNumber());
+    }
+    changedSinceSnapshot.clear();
+    allChangedSinceSnapshot = false;
+    snapshot = new RegistrySnapshot(version, byTime, byTimeIncDelay, copies);
+    return snapshot;
+  }
+
+  /**
+   * Gets the last published snapshot. Safe to call from any thread.
+   *
+   * @return The last snapshot published with publishSnapshot().
+   */
+  public RegistrySnapshot getSnapshot() {
+    return snapshot;
   }
 
   /**
@@ -245,10 +748,32 @@ public class TrainDepartureRegistry {
    */
   @Override
   public String toString() {
-    StringBuilder out = new StringBuilder("Complete list of departures:");
-    for (TrainDeparture departure : departures) {
-      out.append("\n").append(departure.toString());
-    }
-    return out.toString();
+    return BoardWriter.toString(BoardWriter.COMPLETE_BOARD_TITLE, boardOrder);
+  }
+
+  /**
+   * Writes the complete list of departures, in the same format and order as toString(),
+   * straight to an output without building the whole board in memory.
+   *
+   * @param out The output to write to, i.e. a Writer or a PrintStream.
+   * @throws IOException if the output fails.
+   */
+  public void writeBoard(Appendable out) throws IOException {
+    BoardWriter.write(out, BoardWriter.COMPLETE_BOARD_TITLE, boardOrder);
+  }
+
+  /**
+   * Writes a page of the board, the next departures leaving at or after the given time
+   * including delay, straight to an output.
+   *
+   * @param out The output to write to, i.e. a Writer or a PrintStream.
+   * @param from The time to list departures from.
+   * @param limit Maximum number of departures to write.
+   * @throws IOException if the output fails.
+   */
+  public void writeBoard(Appendable out, LocalTime from, int limit) throws IOException {
+    int fromMins = from.getHour() * 60 + from.getMinute();
+    BoardWriter.write(out, BoardWriter.nextDeparturesTitle(from),
+        departuresByTimeIncDelay.getFrom(fromMins, limit));
   }
 }
\ No newline at end of file
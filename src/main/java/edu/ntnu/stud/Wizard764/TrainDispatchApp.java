@@ -1,15 +1,31 @@
 package edu.ntnu.stud.Wizard764;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 /** This is the main class for the train dispatch application. */
 public class TrainDispatchApp {
   /**
    * The main method of the application.
    *
-   * @param args arguments
+   * @param args arguments, optionally either the number of departures to generate instead of the
+   *     test departures, or a directory to keep departures in between runs. Optionally followed
+   *     by a port to serve the board on over HTTP.
+   * @throws IOException if the departures kept in the directory can't be restored, or the port
+   *     can't be listened on.
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
     UserInterface ui = new UserInterface();
-    ui.init();
+    if (args.length == 0) {
+      ui.init();
+    } else if (!args[0].isEmpty() && args[0].chars().allMatch(Character::isDigit)) {
+      ui.init(Integer.parseInt(args[0]));
+    } else {
+      ui.init(Path.of(args[0]));
+    }
+    if (args.length > 1) {
+      ui.startBoardServer(Integer.parseInt(args[1]));
+    }
     ui.start();
   }
-}
\ No newline at end of file
+}
@@ -1,34 +1,114 @@
 package edu.ntnu.stud.Wizard764;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Class to handle the user interface as well as high level program flow.
  */
 public class UserInterface {
+  /**
+   * Seed of the timetable generated by init(int).
+   */
+  private static final long DEMO_SEED = 2023;
+  /**
+   * Number of rejected rows listed after an import.
+   */
+  private static final int MAX_IMPORT_ERRORS_SHOWN = 20;
+  /**
+   * Time in milliseconds between checkpoints of the registry.
+   */
+  private static final long CHECKPOINT_INTERVAL_MILLIS = 60_000;
+  /**
+   * Longest time in milliseconds a change is kept in memory before it is forced to disk.
+   */
+  private static final long COMMIT_WINDOW_MILLIS = 20;
+  /**
+   * Number of threads answering requests to the board server.
+   */
+  private static final int BOARD_SERVER_THREADS = 4;
+  /**
+   * Milliseconds between each time departures that have left are removed, when the system time
+   * follows the system clock.
+   */
+  private static final long EXPIRY_TICK_MILLIS = 60_000;
+  /**
+   * Minutes a departure occupies its track before it leaves, until changed in the settings.
+   */
+  private static final int DEFAULT_DWELL_MINS = 5;
   private TrainDepartureRegistry tdr;
   private java.util.Scanner sc;
-  private LocalTime systemTime;
   private short noTracks;
   private int maxNoDepartures;
   private boolean mainRunningFlag;
   private boolean commentState;
+  /**
+   * Directory the registry is kept in between runs, or null if it isn't kept.
+   */
+  private Path dataDirectory;
+  /**
+   * Journal of changes to the registry, or null if it isn't kept.
+   */
+  private Journal journal;
+  /**
+   * Saves checkpoints of the registry in the background, or null if it isn't kept.
+   */
+  private Checkpointer checkpointer;
+  /**
+   * The system time of the application. Stopped at 00:00 until the user sets it, unless the
+   * registry is kept in a directory, in which case it follows the system clock.
+   */
+  private AdjustableClock clock;
+  /**
+   * Removes departures as they leave the system time. Its time is the system time of the
+   * application.
+   */
+  private DepartureExpiryWheel expiryWheel;
+  /**
+   * Held while the registry is changed, so the expiry wheel doesn't remove departures in the
+   * middle of a menu action.
+   */
+  private final ReentrantLock registryLock;
+  /**
+   * Serves the board over HTTP, or null if it isn't served.
+   */
+  private DepartureBoardServer boardServer;
+  /**
+   * Warns about departures assigned the same track at overlapping times.
+   */
+  private TrackConflictDetector conflictDetector;
 
   /**
    * Constructor that initializes member variables.
    */
   public UserInterface() {
     sc = new Scanner(System.in);
+    registryLock = new ReentrantLock();
     tdr = new TrainDepartureRegistry();
-    systemTime = LocalTime.of(0, 0);
     noTracks = 100;
     maxNoDepartures = 2000;
     mainRunningFlag = true;
     commentState = true;
+    dataDirectory = null;
+    journal = null;
+    checkpointer = null;
+    clock = AdjustableClock.startOfToday(ZoneId.systemDefault());
+    expiryWheel = null;
+    boardServer = null;
+    conflictDetector = null;
   }
 
   /**
@@ -50,12 +130,76 @@ public class UserInterface {
     }
   }
 
+  /**
+   * Initialization method for demos and load testing.
+   * Fills the registry with a generated timetable, the same on every run, instead of test code.
+   *
+   * @param noDepartures Number of departures to generate.
+   * @throws IllegalArgumentException if the number of departures is negative.
+   */
+  public void init(int noDepartures) throws IllegalArgumentException {
+    new TimetableGenerator(DEMO_SEED).loadInto(tdr, noDepartures);
+    maxNoDepartures = Integer.max(maxNoDepartures, noDepartures);
+  }
+
+  /**
+   * Initialization method restoring the registry kept by previous runs.
+   * The registry is restored from the last checkpoint, and changes made after it are repeated
+   * from the journal, so changes survive a crash as well. From now on every change is journaled,
+   * and checkpoints are saved in the background and when the user exits. If the directory
+   * doesn't exist yet, the registry starts out empty. As the registry outlives each run, the
+   * system time follows the system clock, and departures are removed as they leave once the user
+   * interface has started.
+   *
+   * @param directory Directory the registry is kept in.
+   * @throws IOException if the registry can't be restored or the journal can't be started.
+   */
+  public void init(Path directory) throws IOException {
+    dataDirectory = directory;
+    clock = new AdjustableClock(Clock.systemDefaultZone());
+    Path snapshotFile = Checkpointer.snapshotFile(directory);
+    if (Files.exists(snapshotFile)) {
+      tdr = SnapshotFile.read(snapshotFile);
+    }
+    int noReplayed = Journal.replay(directory, tdr);
+    journal = Journal.open(directory, tdr, COMMIT_WINDOW_MILLIS);
+    List<TrainDeparture> restored = tdr.publishSnapshot().getDeparturesByTime();
+    if (!restored.isEmpty()) {
+      commentState = restored.get(0).getCommentState();
+    }
+    checkpointer = new Checkpointer(directory, tdr, journal, CHECKPOINT_INTERVAL_MILLIS);
+    maxNoDepartures = Integer.max(maxNoDepartures, tdr.getNoDepartures());
+    printlnColor(ColorDictionary.GREEN, "Restored " + tdr.getNoDepartures()
+        + " departure(s) from " + directory + " (" + noReplayed + " change(s) from journal).");
+  }
+
+  /**
+   * Serves the board as JSON over HTTP on the local machine while the application runs.
+   * Should be called after the init method, as the registry may be replaced by it.
+   *
+   * @param port The port to listen on.
+   * @throws IOException if the port can't be listened on.
+   */
+  public void startBoardServer(int port) throws IOException {
+    tdr.publishSnapshot();
+    boardServer = DepartureBoardServer.start(tdr, port, BOARD_SERVER_THREADS);
+    printlnColor(ColorDictionary.GREEN, "Serving departures on http://localhost:"
+        + boardServer.getPort() + "/departures");
+  }
+
   /**
    * "Main program method"
    * Runs the user interface and manages the train departure registry based on user input.
    */
   public void start() {
     System.out.println("\n\n\n#####   TRAIN DISPATCH SYSTEM   #####");
+    // Nothing is removed until the system time moves, by hand or by the clock ticking.
+    expiryWheel = new DepartureExpiryWheel(tdr, clock);
+    if (dataDirectory != null) {
+      expiryWheel.startTicking(EXPIRY_TICK_MILLIS, registryLock,
+          expired -> tdr.publishSnapshot());
+    }
+    conflictDetector = new TrackConflictDetector(tdr, DEFAULT_DWELL_MINS);
     while (mainRunningFlag) {
       runMainMenu();
     }
@@ -68,6 +212,7 @@ public class UserInterface {
     String[] testOpts = {ColorDictionary.BLACK + "\u001B[47mMain menu:" + ColorDictionary.RESET,
                          "Display departures",
                          "Add departure",
+                         "Import departures from CSV file",
                          "Search for departure (by train number or destination)",
                          "Modify departure (comment, delay, track)",
                          ColorDictionary.BLUE
@@ -78,20 +223,68 @@ public class UserInterface {
                                  + ColorDictionary.RESET
                                  + "\nSelect: "};
     int chosen = runOptionBasedMenu(testOpts);
-    switch (chosen) {
-      case 1 -> printInformationBoard();
-      case 2 -> addDeparture();
-      case 3 -> searchForDeparture();
-      case 4 -> modifyDeparture();
-      case 5 -> runSettingsMenu();
-      case 6 -> mainRunningFlag = false;
-      default -> throw new Error("Error. Default condition executed unexpectedly.");
+    registryLock.lock();
+    try {
+      switch (chosen) {
+        case 1 -> printInformationBoard();
+        case 2 -> addDeparture();
+        case 3 -> importDepartures();
+        case 4 -> searchForDeparture();
+        case 5 -> modifyDeparture();
+        case 6 -> runSettingsMenu();
+        case 7 -> exit();
+        default -> throw new Error("Error. Default condition executed unexpectedly.");
+      }
+      // For the checkpointer and board server, which read the registry on their own threads.
+      tdr.publishSnapshot();
+    } finally {
+      registryLock.unlock();
     }
     if (mainRunningFlag) {
       pressEnterToContinue("Press ENTER to return to main menu");
     }
   }
 
+  /**
+   * Stops the application. If the registry is kept in a directory, the journal is closed and a
+   * checkpoint is saved first, so the next run restores quickly.
+   */
+  private void exit() {
+    if (dataDirectory != null) {
+      try {
+        journal.sync();
+      } catch (IOException e) {
+        printlnColor(ColorDictionary.RED, "Could not write journal: " + e.getMessage());
+        System.out.println("Exit anyway? Recent changes may be lost.");
+        if (!inputBinaryDecision()) {
+          return;
+        }
+      }
+    }
+    expiryWheel.close(); // Nothing is removed after the final checkpoint.
+    if (dataDirectory != null) {
+      checkpointer.close();
+      try {
+        journal.close();
+      } catch (IOException e) {
+        // Nothing has changed since sync(), which already reported any failure.
+      }
+      try {
+        tdr.publishSnapshot();
+        checkpointer.checkpoint();
+        printlnColor(ColorDictionary.GREEN,
+            "Saved " + tdr.getNoDepartures() + " departure(s) to " + dataDirectory);
+      } catch (IOException e) {
+        // Every change is in the journal, so the next run can still restore them.
+        printlnColor(ColorDictionary.RED, "Could not save snapshot: " + e.getMessage());
+      }
+    }
+    if (boardServer != null) {
+      boardServer.close();
+    }
+    mainRunningFlag = false;
+  }
+
   /**
    * Generates user-presentable string for comment state.
    *
@@ -161,6 +354,7 @@ public class UserInterface {
     //Confirm information is correct with user.
     System.out.println("Confirm the information below is correct: ");
     System.out.println(newDeparture);
+    warnTrackConflicts(conflictDetector.checkDeparture(newDeparture));
     if (inputBinaryDecision()) { //If information is correct
       tdr.addDeparture(newDeparture); //Add departure to registry
       noDepsAdded++; //Increment number of departures added.
@@ -185,13 +379,25 @@ public class UserInterface {
   }
 
   /**
-   * Takes user input to update system time.
+   * Gets the system time, i.e. the time of the expiry wheel, which has removed every departure
+   * that left before it.
+   *
+   * @return The system time.
+   */
+  private LocalTime getSystemTime() {
+    return expiryWheel.getTime();
+  }
+
+  /**
+   * Takes user input to move the system time forward. If the system time follows the system
+   * clock, it runs on from the new time.
    * New time must be after current time.
    * Also deletes (now) past departures.
    */
   private void setSystemTime() {
     while (true) {
       try {
+        LocalTime systemTime = getSystemTime();
         System.out.println("Current time: " + systemTime);
         String prompt = "Enter new system time on the format 'HH:MM': ";
         String error = "System time must be on the format '12:34' (without quotation marks)";
@@ -204,11 +410,9 @@ public class UserInterface {
         printlnColor(ColorDictionary.YELLOW, warning);
         System.out.println("Confirm new system time: " + in);
         if (inputBinaryDecision()) {
-          systemTime = in;
-          printlnColor(ColorDictionary.GREEN, "Successfully changed system time to: " + systemTime);
-          int noDepsDeleted = tdr.getNoDepartures();
-          tdr.deleteOldDepartures(systemTime);
-          noDepsDeleted -= tdr.getNoDepartures();
+          clock.setTime(in);
+          int noDepsDeleted = expiryWheel.advance().length;
+          printlnColor(ColorDictionary.GREEN, "Successfully changed system time to: " + in);
           printlnColor(ColorDictionary.GREEN, noDepsDeleted + " departure(s) were deleted.");
           return;
         }
@@ -220,6 +424,28 @@ public class UserInterface {
     }
   }
 
+  /**
+   * Imports departures from a CSV file named by the user, and lists rows that were rejected.
+   */
+  private void importDepartures() {
+    System.out.println("Columns: time, line, train number, destination, delay, track, comment");
+    String path = inputEnforceNotEmpty("Enter path of CSV file: ", "You must enter a path.");
+    TimetableCsvImporter importer = new TimetableCsvImporter(noTracks, maxNoDepartures);
+    try {
+      CsvImportReport report = importer.importFile(tdr, Path.of(path));
+      List<String> errors = report.getErrors();
+      for (int i = 0; i < Integer.min(errors.size(), MAX_IMPORT_ERRORS_SHOWN); i++) {
+        printlnColor(ColorDictionary.RED, errors.get(i));
+      }
+      if (errors.size() > MAX_IMPORT_ERRORS_SHOWN) {
+        System.out.println("... and " + (errors.size() - MAX_IMPORT_ERRORS_SHOWN) + " more.");
+      }
+      printlnColor(ColorDictionary.GREEN, report.toString());
+    } catch (IOException | InvalidPathException e) {
+      printlnColor(ColorDictionary.RED, "Could not read file: " + e.getMessage());
+    }
+  }
+
   /**
    * Allows user to search for one or more departure,
    * either by train number or destination.
@@ -228,11 +454,13 @@ public class UserInterface {
   private void searchForDeparture() {
     String[] opts = {"Search for departure(s) by:",
                      "Train number",
-                     "Destination\nSelect: "};
+                     "Destination",
+                     "Track conflicts\nSelect: "};
     int chosen = runOptionBasedMenu(opts);
     switch (chosen) {
       case 1 -> searchDepartureByTrainNumber();
       case 2 -> searchDeparturesByDestination();
+      case 3 -> searchTrackConflicts();
       default -> throw new Error("Error. Default condition executed unexpectedly.");
     }
     System.out.println("Would you like to search for more departures?");
@@ -366,7 +594,10 @@ public class UserInterface {
                          "Number of tracks, i.e.: max track number (Current: " + noTracks + ")",
                          "Max number of departures (Current: " + maxNoDepartures + ")",
                          "Toggle comments (CURRENT: " + getCommentStateStr() + ")",
-                         "Set system time (Current time: " + systemTime + ")",
+                         "Set system time (Current time: " + getSystemTime() + ")",
+                         "Track dwell time (Current: " + conflictDetector.getDwellMins()
+                       + " min)",
+                         "Assign tracks to departures without one",
                          ColorDictionary.RESET + "Return to main menu\n"
                        + "Select: "};
       int chosen = runOptionBasedMenu(prompt);
@@ -375,7 +606,9 @@ public class UserInterface {
         case 2 -> modifyMaxNoDepartures();
         case 3 -> toggleComments();
         case 4 -> setSystemTime();
-        case 5 -> {
+        case 5 -> modifyDwellTime();
+        case 6 -> assignTracks();
+        case 7 -> {
           return;
         }
         default -> throw new Error("Error. Default condition executed unexpectedly.");
@@ -499,6 +732,7 @@ public class UserInterface {
     LocalTime delay = inputDelay(departureTime, prompt, error, false);
     int departureTimeMins = departureTime.getHour() * 60 + departureTime.getMinute();
     int delayMins = delay.getHour() * 60 + delay.getMinute();
+    LocalTime systemTime = getSystemTime();
     int systemTimeMins = systemTime.getHour() * 60 + systemTime.getMinute();
     boolean chain = true;
     if (departureTimeMins + delayMins < systemTimeMins) {
@@ -513,8 +747,18 @@ public class UserInterface {
         return true;
       }
     }
+    TrainDeparture[] conflicts = chain
+        ? conflictDetector.checkDelay(trainNumber, delay) : new TrainDeparture[0];
+    if (conflicts.length > 0) {
+      warnTrackConflicts(conflicts);
+      System.out.println("Are you sure you want to proceed?");
+      if (!inputBinaryDecision()) {
+        printlnColor(ColorDictionary.GREEN, "Delay remains unchanged.");
+        return true;
+      }
+    }
     tdr.setDelay(trainNumber, delay);
-    tdr.deleteOldDepartures(systemTime);
+    expiryWheel.advance(); // Removes the departure if the delay moved it into the past.
     return chain;
   }
 
@@ -533,16 +777,116 @@ public class UserInterface {
     }
     String error = "Track must be a positive number below " + Short.MAX_VALUE;
     short track = inputTrack("Enter track: ", error);
+    TrainDeparture[] conflicts = conflictDetector.checkTrack(trainNumber, track);
+    if (conflicts.length > 0) {
+      warnTrackConflicts(conflicts);
+      System.out.println("Are you sure you want to proceed?");
+      if (!inputBinaryDecision()) {
+        printlnColor(ColorDictionary.GREEN, "Track remains unchanged.");
+        return;
+      }
+    }
     tdr.setTrack(trainNumber, track);
   }
 
+  /**
+   * Warns the user about departures a change would put on the same track at overlapping times.
+   * Prints nothing if there are none.
+   *
+   * @param conflicts The conflicting departures.
+   */
+  private void warnTrackConflicts(TrainDeparture[] conflicts) {
+    if (conflicts.length == 0) {
+      return;
+    }
+    printlnColor(ColorDictionary.YELLOW, "WARNING: Track is occupied by " + conflicts.length
+            + " other departure(s) within " + conflictDetector.getDwellMins() + " minute(s):");
+    for (TrainDeparture conflict : conflicts) {
+      printlnColor(ColorDictionary.YELLOW, "  " + conflict.getTrainNumber() + " leaving "
+              + conflict.getDepartureTimeIncDelay() + " from track " + conflict.getTrack());
+    }
+  }
+
+  /**
+   * Lists every pair of departures assigned the same track at overlapping times.
+   */
+  private void searchTrackConflicts() {
+    List<TrainDeparture[]> conflicts = conflictDetector.findAllConflicts();
+    if (conflicts.isEmpty()) {
+      printlnColor(ColorDictionary.GREEN, "No track conflicts found.");
+      return;
+    }
+    printlnColor(ColorDictionary.YELLOW, "Found " + conflicts.size() + " track conflict(s):");
+    for (TrainDeparture[] pair : conflicts) {
+      System.out.println("Track " + pair[0].getTrack() + ": " + pair[0].getTrainNumber()
+              + " leaving " + pair[0].getDepartureTimeIncDelay() + " and "
+              + pair[1].getTrainNumber() + " leaving " + pair[1].getDepartureTimeIncDelay());
+    }
+  }
+
+  /**
+   * Assigns tracks to every departure without one, within the track limit and without causing
+   * track conflicts. Lists the departures no track could be found for.
+   */
+  private void assignTracks() {
+    TrackAssigner assigner =
+        new TrackAssigner(tdr, noTracks, conflictDetector.getDwellMins());
+    List<TrainDeparture> unplaced = assigner.assignTracks();
+    printlnColor(ColorDictionary.GREEN, "Assigned tracks to " + assigner.getNoAssigned()
+            + " departure(s).");
+    if (!unplaced.isEmpty()) {
+      printlnColor(ColorDictionary.YELLOW, "WARNING: No free track was found for "
+              + unplaced.size() + " departure(s):");
+      for (TrainDeparture departure : unplaced) {
+        printlnColor(ColorDictionary.YELLOW, "  " + departure.getTrainNumber() + " leaving "
+                + departure.getDepartureTimeIncDelay());
+      }
+    }
+  }
+
+  /**
+   * Modifies the dwell time used to find track conflicts using user input.
+   */
+  private void modifyDwellTime() {
+    System.out.println("Dwell time decides how many minutes a departure occupies its track"
+            + " before it leaves.");
+    System.out.println("Current dwell time: " + conflictDetector.getDwellMins() + " min");
+    while (true) { //Loop persists until valid input is given.
+      try {
+        System.out.print("Enter new dwell time in minutes: ");
+        conflictDetector.setDwellMins(Integer.parseInt(sc.nextLine()));
+        break;
+      } catch (NumberFormatException e) {
+        printlnColor(ColorDictionary.RED, "Please enter a valid integer on the format '5'"
+                + " (without quotation marks).");
+      } catch (IllegalArgumentException e) {
+        printlnColor(ColorDictionary.RED, e.getMessage());
+      }
+    }
+    printlnColor(ColorDictionary.GREEN,
+            "Dwell time was successfully changed to: " + conflictDetector.getDwellMins() + " min");
+  }
+
   /**
    * Prints a visual representation of all departures stored in the registry to the console.
    * Departures are sorted by departure time, not including delay.
+   * The board is streamed to the console one departure at a time. Neither PrintWriter nor
+   * System.out throw when writing fails, so the error state of both is checked once the board is
+   * flushed.
    */
   public void printInformationBoard() {
-    tdr.sortDeparturesByTime();
-    System.out.println(tdr);
+    // Buffered and wrapping System.out directly, so checkError() also checks System.out. Not
+    // closed, as that would close System.out.
+    PrintWriter out = new PrintWriter(System.out);
+    try {
+      tdr.publishSnapshot().writeBoard(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // PrintWriter never throws.
+    }
+    out.println();
+    if (out.checkError()) { // Flushes the board first.
+      printlnColor(ColorDictionary.RED, "Could not print information board.");
+    }
   }
 
   /**
@@ -712,6 +1056,7 @@ public class UserInterface {
                                String error, boolean enforceValid) {
     LocalTime delay;
     int depTimeMins = departureTime.getHour() * 60 + departureTime.getMinute();
+    LocalTime systemTime = getSystemTime();
     int systemTimeMins = systemTime.getHour() * 60 + systemTime.getMinute();
     while (true) {
       try {
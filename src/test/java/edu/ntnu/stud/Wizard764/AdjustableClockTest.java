@@ -0,0 +1,51 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for AdjustableClock
+ * Tests class methods, including use as the clock of a DepartureExpiryWheel.
+ */
+public class AdjustableClockTest {
+  @Test
+  public void stoppedUntilSetTest() {
+    AdjustableClock clock = AdjustableClock.startOfToday(ZoneOffset.UTC);
+    LocalDateTime start = LocalDateTime.now(clock);
+    assert(start.toLocalTime().equals(LocalTime.MIN));
+    assert(start.toLocalDate().equals(LocalDate.now(ZoneOffset.UTC)));
+    clock.setTime(LocalTime.of(9, 30));
+    assert(LocalDateTime.now(clock).equals(start.toLocalDate().atTime(9, 30)));
+    clock.setTime(LocalTime.of(12, 0));
+    assert(LocalTime.now(clock).equals(LocalTime.of(12, 0)));
+  }
+
+  @Test
+  public void runsOnFromTimeSetTest() {
+    AdjustableClock clock = new AdjustableClock(Clock.systemUTC());
+    clock.setTime(LocalTime.of(10, 0));
+    Duration sinceSet = Duration.between(LocalTime.of(10, 0), LocalTime.now(clock));
+    assert(!sinceSet.isNegative() && sinceSet.compareTo(Duration.ofMinutes(1)) < 0);
+  }
+
+  @Test
+  public void wheelExpiresOnlyWhenTimeIsSetTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(0, 5), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 0), "B2", "BR456", "Bergen"));
+    AdjustableClock clock = AdjustableClock.startOfToday(ZoneOffset.UTC);
+    DepartureExpiryWheel wheel = new DepartureExpiryWheel(tdr, clock);
+    assert(wheel.advance().length == 0);
+    assert(wheel.getTime().equals(LocalTime.MIN) && tdr.getNoDepartures() == 2);
+    clock.setTime(LocalTime.of(9, 0));
+    TrainDeparture[] expired = wheel.advance();
+    assert(expired.length == 1 && expired[0].getTrainNumber().equals("AR123"));
+    assert(wheel.getTime().equals(LocalTime.of(9, 0)));
+    wheel.close();
+  }
+}
@@ -0,0 +1,139 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for BoardChangeTracker and BoardDiff
+ * Tests class methods, including negative tests where applicable.
+ */
+public class BoardChangeTrackerTest {
+  /**
+   * Checks that a copy of the board holds the same departures as a snapshot.
+   *
+   * @param board The copy of the board.
+   * @param snapshot The snapshot.
+   */
+  private static void assertSameBoard(TrainDepartureRegistry board, RegistrySnapshot snapshot) {
+    assert(board.getNoDepartures() == snapshot.getNoDepartures());
+    for (TrainDeparture t : snapshot.getDeparturesByTime()) {
+      assert(board.getDeparture(t.getTrainNumber()).toString().equals(t.toString()));
+    }
+  }
+
+  @Test
+  public void diffsKeepCopyUpToDateTest() {
+    TimetableGenerator generator = new TimetableGenerator(5);
+    TrainDepartureRegistry tdr = generator.generateRegistry(500);
+    BoardChangeTracker tracker = new BoardChangeTracker(tdr, 1000);
+    TrainDepartureRegistry board = new TrainDepartureRegistry();
+    BoardDiff first = tracker.diff(-1, tdr.publishSnapshot());
+    assert(first.isFull());
+    first.applyTo(board);
+    long boardVersion = first.getToVersion();
+    Random random = new Random(5);
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < 10; i++) {
+        String trainNumber = "T" + (1 + random.nextInt(500));
+        if (!tdr.departureExists(trainNumber)) {
+          continue;
+        }
+        switch (random.nextInt(4)) {
+          case 0 -> tdr.setDelay(trainNumber, LocalTime.of(0, random.nextInt(3)));
+          case 1 -> tdr.setTrack(trainNumber, (short) (1 + random.nextInt(9)));
+          case 2 -> tdr.setComment(trainNumber, "Round " + round);
+          default -> tdr.removeDeparture(trainNumber);
+        }
+      }
+      generator.loadInto(tdr, 2);
+      RegistrySnapshot snapshot = tdr.publishSnapshot();
+      BoardDiff diff = tracker.diff(boardVersion, snapshot);
+      assert(!diff.isFull());
+      assert(diff.getAdded().size() == 2);
+      assert(diff.getAdded().size() + diff.getModified().size() + diff.getRemoved().size() <= 12);
+      diff.applyTo(board);
+      boardVersion = diff.getToVersion();
+      assertSameBoard(board, snapshot);
+    }
+    assert(tracker.diff(boardVersion, tdr.getSnapshot()).isEmpty());
+  }
+
+  @Test
+  public void fullDiffWhenBehindTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    BoardChangeTracker tracker = new BoardChangeTracker(tdr, 2);
+    long start = tdr.getVersion();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 15), "B2", "BR456", "Bergen"));
+    tdr.setComment("AR123", "Cancelled");
+    tdr.setComment("AR123", "Delayed"); // Same departure, so still only two kept.
+    assert(!tracker.diff(start, tdr.publishSnapshot()).isFull());
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 15), "C3", "CR789", "Trondheim"));
+    BoardDiff diff = tracker.diff(start, tdr.publishSnapshot());
+    assert(diff.isFull());
+    assert(diff.getAdded().size() == 3);
+    assert(tracker.getOldestVersion() > start);
+    // A removed departure that was added after the version diffed from is left out.
+    long before = tdr.getVersion();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(11, 15), "D4", "DR012", "Oslo"));
+    tdr.removeDeparture("DR012");
+    assert(tracker.diff(before, tdr.publishSnapshot()).isEmpty());
+  }
+
+  @Test
+  public void commentStateTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo",
+        (short) -1, "Cancelled"));
+    BoardChangeTracker tracker = new BoardChangeTracker(tdr, 10);
+    long start = tdr.publishSnapshot().getVersion();
+    tdr.setCommentState(false);
+    RegistrySnapshot snapshot = tdr.publishSnapshot();
+    assert(snapshot.getVersion() > start);
+    // Every departure is displayed differently, so the diff must hold all of them.
+    BoardDiff diff = tracker.diff(start, snapshot);
+    assert(diff.isFull());
+    assert(diff.getAdded().size() == 1);
+    assert(tracker.diff(snapshot.getVersion(), snapshot).isEmpty());
+  }
+
+  @Test
+  public void writeToTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 0), "B2", "BR456", "Bergen"));
+    BoardChangeTracker tracker = new BoardChangeTracker(tdr, 10);
+    long start = tdr.publishSnapshot().getVersion();
+    tdr.setDelay("AR123", LocalTime.of(0, 5));
+    tdr.setComment("AR123", "Say \"hi\", driver");
+    tdr.removeDeparture("BR456");
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 0), "C3", "CR789", "Trondheim",
+        (short) 3, ""));
+    String text = tracker.diff(start, tdr.publishSnapshot()).toString();
+    assert(text.equals("diff,2,6\n"
+        + "+,10:00,C3,CR789,Trondheim,,3,\n"
+        + "~,08:15,A1,AR123,Oslo,00:05,,\"Say \"\"hi\"\", driver\"\n"
+        + "-,BR456"));
+  }
+
+  @Test
+  public void invalidArgumentsTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    try {
+      new BoardChangeTracker(tdr, 0);
+      throw new Error("Test failed. Tracker accepted capacity of zero.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    BoardChangeTracker tracker = new BoardChangeTracker(tdr, 10);
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    try {
+      tracker.diff(tdr.getVersion(), tdr.getSnapshot());
+      throw new Error("Test failed. Diff from a version later than the snapshot.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    tracker.close();
+  }
+}
@@ -0,0 +1,87 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test-class for Checkpointer
+ * Tests class methods, including negative tests where applicable.
+ */
+public class CheckpointerTest {
+  /**
+   * Restores a registry the way the application does on startup.
+   *
+   * @param dir The data directory.
+   * @return The restored registry.
+   * @throws IOException if the registry can't be restored.
+   */
+  private static TrainDepartureRegistry restore(Path dir) throws IOException {
+    Path snapshotFile = Checkpointer.snapshotFile(dir);
+    TrainDepartureRegistry tdr = Files.exists(snapshotFile)
+        ? SnapshotFile.read(snapshotFile) : new TrainDepartureRegistry();
+    Journal.replay(dir, tdr);
+    return tdr;
+  }
+
+  @Test
+  public void checkpointDeletesJournalBehindItTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    Checkpointer checkpointer = new Checkpointer(dir, tdr, journal, 60_000);
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 100; i++) {
+        tdr.addDeparture(new TrainDeparture(i, "L1", "T" + round + "-" + i, "Oslo", 0,
+            (short) -1, ""));
+      }
+      journal.sync();
+      tdr.publishSnapshot();
+      assert(checkpointer.checkpoint() == tdr.getVersion());
+    }
+    // Only the segment written since the second checkpoint is kept.
+    assert(Journal.listSegments(dir).size() == 1);
+    tdr.setDelay("T0-5", LocalTime.of(0, 30)); // After the last checkpoint.
+    checkpointer.close();
+    journal.close();
+
+    TrainDepartureRegistry restored = restore(dir);
+    assert(restored.getNoDepartures() == 300);
+    assert(restored.getVersion() == tdr.getVersion());
+    assert(restored.getDeparture("T0-5").getDelayInMinutes() == 30);
+  }
+
+  @Test
+  public void backgroundCheckpointTest(@TempDir Path dir)
+      throws IOException, InterruptedException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    Checkpointer checkpointer = new Checkpointer(dir, tdr, journal, 10);
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.publishSnapshot();
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (!Files.exists(Checkpointer.snapshotFile(dir))
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    checkpointer.close();
+    journal.close();
+    assert(checkpointer.getFailure() == null);
+    assert(SnapshotFile.read(Checkpointer.snapshotFile(dir)).departureExists("AR123"));
+  }
+
+  @Test
+  public void invalidIntervalTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    try {
+      new Checkpointer(dir, tdr, journal, 0);
+      throw new Error("Test failed. Checkpointer accepted interval of zero.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    journal.close();
+  }
+}
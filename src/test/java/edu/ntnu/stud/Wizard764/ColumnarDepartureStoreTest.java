@@ -0,0 +1,139 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for ColumnarDepartureStore
+ * Tests class methods, including negative tests where applicable.
+ */
+public class ColumnarDepartureStoreTest {
+  @Test
+  public void addAndGetDepartureTest() {
+    ColumnarDepartureStore store = new ColumnarDepartureStore();
+    store.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim",
+        LocalTime.of(0, 5), (short) 3, "Few tickets left"));
+    store.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    TrainDeparture t = store.getDeparture("AR762");
+    assert(t.getDepartureTimeInMinutes() == 12 * 60 + 31);
+    assert(t.getDelayInMinutes() == 5);
+    assert(t.getLine().equals("F4"));
+    assert(t.getDestination().equals("Trondheim"));
+    assert(t.getTrack() == 3);
+    assert(t.getComment().equals("Few tickets left"));
+    assert(store.getDeparture("AR123").getTrack() == -1);
+    assert(store.departureExists("AR123"));
+    assert(!store.departureExists("AR76"));
+    assert(store.getNoDepartures() == 2);
+  }
+
+  @Test
+  public void addDuplicateDepartureTest() {
+    ColumnarDepartureStore store = new ColumnarDepartureStore();
+    store.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "A1", "Trondheim"));
+    try {
+      store.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "A1", "Oslo"));
+      throw new Error("Test failed. Duplicate departures added.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    try {
+      store.addDeparture(9 * 60, "B2", "AR456", "Bergen", 0, (short) -2, "");
+      throw new Error("Test failed. Departure added with invalid track.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  @Test
+  public void modifyDepartureTest() {
+    ColumnarDepartureStore store = new ColumnarDepartureStore();
+    store.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    store.setDelay("AR123", LocalTime.of(0, 10));
+    store.setTrack("AR123", (short) 3);
+    store.setComment("AR123", "Cancelled");
+    TrainDeparture t = store.getDeparture("AR123");
+    assert(t.getDelayInMinutes() == 10);
+    assert(t.getTrack() == 3);
+    assert(t.getComment().equals("Cancelled"));
+    try {
+      store.setTrack("Nonexistent ID", (short) 3);
+      throw new Error("Test failed. Nonexistent departure was modified.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  @Test
+  public void deleteOldDeparturesTest() {
+    ColumnarDepartureStore store = new ColumnarDepartureStore();
+    store.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    store.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    store.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR456", "Trondheim"));
+    store.addDeparture(new TrainDeparture(LocalTime.of(14, 30), "E5", "AR234", "Drammen",
+        LocalTime.of(1, 40)));
+    store.addDeparture(new TrainDeparture(LocalTime.of(16, 5), "F6", "AR567", "Molde"));
+    assert(store.deleteOldDepartures(LocalTime.of(15, 0)) == 3);
+    assert(store.getNoDepartures() == 2);
+    assert(!store.departureExists("AR762"));
+    assert(store.getDeparture("AR234").getDestination().equals("Drammen"));
+    assert(store.getDeparture("AR567").getDestination().equals("Molde"));
+    store.addDeparture(new TrainDeparture(LocalTime.of(18, 15), "A1", "AR123", "Oslo"));
+    assert(store.getDeparture("AR123").getDepartureTimeInMinutes() == 18 * 60 + 15);
+  }
+
+  @Test
+  public void toRegistryTest() {
+    ColumnarDepartureStore store = new ColumnarDepartureStore(new TrainDeparture[]{
+      new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"),
+      new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo")});
+    TrainDepartureRegistry tdr = store.toRegistry();
+    assert(tdr.getNoDepartures() == 2);
+    assert(tdr.getDeparture("AR762").getLine().equals("F4"));
+  }
+
+  @Test
+  public void delayedPastMidnightTest() {
+    ColumnarDepartureStore store = new ColumnarDepartureStore();
+    store.addDeparture(new TrainDeparture(LocalTime.of(23, 30), "N1", "NT1", "Bodø"));
+    store.setDelay("NT1", LocalTime.of(1, 0));
+    TrainDeparture departure = store.getDeparture("NT1");
+    assert(departure.getDelay().equals(LocalTime.of(1, 0)));
+    assert(departure.departsNextDay());
+    TrainDepartureRegistry registry = store.toRegistry();
+    assert(registry.getDeparture("NT1").getDepartureTimeIncDelay().equals(LocalTime.of(0, 30)));
+  }
+
+  @Test
+  public void replacedCommentsReleasedTest() {
+    ColumnarDepartureStore store = new ColumnarDepartureStore();
+    for (int i = 0; i < 100; i++) {
+      store.addDeparture(i, "R" + (i % 5), "AR" + i, "Oslo", 0, (short) -1, "");
+    }
+    store.setComment("AR0", "Start");
+    long before = store.estimateMemoryBytes();
+    for (int i = 0; i < 100_000; i++) {
+      store.setComment("AR" + (i % 100), "Delayed by signal fault number " + i);
+    }
+    // Only the last comment of each departure is kept, so the store is no more than a few times
+    // the size it had.
+    assert(store.estimateMemoryBytes() < 8 * before);
+    assert(store.getDeparture("AR99").getComment().equals("Delayed by signal fault number 99999"));
+    assert(store.getDeparture("AR42").getLine().equals("R2"));
+    assert(store.getDeparture("AR42").getDestination().equals("Oslo"));
+  }
+
+  @Test
+  public void memoryPerDepartureTest() {
+    ColumnarDepartureStore store = new ColumnarDepartureStore();
+    String[] destinations = {"Trondheim", "Oslo", "Bergen", "Stavanger", "Bodø"};
+    int noDepartures = 100_000;
+    for (int i = 0; i < noDepartures; i++) {
+      store.addDeparture(i % (24 * 60), "R" + (i % 80), "AR" + i,
+          destinations[i % destinations.length], 0, (short) (i % 20 + 1), "");
+    }
+    long bytesPerDeparture = store.estimateMemoryBytes() / noDepartures;
+    assert(bytesPerDeparture < 100);
+    assert(store.getDeparture("AR99999").getLine().equals("R79"));
+  }
+}
@@ -0,0 +1,113 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for ConcurrentTrainDepartureRegistry
+ * Tests class methods, including negative tests where applicable.
+ */
+public class ConcurrentTrainDepartureRegistryTest {
+  @Test
+  public void addAndModifyDepartureTest() {
+    ConcurrentTrainDepartureRegistry tdr = new ConcurrentTrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    TrainDeparture before = tdr.getDeparture("AR123");
+    tdr.setDelay("AR123", LocalTime.of(0, 10));
+    tdr.setTrack("AR123", (short) 3);
+    tdr.setComment("AR123", "Few tickets left");
+    TrainDeparture after = tdr.getDeparture("AR123");
+    assert(before.getDelayInMinutes() == 0); // Earlier versions are never changed.
+    assert(after.getDelayInMinutes() == 10);
+    assert(after.getTrack() == 3);
+    assert(after.getComment().equals("Few tickets left"));
+    try {
+      tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR123", "Bergen"));
+      throw new Error("Test failed. Duplicate departures added.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  @Test
+  public void deleteOldDeparturesAndUnsetTracksTest() {
+    ConcurrentTrainDepartureRegistry tdr = new ConcurrentTrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim",
+        (short) 5));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo", (short) 2));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR456", "Bergen",
+        LocalTime.of(3, 0)));
+    assert(tdr.deleteOldDepartures(LocalTime.of(10, 0)).length == 1);
+    assert(tdr.getNoDepartures() == 2);
+    assert(tdr.unsetTrackBelowLimit((short) 4) == 1);
+    assert(tdr.getDeparture("AR762").getTrack() == -1);
+  }
+
+  @Test
+  public void indexesFollowChangesTest() {
+    ConcurrentTrainDepartureRegistry tdr = new ConcurrentTrainDepartureRegistry();
+    for (int i = 0; i < 100; i++) {
+      tdr.addDeparture(new TrainDeparture(600 + i, "L1", "T" + i, "Oslo", 0, (short) (i % 10 + 1),
+          ""));
+    }
+    tdr.setDelay("T0", LocalTime.of(2, 0)); // Leaves 12:00, no longer among the first.
+    tdr.setDelay("T99", LocalTime.of(0, 0));
+    tdr.setTrack("T5", (short) 12);
+    tdr.setTrack("T19", (short) 3); // No longer on track 10.
+    TrainDeparture[] expired = tdr.deleteOldDepartures(LocalTime.of(10, 10));
+    assert(expired.length == 9);
+    for (int i = 0; i < expired.length; i++) {
+      assert(expired[i].getTrainNumber().equals("T" + (i + 1)));
+    }
+    assert(!tdr.departureExists("T5") && tdr.getDeparture("T0").getDelayInMinutes() == 120);
+    // Track 10 remains on T29, T39, ..., T99, and track 12 was deleted with T5.
+    assert(tdr.unsetTrackBelowLimit((short) 9) == 8);
+    assert(tdr.getDeparture("T19").getTrack() == 3 && tdr.getDeparture("T99").getTrack() == -1);
+    assert(tdr.unsetTrackBelowLimit((short) 9) == 0);
+    assert(tdr.deleteOldDepartures(LocalTime.of(12, 0)).length == 90);
+    assert(tdr.getNoDepartures() == 1 && tdr.departureExists("T0"));
+  }
+
+  @Test
+  public void concurrentChangesTest() throws InterruptedException {
+    ConcurrentTrainDepartureRegistry tdr = new ConcurrentTrainDepartureRegistry();
+    int noThreads = 4;
+    int departuresPerThread = 200;
+    for (int i = 0; i < noThreads * departuresPerThread; i++) {
+      tdr.addDeparture(new TrainDeparture(i % (24 * 60), "L1", "T" + i, "Oslo", 0,
+          (short) -1, ""));
+    }
+    Thread[] writers = new Thread[noThreads];
+    for (int w = 0; w < noThreads; w++) {
+      final int first = w * departuresPerThread;
+      writers[w] = new Thread(() -> {
+        for (int round = 1; round <= 20; round++) {
+          for (int i = first; i < first + departuresPerThread; i++) {
+            tdr.setTrack("T" + i, (short) round);
+            tdr.setComment("T" + i, "Round " + round);
+          }
+        }
+      });
+      writers[w].start();
+    }
+    while (writers[0].isAlive()) {
+      for (TrainDeparture t : tdr.getSnapshot()) {
+        // Track and comment are set in separate changes, so they may differ by at most a round.
+        int commentRound = t.getComment().isEmpty()
+            ? 0 : Integer.parseInt(t.getComment().substring(6));
+        int trackRound = Integer.max(t.getTrack(), 0); // Track is -1 before the first round.
+        assert(trackRound == commentRound || trackRound == commentRound + 1);
+      }
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    TrainDeparture[] snapshot = tdr.getSnapshot();
+    assert(snapshot.length == noThreads * departuresPerThread);
+    for (TrainDeparture t : snapshot) {
+      assert(t.getTrack() == 20);
+      assert(t.getComment().equals("Round 20"));
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalTime;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for DepartureBoardServer
+ * Tests class methods, including negative tests where applicable.
+ */
+public class DepartureBoardServerTest {
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  /**
+   * Sends a GET request to a server.
+   *
+   * @param server The server.
+   * @param path Path and query of the request.
+   * @return The response.
+   */
+  private HttpResponse<String> get(DepartureBoardServer server, String path)
+      throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder(
+        URI.create("http://localhost:" + server.getPort() + path)).build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  /**
+   * Makes a registry with three departures, and publishes a snapshot of it.
+   *
+   * @return The registry.
+   */
+  private static TrainDepartureRegistry registry() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo",
+        LocalTime.of(0, 5), (short) 2, "Say \"hi\""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 0), "B2", "BR456", "Bergen"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 0), "C3", "CR789", "Oslo"));
+    tdr.publishSnapshot();
+    return tdr;
+  }
+
+  @Test
+  public void servesJsonTest() throws IOException, InterruptedException {
+    TrainDepartureRegistry tdr = registry();
+    try (DepartureBoardServer server = DepartureBoardServer.start(tdr, 0, 2)) {
+      HttpResponse<String> response = get(server, "/departures/AR123");
+      assert(response.statusCode() == 200);
+      assert(response.headers().firstValue("Content-Type").get().startsWith("application/json"));
+      assert(response.body().equals("{\"version\":3,\"departure\":{\"departureTime\":\"08:15\","
+          + "\"line\":\"A1\",\"trainNumber\":\"AR123\",\"destination\":\"Oslo\","
+          + "\"delay\":\"00:05\",\"actualDepartureTime\":\"08:20\",\"track\":2,"
+          + "\"comment\":\"Say \\\"hi\\\"\"}}"));
+      String next = get(server, "/departures?from=08:30&limit=1").body();
+      assert(next.startsWith("{\"version\":3,\"departures\":[{\"departureTime\":\"09:00\""));
+      assert(next.contains("\"track\":null"));
+      assert(!next.contains("CR789"));
+      String oslo = get(server, "/departures?destination=oslo").body();
+      assert(oslo.indexOf("AR123") < oslo.indexOf("CR789") && !oslo.contains("BR456"));
+      assert(get(server, "/departures/XX999").statusCode() == 404);
+      assert(get(server, "/departures?limit=0").statusCode() == 400);
+      assert(get(server, "/departures?from=25:00").statusCode() == 400);
+      assert(get(server, "/departuresX").statusCode() == 404);
+    }
+  }
+
+  @Test
+  public void cachedPerVersionTest() throws IOException, InterruptedException {
+    TrainDepartureRegistry tdr = registry();
+    try (DepartureBoardServer server = DepartureBoardServer.start(tdr, 0, 2)) {
+      for (int i = 0; i < 50; i++) {
+        // Asks for the same thing in different ways.
+        assert(get(server, i % 2 == 0 ? "/departures" : "/departures/?limit=20&from=00:00")
+            .statusCode() == 200);
+      }
+      assert(server.getNoRendered() == 1);
+      // Changes aren't served until a snapshot is published.
+      tdr.setTrack("BR456", (short) 4);
+      assert(!get(server, "/departures").body().contains("\"track\":4"));
+      tdr.publishSnapshot();
+      assert(get(server, "/departures").body().contains("\"track\":4"));
+      assert(server.getNoRendered() == 2);
+    }
+  }
+
+  @Test
+  public void notModifiedTest() throws IOException, InterruptedException {
+    TrainDepartureRegistry tdr = registry();
+    try (DepartureBoardServer server = DepartureBoardServer.start(tdr, 0, 1)) {
+      HttpResponse<String> first = get(server, "/departures");
+      String tag = first.headers().firstValue("ETag").get();
+      HttpRequest poll = HttpRequest.newBuilder(
+          URI.create("http://localhost:" + server.getPort() + "/departures"))
+          .header("If-None-Match", tag).build();
+      assert(client.send(poll, HttpResponse.BodyHandlers.ofString()).statusCode() == 304);
+      tdr.setComment("AR123", "");
+      tdr.publishSnapshot();
+      assert(client.send(poll, HttpResponse.BodyHandlers.ofString()).statusCode() == 200);
+    }
+  }
+
+  @Test
+  public void changesSinceTest() throws IOException, InterruptedException {
+    TrainDepartureRegistry tdr = registry();
+    try (DepartureBoardServer server = DepartureBoardServer.start(tdr, 0, 2)) {
+      assert(get(server, "/departures?since=3").body().equals(
+          "{\"version\":3,\"fromVersion\":3,\"added\":[],\"modified\":[],\"removed\":[]}"));
+      tdr.setTrack("BR456", (short) 4);
+      tdr.removeDeparture("CR789");
+      tdr.addDeparture(new TrainDeparture(LocalTime.of(11, 0), "D4", "DR012", "Trondheim"));
+      tdr.publishSnapshot();
+      String diff = get(server, "/departures?since=3").body();
+      assert(diff.startsWith("{\"version\":6,\"fromVersion\":3,\"added\":[{"));
+      assert(diff.indexOf("DR012") < diff.indexOf("\"modified\":[{")
+          && diff.indexOf("\"modified\":[{") < diff.indexOf("BR456"));
+      assert(diff.contains("\"track\":4") && !diff.contains("AR123"));
+      assert(diff.endsWith("\"removed\":[\"CR789\"]}"));
+      // A display showing nothing yet is sent every departure.
+      String full = get(server, "/departures?since=-1").body();
+      assert(full.startsWith("{\"version\":6,\"fromVersion\":-1,\"added\":[{"));
+      assert(full.contains("AR123") && full.contains("DR012") && !full.contains("CR789"));
+      assert(get(server, "/departures?since=7").statusCode() == 400);
+      assert(get(server, "/departures?since=-2").statusCode() == 400);
+      assert(get(server, "/departures?since=abc").statusCode() == 400);
+    }
+  }
+
+  @Test
+  public void invalidThreadsTest() throws IOException {
+    try {
+      DepartureBoardServer.start(new TrainDepartureRegistry(), 0, 0);
+      throw new Error("Test failed. Server started without threads.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for DepartureExpiryWheel
+ * Tests class methods, including negative tests where applicable.
+ */
+public class DepartureExpiryWheelTest {
+  /**
+   * Clock that only moves when told to, for simulating a day.
+   */
+  private static class SimulatedClock extends Clock {
+    private LocalDate day = LocalDate.of(2023, 12, 11);
+    private volatile Instant instant = day.atStartOfDay().toInstant(ZoneOffset.UTC);
+
+    void setTime(LocalTime time) {
+      instant = day.atTime(time).toInstant(ZoneOffset.UTC);
+    }
+
+    void setTime(int plusDays, LocalTime time) {
+      day = day.plusDays(plusDays);
+      setTime(time);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+
+  @Test
+  public void expiresWhenLeftTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 0), "B2", "BR456", "Bergen"));
+    DepartureExpiryWheel wheel = new DepartureExpiryWheel(tdr, Clock.systemUTC());
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 5), "C3", "CR789", "Oslo"));
+    assert(wheel.advanceTo(LocalTime.of(8, 15)).length == 1); // CR789, AR123 leaves at 8:15.
+    assert(tdr.departureExists("AR123"));
+    TrainDeparture[] expired = wheel.advanceTo(LocalTime.of(10, 1));
+    assert(expired.length == 2);
+    assert(expired[0].getTrainNumber().equals("AR123"));
+    assert(expired[1].getTrainNumber().equals("BR456"));
+    assert(tdr.getNoDepartures() == 0);
+    assert(wheel.getTime().equals(LocalTime.of(10, 1)));
+  }
+
+  @Test
+  public void delayMovesDepartureTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 0), "B2", "BR456", "Bergen",
+        LocalTime.of(0, 30)));
+    DepartureExpiryWheel wheel = new DepartureExpiryWheel(tdr, Clock.systemUTC());
+    tdr.setDelay("AR123", LocalTime.of(1, 0));
+    assert(wheel.advanceTo(LocalTime.of(9, 0)).length == 0);
+    // Taking the delay off moves the departure into the past, so it leaves right away.
+    tdr.setDelay("BR456", LocalTime.of(0, 0));
+    assert(wheel.advanceTo(LocalTime.of(9, 0)).length == 0);
+    assert(wheel.advanceTo(LocalTime.of(9, 1))[0].getTrainNumber().equals("BR456"));
+    tdr.setDelay("AR123", LocalTime.of(0, 0));
+    assert(wheel.advanceTo(LocalTime.of(9, 1))[0].getTrainNumber().equals("AR123"));
+    assert(tdr.getNoDepartures() == 0);
+  }
+
+  @Test
+  public void sameAsDeleteOldDeparturesTest() {
+    TimetableGenerator generator = new TimetableGenerator(17);
+    generator.setDelays(0.3, 20);
+    TrainDeparture[] departures = generator.generate(3000);
+    TrainDepartureRegistry expected = new TrainDepartureRegistry();
+    TrainDepartureRegistry actual = new TrainDepartureRegistry();
+    for (TrainDeparture t : departures) {
+      expected.addDeparture(new TrainDeparture(t.getDepartureTimeInMinutes(), t.getLine(),
+          t.getTrainNumber(), t.getDestination(), t.getDelayInMinutes(), t.getTrack(), ""));
+      actual.addDeparture(t);
+    }
+    SimulatedClock clock = new SimulatedClock();
+    DepartureExpiryWheel wheel = new DepartureExpiryWheel(actual, clock);
+    for (int minutes = 0; minutes < 24 * 60; minutes += 7) {
+      LocalTime time = LocalTime.of(minutes / 60, minutes % 60);
+      clock.setTime(time);
+      if (minutes % 60 == 0 && expected.departureExists("T" + (minutes + 1))) {
+        expected.setDelay("T" + (minutes + 1), LocalTime.of(2, 0));
+        actual.setDelay("T" + (minutes + 1), LocalTime.of(2, 0));
+      }
+      String[] deleted = Arrays.stream(expected.deleteOldDepartures(time))
+          .map(TrainDeparture::getTrainNumber).sorted().toArray(String[]::new);
+      String[] expired = Arrays.stream(wheel.advance())
+          .map(TrainDeparture::getTrainNumber).sorted().toArray(String[]::new);
+      assert(Arrays.equals(deleted, expired));
+      assert(expected.getNoDepartures() == actual.getNoDepartures());
+    }
+  }
+
+  @Test
+  public void crossesMidnightTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(23, 30), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(23, 50), "B2", "BR456", "Bergen"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(23, 55), "C3", "CR789", "Bodø"));
+    SimulatedClock clock = new SimulatedClock();
+    DepartureExpiryWheel wheel = new DepartureExpiryWheel(tdr, clock);
+    tdr.setDelay("BR456", LocalTime.of(0, 40)); // Leaves 00:30 the next day.
+    tdr.setDelay("CR789", LocalTime.of(3, 0)); // Leaves 02:55 the next day.
+    clock.setTime(LocalTime.of(23, 40));
+    assert(wheel.advance()[0].getTrainNumber().equals("AR123"));
+    clock.setTime(1, LocalTime.of(0, 20));
+    assert(wheel.advance().length == 0);
+    assert(wheel.getTime().equals(LocalTime.of(0, 20)));
+    // Departures of the new day are filed alongside the ones from the day before.
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(0, 25), "D4", "DR012", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(0, 40), "E5", "ER345", "Oslo"));
+    tdr.setDelay("CR789", LocalTime.of(1, 0)); // Leaves 00:55.
+    clock.setTime(LocalTime.of(0, 50));
+    TrainDeparture[] expired = wheel.advance();
+    assert(expired.length == 3);
+    assert(expired[0].getTrainNumber().equals("DR012"));
+    assert(expired[1].getTrainNumber().equals("BR456"));
+    assert(expired[2].getTrainNumber().equals("ER345"));
+    // Two days later, everything from before has left.
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 0), "F6", "FR678", "Oslo"));
+    clock.setTime(2, LocalTime.of(1, 0));
+    expired = wheel.advance();
+    assert(expired.length == 2 && expired[0].getTrainNumber().equals("CR789"));
+    assert(tdr.getNoDepartures() == 0);
+  }
+
+  /**
+   * Waits for a condition to hold, for up to 5 seconds.
+   *
+   * @param condition The condition.
+   * @return true if the condition holds.
+   */
+  private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+    for (int i = 0; i < 1000 && !condition.getAsBoolean(); i++) {
+      Thread.sleep(5);
+    }
+    return condition.getAsBoolean();
+  }
+
+  @Test
+  public void ticksTest() throws InterruptedException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 0), "B2", "BR456", "Bergen"));
+    SimulatedClock clock = new SimulatedClock();
+    DepartureExpiryWheel wheel = new DepartureExpiryWheel(tdr, clock);
+    ReentrantLock lock = new ReentrantLock();
+    AtomicInteger noExpired = new AtomicInteger();
+    wheel.startTicking(5, lock, expired -> noExpired.addAndGet(expired.length));
+    try {
+      wheel.startTicking(5, lock, expired -> { });
+      throw new Error("Test failed. Wheel started ticking twice.");
+    } catch (IllegalStateException e) {
+      System.out.println(e.getMessage());
+    }
+    clock.setTime(LocalTime.of(8, 20));
+    assert(waitFor(() -> noExpired.get() == 1));
+    lock.lock();
+    try {
+      assert(!tdr.departureExists("AR123"));
+      // Nothing is removed while the lock is held.
+      clock.setTime(LocalTime.of(10, 30));
+      Thread.sleep(50);
+      assert(tdr.departureExists("BR456") && noExpired.get() == 1);
+    } finally {
+      lock.unlock();
+    }
+    assert(waitFor(() -> noExpired.get() == 2));
+    wheel.close();
+    lock.lock();
+    try {
+      assert(tdr.getNoDepartures() == 0 && wheel.getTime().equals(LocalTime.of(10, 30)));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Test
+  public void backwardsTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    DepartureExpiryWheel wheel = new DepartureExpiryWheel(tdr, Clock.systemUTC());
+    wheel.advanceTo(LocalTime.of(12, 0));
+    try {
+      wheel.advanceTo(LocalTime.of(11, 59));
+      throw new Error("Test failed. Wheel moved backwards.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    wheel.close();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    assert(wheel.advanceTo(LocalTime.of(13, 0)).length == 0);
+  }
+}
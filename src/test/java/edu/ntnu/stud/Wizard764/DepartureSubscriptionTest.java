@@ -0,0 +1,109 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for DepartureSubscription and the events published by TrainDepartureRegistry
+ * Tests class methods, including negative tests where applicable.
+ */
+public class DepartureSubscriptionTest {
+  @Test
+  public void eventTypesTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    DepartureSubscription subscription =
+        tdr.subscribe(16, DepartureSubscription.OverflowPolicy.DROP_NEWEST);
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.setDelay("AR123", LocalTime.of(0, 10));
+    tdr.setTrack("AR123", (short) 3);
+    tdr.unsetTrackBelowLimit((short) 2);
+    tdr.setComment("AR123", "Cancelled");
+    tdr.setCommentState(false);
+    tdr.deleteOldDepartures(LocalTime.of(9, 0));
+    ArrayList<DepartureEvent> events = new ArrayList<>();
+    assert(subscription.drainTo(events, 100) == 7);
+    DepartureEvent.Type[] expected = {DepartureEvent.Type.ADDED, DepartureEvent.Type.DELAYED,
+        DepartureEvent.Type.TRACK_CHANGED, DepartureEvent.Type.TRACK_UNSET,
+        DepartureEvent.Type.COMMENT_CHANGED, DepartureEvent.Type.COMMENT_STATE_CHANGED,
+        DepartureEvent.Type.EXPIRED};
+    for (int i = 0; i < expected.length; i++) {
+      assert(events.get(i).getType() == expected[i]);
+      assert(events.get(i).getVersion() == i + 1);
+    }
+    // Events hold the departure as it was right after the change.
+    assert(events.get(1).getDeparture().getDelayInMinutes() == 10);
+    assert(events.get(1).getDeparture().getComment().isEmpty());
+    assert(events.get(2).getDeparture().getTrack() == 3);
+    assert(events.get(5).getDeparture() == null);
+    assert(subscription.poll() == null);
+    subscription.close();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 15), "B2", "BR456", "Bergen"));
+    assert(subscription.poll() == null);
+  }
+
+  @Test
+  public void overflowPolicyTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    DepartureSubscription newest =
+        tdr.subscribe(3, DepartureSubscription.OverflowPolicy.DROP_NEWEST);
+    DepartureSubscription oldest =
+        tdr.subscribe(3, DepartureSubscription.OverflowPolicy.DROP_OLDEST);
+    DepartureSubscription closing =
+        tdr.subscribe(3, DepartureSubscription.OverflowPolicy.CLOSE);
+    new TimetableGenerator(1).loadInto(tdr, 5);
+    assert(newest.size() == 3 && newest.getNoDropped() == 2);
+    assert(newest.poll().getVersion() == 1);
+    assert(oldest.size() == 3 && oldest.getNoDropped() == 2);
+    assert(oldest.poll().getVersion() == 3);
+    assert(closing.isClosed() && closing.getNoDropped() == 1);
+    tdr.setComment("T1", "Late");
+    assert(closing.size() == 3);
+    assert(closing.poll(10, TimeUnit.MILLISECONDS).getVersion() == 1);
+  }
+
+  @Test
+  public void slowSubscriberTest() throws InterruptedException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    TimetableGenerator generator = new TimetableGenerator(3);
+    generator.loadInto(tdr, 1000);
+    DepartureSubscription subscription =
+        tdr.subscribe(64, DepartureSubscription.OverflowPolicy.DROP_OLDEST);
+    final long firstVersion = tdr.getVersion() + 1;
+    final int noChanges = 200_000;
+    AtomicLong noReceived = new AtomicLong();
+    AtomicLong outOfOrder = new AtomicLong();
+    Thread subscriber = new Thread(() -> {
+      long lastVersion = 0;
+      DepartureEvent event;
+      while ((event = subscription.poll(1, TimeUnit.SECONDS)) != null) {
+        if (event.getVersion() <= lastVersion || event.getType() != DepartureEvent.Type.DELAYED
+            || event.getVersion() < firstVersion) {
+          outOfOrder.incrementAndGet();
+        }
+        lastVersion = event.getVersion();
+        noReceived.incrementAndGet();
+      }
+    });
+    subscriber.start();
+    for (int i = 0; i < noChanges; i++) {
+      tdr.setDelay("T" + (1 + i % 1000), LocalTime.of(0, i % 2));
+    }
+    subscriber.join();
+    assert(outOfOrder.get() == 0);
+    assert(noReceived.get() + subscription.getNoDropped() == noChanges);
+  }
+
+  @Test
+  public void invalidCapacityTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    try {
+      tdr.subscribe(0, DepartureSubscription.OverflowPolicy.DROP_NEWEST);
+      throw new Error("Test failed. Subscription accepted capacity of zero.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test-class for Journal
+ * Tests class methods, including negative tests where applicable.
+ */
+public class JournalTest {
+  /**
+   * Makes one change of every kind to a registry.
+   *
+   * @param tdr The registry to change.
+   */
+  private static void makeChanges(TrainDepartureRegistry tdr) {
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim",
+        (short) 5));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Bodø"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 45), "B2", "AR456", "Bergen"));
+    tdr.setDelay("AR123", LocalTime.of(1, 0));
+    tdr.setTrack("AR123", (short) 2);
+    tdr.setComment("AR762", "Æ, ø og å");
+    tdr.unsetTrackBelowLimit((short) 4);
+    tdr.deleteOldDepartures(LocalTime.of(9, 0));
+  }
+
+  @Test
+  public void replayRestoresChangesTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    makeChanges(tdr);
+    journal.close();
+
+    TrainDepartureRegistry restored = new TrainDepartureRegistry();
+    assert(Journal.replay(dir, restored) == 8);
+    assert(restored.getVersion() == tdr.getVersion());
+    assert(restored.getNoDepartures() == 2);
+    assert(!restored.departureExists("AR456"));
+    assert(restored.getDeparture("AR123").getDelayInMinutes() == 60);
+    assert(restored.getDeparture("AR123").getTrack() == 2);
+    assert(restored.getDeparture("AR762").getTrack() == -1);
+    assert(restored.getDeparture("AR762").getComment().equals("Æ, ø og å"));
+  }
+
+  @Test
+  public void replayCommentStateTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Bodø",
+        (short) -1, "Signal fault"));
+    tdr.setCommentState(false);
+    journal.close();
+
+    TrainDepartureRegistry restored = new TrainDepartureRegistry();
+    assert(Journal.replay(dir, restored) == 2);
+    assert(restored.getVersion() == tdr.getVersion());
+    assert(restored.getDeparture("AR123").toString()
+        .equals(tdr.getDeparture("AR123").toString()));
+    assert(!restored.getDeparture("AR123").toString().contains("Signal fault"));
+  }
+
+  @Test
+  public void replayBatchTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Bodø"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 45), "B2", "AR456", "Bergen"));
+    tdr.applyUpdates(List.of(
+        DepartureUpdate.delay("AR123", LocalTime.of(0, 30)),
+        DepartureUpdate.track("AR456", (short) 2),
+        DepartureUpdate.track("AR123", (short) 3),
+        DepartureUpdate.comment("AR123", "Signal fault")));
+    journal.close();
+
+    TrainDepartureRegistry restored = new TrainDepartureRegistry();
+    assert(Journal.replay(dir, restored) == 4); // One record for each departure changed.
+    assert(restored.getVersion() == tdr.getVersion());
+    assert(restored.getDeparture("AR123").getDelayInMinutes() == 30);
+    assert(restored.getDeparture("AR123").getTrack() == 3);
+    assert(restored.getDeparture("AR123").getComment().equals("Signal fault"));
+    assert(restored.getDeparture("AR456").getTrack() == 2);
+  }
+
+  @Test
+  public void replayOnTopOfSnapshotTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(7, 0), "L1", "T1", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(7, 30), "L1", "T2", "Oslo"));
+    Path snapshotFile = dir.resolve("registry.snapshot");
+    SnapshotFile.write(tdr.publishSnapshot(), snapshotFile);
+    tdr.setDelay("T1", LocalTime.of(0, 45));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 0), "L1", "T3", "Oslo"));
+    journal.close();
+
+    TrainDepartureRegistry restored = SnapshotFile.read(snapshotFile);
+    assert(Journal.replay(dir, restored) == 2);
+    assert(restored.getVersion() == tdr.getVersion());
+    assert(restored.getNoDepartures() == 3);
+    assert(restored.getDeparture("T1").getDelayInMinutes() == 45);
+  }
+
+  @Test
+  public void damagedEndCutOffTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(7, 0), "L1", "T1", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(7, 30), "L1", "T2", "Oslo"));
+    journal.close();
+    ArrayList<Path> segments = Journal.listSegments(dir);
+    assert(segments.size() == 1);
+    long validSize = Files.size(segments.get(0));
+    // A record cut short by a crash.
+    Files.write(segments.get(0), new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+    TrainDepartureRegistry restored = new TrainDepartureRegistry();
+    assert(Journal.replay(dir, restored) == 2);
+    assert(Files.size(segments.get(0)) == validSize);
+    journal = Journal.open(dir, restored, 5);
+    restored.addDeparture(new TrainDeparture(LocalTime.of(8, 0), "L1", "T3", "Oslo"));
+    journal.close();
+    TrainDepartureRegistry again = new TrainDepartureRegistry();
+    assert(Journal.replay(dir, again) == 3);
+    assert(again.departureExists("T3"));
+  }
+
+  @Test
+  public void replayAddedPastMidnightTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    // I.e. a departure moved over from a registry where it had been delayed.
+    tdr.addDeparture(TrainDeparture.restore(23 * 60 + 50, "N1", "NT1", "Bodø", 40, (short) -1,
+        ""));
+    journal.close();
+
+    TrainDepartureRegistry restored = new TrainDepartureRegistry();
+    assert(Journal.replay(dir, restored) == 1);
+    assert(restored.getDeparture("NT1").getDepartureTimeIncDelay().equals(LocalTime.of(0, 30)));
+  }
+
+  @Test
+  public void mismatchingJournalRejectedTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 5);
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(7, 0), "L1", "T1", "Oslo"));
+    tdr.setTrack("T1", (short) 3);
+    journal.close();
+    Files.delete(Journal.listSegments(dir).get(0));
+    journal = Journal.open(dir, tdr, 5);
+    tdr.setTrack("T1", (short) 4);
+    journal.close();
+    try {
+      Journal.replay(dir, new TrainDepartureRegistry()); // The departure was never added.
+      throw new Error("Test failed. Journal replayed on a registry it doesn't match.");
+    } catch (IOException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  @Test
+  public void groupCommitTest(@TempDir Path dir) throws IOException, InterruptedException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    // Nothing is forced until the commit window ends, however many changes are made.
+    Journal held = Journal.open(dir.resolve("held"), tdr, 60_000);
+    for (int i = 0; i < 1000; i++) {
+      tdr.addDeparture(new TrainDeparture(i % (24 * 60), "L1", "H" + i, "Oslo", 0,
+          (short) -1, ""));
+    }
+    assert(held.getNoForces() == 0);
+    assert(held.getDurableVersion() == 0);
+    held.sync();
+    assert(held.getNoForces() == 1); // One force for all the changes.
+    assert(held.getDurableVersion() == tdr.getVersion());
+    held.close();
+
+    tdr = new TrainDepartureRegistry();
+    Journal journal = Journal.open(dir, tdr, 10);
+    int noChanges = 20_000;
+    for (int i = 0; i < noChanges; i++) {
+      tdr.addDeparture(new TrainDeparture(i % (24 * 60), "L1", "T" + i, "Oslo", 0,
+          (short) -1, ""));
+    }
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (journal.getDurableVersion() < tdr.getVersion()
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assert(journal.getDurableVersion() == tdr.getVersion()); // Without calling sync().
+    assert(journal.getNoForces() < noChanges);
+    journal.close();
+    assert(Journal.replay(dir, new TrainDepartureRegistry()) == noChanges);
+  }
+}
@@ -0,0 +1,147 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for RegistrySnapshot
+ * Tests snapshots published by TrainDepartureRegistry.
+ */
+public class RegistrySnapshotTest {
+  @Test
+  public void publishSnapshotTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo",
+        LocalTime.of(5, 0)));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR456", "Bergen"));
+    assert(tdr.getSnapshot().getNoDepartures() == 0);
+    RegistrySnapshot snapshot = tdr.publishSnapshot();
+    assert(snapshot.getVersion() == tdr.getVersion());
+    assert(snapshot.getNoDepartures() == 3);
+    List<TrainDeparture> byTime = snapshot.getDeparturesByTime();
+    assert(byTime.get(0).getTrainNumber().equals("AR123"));
+    assert(byTime.get(2).getTrainNumber().equals("AR762"));
+    List<TrainDeparture> byTimeIncDelay = snapshot.getDeparturesByTimeIncDelay();
+    assert(byTimeIncDelay.get(0).getTrainNumber().equals("AR456"));
+    assert(byTimeIncDelay.get(2).getTrainNumber().equals("AR123"));
+    assert(tdr.publishSnapshot() == snapshot); // Nothing changed.
+  }
+
+  @Test
+  public void snapshotUnaffectedByChangesTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    RegistrySnapshot first = tdr.publishSnapshot();
+    tdr.setTrack("AR762", (short) 2);
+    tdr.deleteOldDepartures(LocalTime.of(9, 0));
+    assert(first.getDeparture("AR762").getTrack() == -1);
+    assert(first.departureExists("AR123"));
+
+    RegistrySnapshot second = tdr.publishSnapshot();
+    assert(second.getVersion() > first.getVersion());
+    assert(second.getDeparture("AR762").getTrack() == 2);
+    assert(!second.departureExists("AR123"));
+    tdr.setComment("AR762", "Few tickets left");
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR456", "Bergen"));
+    RegistrySnapshot third = tdr.publishSnapshot();
+    assert(third.getDeparture("AR762").getComment().equals("Few tickets left"));
+    assert(second.getDeparture("AR762").getComment().isEmpty());
+  }
+
+  @Test
+  public void unchangedDeparturesSharedTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    RegistrySnapshot first = tdr.publishSnapshot();
+    tdr.setDelay("AR123", LocalTime.of(0, 5));
+    RegistrySnapshot second = tdr.publishSnapshot();
+    assert(second.getDeparture("AR762") == first.getDeparture("AR762"));
+    assert(second.getDeparture("AR123") != first.getDeparture("AR123"));
+  }
+
+  @Test
+  public void getNextDeparturesTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR456", "Bergen"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(11, 20), "C3", "AR789", "Stavanger"));
+    RegistrySnapshot snapshot = tdr.publishSnapshot();
+    List<TrainDeparture> next = snapshot.getNextDepartures(LocalTime.of(9, 0), 2);
+    assert(next.size() == 2);
+    assert(next.get(0).getTrainNumber().equals("AR456"));
+    assert(next.get(1).getTrainNumber().equals("AR789"));
+    assert(snapshot.getNextDepartures(LocalTime.of(12, 0), 10).size() == 1);
+    assert(snapshot.getNextDepartures(LocalTime.of(13, 0), 10).isEmpty());
+  }
+
+  @Test
+  public void writeBoardTest() throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    RegistrySnapshot snapshot = tdr.publishSnapshot();
+    StringWriter out = new StringWriter();
+    snapshot.writeBoard(out);
+    assert(out.toString().equals(snapshot.toString()));
+    assert(out.toString().startsWith("Complete list of departures:\n"));
+
+    StringBuilder page = new StringBuilder();
+    snapshot.writeBoard(page, LocalTime.of(13, 0), 5);
+    assert(page.toString().equals("Departures from 13:00:"));
+  }
+
+  /**
+   * Writes a board, keeping every string appended to it.
+   *
+   * @param snapshot The snapshot to write the board of.
+   * @return The strings appended, in order.
+   */
+  private static List<CharSequence> writeBoardParts(RegistrySnapshot snapshot)
+      throws IOException {
+    ArrayList<CharSequence> parts = new ArrayList<>();
+    snapshot.writeBoard(new Appendable() {
+      @Override
+      public Appendable append(CharSequence csq) {
+        parts.add(csq);
+        return this;
+      }
+
+      @Override
+      public Appendable append(CharSequence csq, int start, int end) {
+        return append(csq.subSequence(start, end));
+      }
+
+      @Override
+      public Appendable append(char c) {
+        return this;
+      }
+    });
+    return parts;
+  }
+
+  @Test
+  public void writeBoardReusesRenderedDeparturesTest() throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    List<CharSequence> first = writeBoardParts(tdr.publishSnapshot());
+    // Nothing changed, so the same snapshot and the strings rendered for the first board.
+    List<CharSequence> second = writeBoardParts(tdr.publishSnapshot());
+    assert(first.size() == 3 && second.size() == 3);
+    for (int i = 0; i < first.size(); i++) {
+      assert(first.get(i) == second.get(i));
+    }
+    tdr.setDelay("AR123", LocalTime.of(0, 5));
+    List<CharSequence> third = writeBoardParts(tdr.publishSnapshot());
+    assert(third.get(1) != first.get(1)); // AR123 is rendered again.
+    assert(third.get(2) == first.get(2)); // AR762 is not.
+  }
+}
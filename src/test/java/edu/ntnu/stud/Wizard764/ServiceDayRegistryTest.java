@@ -0,0 +1,94 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.SortedMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for ServiceDayRegistry
+ * Tests class methods, including negative tests where applicable.
+ */
+public class ServiceDayRegistryTest {
+  private static final LocalDate MONDAY = LocalDate.of(2023, 12, 11);
+  private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+  /**
+   * Makes a registry with a night train on Monday delayed past midnight, and departures on
+   * Tuesday around it.
+   *
+   * @return The registry.
+   */
+  private static ServiceDayRegistry registry() {
+    ServiceDayRegistry sdr = new ServiceDayRegistry();
+    sdr.addDeparture(MONDAY, new TrainDeparture(LocalTime.of(22, 0), "R1", "R100", "Oslo"));
+    sdr.addDeparture(MONDAY, new TrainDeparture(LocalTime.of(23, 50), "N1", "NT1", "Bodø"));
+    sdr.getDay(MONDAY).setDelay("NT1", LocalTime.of(0, 40));
+    sdr.addDeparture(TUESDAY, new TrainDeparture(LocalTime.of(0, 20), "N2", "NT2", "Bergen"));
+    sdr.addDeparture(TUESDAY, new TrainDeparture(LocalTime.of(6, 0), "R1", "R100", "Oslo"));
+    return sdr;
+  }
+
+  @Test
+  public void nextDeparturesAcrossMidnightTest() {
+    ServiceDayRegistry sdr = registry();
+    List<DatedDeparture> next = sdr.getNextDepartures(TUESDAY.atTime(0, 0), 10);
+    assert(next.size() == 3);
+    assert(next.get(0).getDeparture().getTrainNumber().equals("NT2"));
+    assert(next.get(1).getDeparture().getTrainNumber().equals("NT1"));
+    assert(next.get(1).getServiceDay().equals(MONDAY));
+    assert(next.get(1).getDepartureDateTimeIncDelay().equals(LocalDateTime.of(TUESDAY,
+        LocalTime.of(0, 30))));
+    assert(next.get(2).getServiceDay().equals(TUESDAY));
+    List<DatedDeparture> evening = sdr.getNextDepartures(MONDAY.atTime(21, 0), 2);
+    assert(evening.size() == 2);
+    assert(evening.get(0).getDeparture().getTrainNumber().equals("R100"));
+    assert(evening.get(1).getDeparture().getTrainNumber().equals("NT2"));
+    assert(sdr.getNextDepartures(TUESDAY.atTime(6, 1), 5).isEmpty());
+  }
+
+  @Test
+  public void invalidLimitTest() {
+    ServiceDayRegistry sdr = registry();
+    try {
+      sdr.getNextDepartures(LocalDateTime.of(2023, 12, 11, 8, 0), 0);
+      throw new Error("Test failed. Listed departures with a limit of 0.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  @Test
+  public void daysAreSeparateTest() {
+    ServiceDayRegistry sdr = registry();
+    // The same train number runs both days.
+    assert(sdr.getDeparture(MONDAY, "R100").getDepartureTime().equals(LocalTime.of(22, 0)));
+    assert(sdr.getDeparture(TUESDAY, "R100").getDepartureTime().equals(LocalTime.of(6, 0)));
+    assert(sdr.getNoDepartures() == 4);
+    try {
+      sdr.addDeparture(TUESDAY, new TrainDeparture(LocalTime.of(7, 0), "R1", "R100", "Oslo"));
+      throw new Error("Test failed. Same train number added twice on one day.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    try {
+      sdr.getDeparture(TUESDAY.plusDays(1), "R100");
+      throw new Error("Test failed. Departure found on a day without departures.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  @Test
+  public void removeDaysBeforeTest() {
+    ServiceDayRegistry sdr = registry();
+    SortedMap<LocalDate, TrainDepartureRegistry> removed = sdr.removeDaysBefore(TUESDAY);
+    assert(removed.size() == 1 && removed.get(MONDAY).getNoDepartures() == 2);
+    assert(!sdr.hasDay(MONDAY) && sdr.hasDay(TUESDAY));
+    assert(sdr.getDays().size() == 1);
+    assert(sdr.getNoDepartures() == 2);
+    assert(sdr.removeDaysBefore(TUESDAY).isEmpty());
+  }
+}
@@ -0,0 +1,103 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test-class for SnapshotFile
+ * Tests class methods, including negative tests where applicable.
+ */
+public class SnapshotFileTest {
+  @Test
+  public void saveAndRestoreTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim",
+        LocalTime.of(0, 5), (short) 3, "Few tickets left"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Bodø"));
+    tdr.setComment("AR123", "Æ, ø og å");
+    Path file = dir.resolve("registry.snapshot");
+    SnapshotFile.write(tdr.publishSnapshot(), file);
+
+    TrainDepartureRegistry restored = SnapshotFile.read(file);
+    assert(restored.getNoDepartures() == 2);
+    assert(restored.getVersion() == tdr.getVersion());
+    TrainDeparture t = restored.getDeparture("AR762");
+    assert(t.getDepartureTimeInMinutes() == 12 * 60 + 31);
+    assert(t.getDelayInMinutes() == 5);
+    assert(t.getTrack() == 3);
+    assert(t.getComment().equals("Few tickets left"));
+    assert(restored.getDeparture("AR123").getDestination().equals("Bodø"));
+    assert(restored.getDeparture("AR123").getComment().equals("Æ, ø og å"));
+    assert(restored.getDeparture("AR123").getTrack() == -1);
+    restored.sortDeparturesByTime();
+    tdr.sortDeparturesByTime();
+    assert(restored.toString().equals(tdr.toString()));
+  }
+
+  @Test
+  public void commentStateRestoredTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim",
+        LocalTime.of(0, 5), (short) 3, "Few tickets left"));
+    tdr.setCommentState(false);
+    Path file = dir.resolve("registry.snapshot");
+    SnapshotFile.write(tdr.publishSnapshot(), file);
+    TrainDeparture restored = SnapshotFile.read(file).getDeparture("AR762");
+    assert(!restored.getCommentState());
+    assert(!restored.toString().contains("Few tickets left"));
+    tdr.setCommentState(true);
+    SnapshotFile.write(tdr.publishSnapshot(), file);
+    assert(SnapshotFile.read(file).getDeparture("AR762").getCommentState());
+  }
+
+  @Test
+  public void delayedPastMidnightRestoredTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(23, 50), "N1", "NT1", "Bodø"));
+    tdr.setDelay("NT1", LocalTime.of(1, 0));
+    Path file = dir.resolve("registry.snapshot");
+    SnapshotFile.write(tdr.publishSnapshot(), file);
+    TrainDeparture restored = SnapshotFile.read(file).getDeparture("NT1");
+    assert(restored.departsNextDay());
+    assert(restored.getDepartureTimeIncDelay().equals(LocalTime.of(0, 50)));
+  }
+
+  @Test
+  public void saveAndRestoreLargeRegistryTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TimetableGenerator(5).generateRegistry(200_000);
+    Path file = dir.resolve("registry.snapshot");
+    SnapshotFile.write(tdr.publishSnapshot(), file);
+    TrainDepartureRegistry restored = SnapshotFile.read(file);
+    assert(restored.getNoDepartures() == 200_000);
+    assert(restored.getDeparture("T123456").toString()
+        .equals(tdr.getDeparture("T123456").toString()));
+  }
+
+  @Test
+  public void corruptFileRejectedTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    Path file = dir.resolve("registry.snapshot");
+    SnapshotFile.write(tdr.publishSnapshot(), file);
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(file, bytes);
+    try {
+      SnapshotFile.read(file);
+      throw new Error("Test failed. Corrupt file was restored.");
+    } catch (IOException e) {
+      System.out.println(e.getMessage());
+    }
+    Files.writeString(file, "time,line,train number\n");
+    try {
+      SnapshotFile.read(file);
+      throw new Error("Test failed. Text file was restored.");
+    } catch (IOException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test-class for TimetableCsvImporter
+ * Tests class methods, including negative tests where applicable.
+ */
+public class TimetableCsvImporterTest {
+  @Test
+  public void importValidRowsTest() throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    String csv = "time,line,train number,destination,delay,track,comment\n"
+        + "12:31,F4,AR762,Trondheim,00:05,3,\"Few tickets left, buy now\"\n"
+        + "8:15,A1,AR123,Oslo,,,\n"
+        + "\n"
+        + "09:45, B2 ,AR456,\"Bergen \"\"Vest\"\"\",,-1\n";
+    TimetableCsvImporter importer = new TimetableCsvImporter((short) 10, 100);
+    CsvImportReport report = importer.importFrom(tdr, new StringReader(csv));
+    assert(report.getNoRows() == 3);
+    assert(report.getNoImported() == 3);
+    assert(report.getErrors().isEmpty());
+    TrainDeparture t = tdr.getDeparture("AR762");
+    assert(t.getDepartureTimeInMinutes() == 12 * 60 + 31);
+    assert(t.getDelayInMinutes() == 5);
+    assert(t.getTrack() == 3);
+    assert(t.getComment().equals("Few tickets left, buy now"));
+    assert(tdr.getDeparture("AR123").getDepartureTimeInMinutes() == 8 * 60 + 15);
+    assert(tdr.getDeparture("AR123").getTrack() == -1);
+    assert(tdr.getDeparture("AR456").getLine().equals("B2"));
+    assert(tdr.getDeparture("AR456").getDestination().equals("Bergen \"Vest\""));
+  }
+
+  @Test
+  public void invalidRowsReportedTest() throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(9 * 60, "A1", "AR100", "Oslo", 0, (short) -1, ""));
+    String csv = "12:31,F4,AR762,Trondheim,,3,\n"
+        + "25:00,F4,AR1,Trondheim,,3,\n" // Invalid time.
+        + "12:31,F4,AR2,Trondheim,,11,\n" // Track above limit.
+        + "12:31,F4,AR762,Trondheim,,3,\n" // Duplicate in file.
+        + "12:31,F4,AR100,Trondheim,,3,\n" // Duplicate in registry.
+        + "12:31,F4,AR3,,,3,\n" // No destination.
+        + "23:50,F4,AR4,Trondheim,00:15,3,\n" // Delayed past day.
+        + "12:31,F4,AR5\n" // Too few columns.
+        + "12:31,F4,AR6,Trondheim,,3,\"Open quote\n"
+        + "12:35,F4,AR7,Trondheim,,,\n";
+    TimetableCsvImporter importer = new TimetableCsvImporter((short) 10, 100);
+    CsvImportReport report = importer.importFrom(tdr, new StringReader(csv));
+    assert(report.getNoRows() == 10);
+    assert(report.getNoImported() == 2);
+    assert(report.getErrors().size() == 8);
+    assert(report.getErrors().get(0).startsWith("Line 2: "));
+    assert(report.getErrors().get(7).startsWith("Line 9: "));
+    assert(tdr.getNoDepartures() == 3);
+    assert(tdr.departureExists("AR7"));
+    assert(!tdr.departureExists("AR2"));
+  }
+
+  @Test
+  public void maxNoDeparturesTest() throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    String csv = "10:00,L1,T1,Oslo,,,\n10:05,L1,T2,Oslo,,,\n10:10,L1,T3,Oslo,,,\n";
+    CsvImportReport report = new TimetableCsvImporter((short) 10, 2)
+        .importFrom(tdr, new StringReader(csv));
+    assert(report.getNoImported() == 2);
+    assert(report.getErrors().size() == 1);
+    assert(tdr.getNoDepartures() == 2);
+  }
+
+  @Test
+  public void importFileTest(@TempDir Path dir) throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    Path file = dir.resolve("timetable.csv");
+    StringBuilder csv = new StringBuilder("\uFEFFtime,line,train,destination,delay,track\n");
+    for (int i = 0; i < 20_000; i++) {
+      csv.append(String.format("%02d:%02d,R%d,T%d,Bodø,,%d%n", i % 24, i % 60, i % 80, i,
+          i % 20 + 1));
+    }
+    Files.writeString(file, csv, StandardCharsets.UTF_8);
+    CsvImportReport report = new TimetableCsvImporter((short) 20, 100_000).importFile(tdr, file);
+    assert(report.getNoImported() == 20_000);
+    assert(tdr.getDeparture("T19999").getDestination().equals("Bodø"));
+    try {
+      new TimetableCsvImporter((short) 20, 100_000).importFile(tdr, dir.resolve("missing.csv"));
+      throw new Error("Test failed. Missing file was imported.");
+    } catch (IOException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.util.HashMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for TimetableGenerator
+ * Tests class methods, including negative tests where applicable.
+ */
+public class TimetableGeneratorTest {
+  @Test
+  public void sameSeedSameTimetableTest() {
+    TrainDeparture[] first = new TimetableGenerator(42).generate(500);
+    TrainDeparture[] second = new TimetableGenerator(42).generate(500);
+    TrainDeparture[] other = new TimetableGenerator(43).generate(500);
+    boolean differs = false;
+    for (int i = 0; i < first.length; i++) {
+      assert(first[i].toString().equals(second[i].toString()));
+      differs |= !first[i].toString().equals(other[i].toString());
+    }
+    assert(differs);
+  }
+
+  @Test
+  public void settingsRespectedTest() {
+    TimetableGenerator generator = new TimetableGenerator(7);
+    generator.setLines(5, 0);
+    generator.setDestinations(3, 2.0);
+    generator.setTracks((short) 4, 0);
+    generator.setDelays(1, 10);
+    generator.setComments(1, 12);
+    TrainDeparture[] departures = generator.generate(2000);
+    HashMap<String, Integer> perDestination = new HashMap<>();
+    HashMap<String, Integer> perLine = new HashMap<>();
+    for (TrainDeparture t : departures) {
+      assert(t.getTrack() >= 1 && t.getTrack() <= 4);
+      assert(t.getDelayInMinutes() > 0 || t.getDepartureTimeInMinutes() == 24 * 60 - 1);
+      assert(t.getDepartureTimeIncDelayInMinutes() < 24 * 60);
+      assert(!t.getComment().isEmpty() && t.getComment().length() <= 12);
+      perDestination.merge(t.getDestination(), 1, Integer::sum);
+      perLine.merge(t.getLine(), 1, Integer::sum);
+    }
+    assert(perLine.size() == 5);
+    assert(perDestination.size() == 3);
+    // With skew 2 the busiest destination gets four times the departures of the second.
+    assert(perDestination.get("Oslo S") > 3 * perDestination.get("Trondheim S"));
+  }
+
+  @Test
+  public void loadIntoRegistryTest() {
+    TimetableGenerator generator = new TimetableGenerator(1);
+    TrainDepartureRegistry tdr = generator.generateRegistry(1000);
+    generator.loadInto(tdr, 1000); // Train numbers keep counting, so no duplicates.
+    assert(tdr.getNoDepartures() == 2000);
+    assert(tdr.departureExists("T2000"));
+  }
+
+  @Test
+  public void invalidSettingsTest() {
+    TimetableGenerator generator = new TimetableGenerator(1);
+    try {
+      generator.setLines(0, 1);
+      throw new Error("Test failed. Generator accepted zero lines.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    try {
+      generator.setDelays(1.5, 10);
+      throw new Error("Test failed. Generator accepted share above 1.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    try {
+      generator.generate(-1);
+      throw new Error("Test failed. Generator accepted negative count.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
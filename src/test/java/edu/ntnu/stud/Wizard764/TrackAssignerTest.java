@@ -0,0 +1,101 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for TrackAssigner
+ * Tests class methods, including negative tests where applicable.
+ */
+public class TrackAssignerTest {
+  /**
+   * Adds a departure to a registry.
+   *
+   * @param tdr The registry.
+   * @param time Actual departure time.
+   * @param trainNumber The train number.
+   * @param track The track, -1 for none.
+   */
+  private static void add(TrainDepartureRegistry tdr, LocalTime time, String trainNumber,
+                          short track) {
+    tdr.addDeparture(new TrainDeparture(time, "L1", trainNumber, "Oslo", LocalTime.of(0, 0),
+        track, ""));
+  }
+
+  @Test
+  public void assignTracksTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    add(tdr, LocalTime.of(10, 0), "F1", (short) 1);
+    add(tdr, LocalTime.of(10, 15), "F2", (short) 2);
+    add(tdr, LocalTime.of(10, 2), "U1", (short) -1);
+    add(tdr, LocalTime.of(10, 3), "U2", (short) -1);
+    add(tdr, LocalTime.of(10, 8), "U3", (short) -1);
+    add(tdr, LocalTime.of(10, 12), "U4", (short) -1);
+    add(tdr, LocalTime.of(9, 50), "U5", (short) -1);
+    tdr.setDelay("U5", LocalTime.of(0, 14)); // Leaves 10:04.
+    TrackAssigner assigner = new TrackAssigner(tdr, (short) 2, 5);
+    List<TrainDeparture> unplaced = assigner.assignTracks();
+    // Track 1 is busy after 10:00, so 10:02 goes to track 2; 10:03 and 10:04 don't fit.
+    assert(tdr.getDeparture("U1").getTrack() == 2);
+    assert(tdr.getDeparture("U3").getTrack() == 1);
+    // Track 2 is free again at 10:12, but F2 leaves from it at 10:15.
+    assert(unplaced.size() == 3 && unplaced.get(0).getTrainNumber().equals("U2")
+        && unplaced.get(1).getTrainNumber().equals("U5")
+        && unplaced.get(2).getTrainNumber().equals("U4"));
+    assert(assigner.getNoAssigned() == 2);
+    assert(tdr.getDeparture("F1").getTrack() == 1 && tdr.getDeparture("F2").getTrack() == 2);
+    assert(new TrackConflictDetector(tdr, 5).findAllConflicts().isEmpty());
+    // Another track makes room for all but one of the rest.
+    assigner = new TrackAssigner(tdr, (short) 3, 5);
+    unplaced = assigner.assignTracks();
+    assert(unplaced.size() == 1 && unplaced.get(0).getTrainNumber().equals("U5"));
+    assert(assigner.getNoAssigned() == 2);
+    assert(tdr.getDeparture("U2").getTrack() == 3 && tdr.getDeparture("U4").getTrack() == 3);
+  }
+
+  @Test
+  public void blockedTrackUsableAgainTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    add(tdr, LocalTime.of(10, 10), "F1", (short) 1);
+    add(tdr, LocalTime.of(10, 0), "U1", (short) -1);
+    add(tdr, LocalTime.of(10, 7), "U2", (short) -1);
+    add(tdr, LocalTime.of(10, 20), "U3", (short) -1);
+    TrackAssigner assigner = new TrackAssigner(tdr, (short) 2, 5);
+    assert(assigner.assignTracks().isEmpty());
+    // Track 1 is blocked from 10:06 by F1, and usable again once F1 has left.
+    assert(tdr.getDeparture("U1").getTrack() == 1);
+    assert(tdr.getDeparture("U2").getTrack() == 2);
+    assert(tdr.getDeparture("U3").getTrack() == 1);
+  }
+
+  @Test
+  public void fullDayTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    for (int i = 0; i < 20000; i++) {
+      add(tdr, LocalTime.of(0, 0).plusMinutes(i % (24 * 60)), "T" + i, (short) -1);
+    }
+    TrackAssigner assigner = new TrackAssigner(tdr, (short) 100, 5);
+    List<TrainDeparture> unplaced = assigner.assignTracks();
+    // 13 or 14 departures leave each minute, 5 minutes apart on a track: at most 20 per minute.
+    assert(unplaced.isEmpty() && assigner.getNoAssigned() == 20000);
+    assert(tdr.getHighestTrackNo() == 70);
+    assert(new TrackConflictDetector(tdr, 5).findAllConflicts().isEmpty());
+  }
+
+  @Test
+  public void invalidArgumentsTest() {
+    try {
+      new TrackAssigner(new TrainDepartureRegistry(), (short) 0, 5);
+      throw new Error("Test failed. Assigner accepted 0 tracks.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    try {
+      new TrackAssigner(new TrainDepartureRegistry(), (short) 1, 0);
+      throw new Error("Test failed. Assigner accepted a dwell time of 0.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package edu.ntnu.stud.Wizard764;
+
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test-class for TrackConflictDetector
+ * Tests class methods, including negative tests where applicable.
+ */
+public class TrackConflictDetectorTest {
+  /**
+   * Makes a registry with departures on track 1 at 10:00, 10:04 (delayed from 9:50) and 10:10,
+   * one on track 2 at 10:02 and one without a track at 10:01.
+   *
+   * @return The registry.
+   */
+  private static TrainDepartureRegistry registry() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 0), "A1", "AR1", "Oslo",
+        LocalTime.of(0, 0), (short) 1, ""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 50), "A1", "AR2", "Oslo",
+        LocalTime.of(0, 14), (short) 1, ""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 10), "A1", "AR3", "Oslo",
+        LocalTime.of(0, 0), (short) 1, ""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 2), "B2", "BR1", "Bergen",
+        LocalTime.of(0, 0), (short) 2, ""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 1), "C3", "CR1", "Bodø"));
+    return tdr;
+  }
+
+  @Test
+  public void checkTest() {
+    TrainDepartureRegistry tdr = registry();
+    TrackConflictDetector detector = new TrackConflictDetector(tdr, 5);
+    // 10:04 is within 5 minutes of 10:00, but 10:10 is not within 5 minutes of 10:04.
+    TrainDeparture[] conflicts = detector.checkTrack("AR2", (short) 1);
+    assert(conflicts.length == 1 && conflicts[0].getTrainNumber().equals("AR1"));
+    assert(detector.checkTrack("CR1", (short) 1).length == 2);
+    assert(detector.checkTrack("CR1", (short) 2).length == 1);
+    assert(detector.checkTrack("CR1", (short) 3).length == 0);
+    assert(detector.checkTrack("AR1", (short) -1).length == 0);
+    assert(detector.checkDelay("AR3", LocalTime.of(0, 0)).length == 0);
+    // Delayed to 10:06, overlapping the departure at 10:10 but no longer the one at 10:00.
+    conflicts = detector.checkDelay("AR2", LocalTime.of(0, 16));
+    assert(conflicts.length == 1 && conflicts[0].getTrainNumber().equals("AR3"));
+    conflicts = detector.checkDelay("AR1", LocalTime.of(0, 6));
+    assert(conflicts.length == 2 && conflicts[0].getTrainNumber().equals("AR2")
+        && conflicts[1].getTrainNumber().equals("AR3"));
+    TrainDeparture added = new TrainDeparture(LocalTime.of(10, 15), "D4", "DR1", "Oslo",
+        LocalTime.of(0, 0), (short) 1, "");
+    assert(detector.checkDeparture(added).length == 0);
+    detector.setDwellMins(6);
+    assert(detector.checkDeparture(added).length == 1);
+    try {
+      detector.checkTrack("XX999", (short) 1);
+      throw new Error("Test failed. Checked a departure that doesn't exist.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  @Test
+  public void findAllConflictsTest() {
+    TrainDepartureRegistry tdr = registry();
+    TrackConflictDetector detector = new TrackConflictDetector(tdr, 5);
+    List<TrainDeparture[]> conflicts = detector.findAllConflicts();
+    assert(conflicts.size() == 1);
+    assert(conflicts.get(0)[0].getTrainNumber().equals("AR1")
+        && conflicts.get(0)[1].getTrainNumber().equals("AR2"));
+    detector.setDwellMins(11);
+    assert(detector.findAllConflicts().size() == 3);
+    // Changes are seen by the detector as they are made.
+    tdr.setTrack("BR1", (short) 1);
+    assert(detector.findAllConflicts().size() == 6);
+    tdr.setDelay("AR1", LocalTime.of(2, 0));
+    assert(detector.findAllConflicts().size() == 3);
+    detector.setDwellMins(1);
+    assert(detector.findAllConflicts().isEmpty());
+  }
+
+  @Test
+  public void invalidDwellTest() {
+    try {
+      new TrackConflictDetector(new TrainDepartureRegistry(), 0);
+      throw new Error("Test failed. Detector accepted a dwell time of 0.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package edu.ntnu.stud.Wizard764;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.time.LocalTime;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -29,6 +32,29 @@ public class TrainDepartureRegistryTest {
     TrainDepartureRegistry tdr1 = new TrainDepartureRegistry(departures);
   }
 
+  @Test
+  public void deleteOldDeparturesSmallAndLargePrefixTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    for (int hour = 0; hour < 24; hour++) {
+      tdr.addDeparture(new TrainDeparture(LocalTime.of(hour, 0), "L1", "T" + hour, "Oslo"));
+    }
+    // Fewer minutes expire than remain, so the expired entries are removed from the tree.
+    TrainDeparture[] expired = tdr.deleteOldDepartures(LocalTime.of(2, 0));
+    assert(expired.length == 2);
+    assert(expired[0].getTrainNumber().equals("T0"));
+    // Most of the day expires, so the remaining entries are moved to a new tree.
+    expired = tdr.deleteOldDepartures(LocalTime.of(20, 0));
+    assert(expired.length == 18);
+    assert(expired[17].getTrainNumber().equals("T19"));
+    assert(tdr.getNoDepartures() == 4);
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(22, 30), "L1", "T22b", "Oslo"));
+    expired = tdr.deleteOldDepartures(LocalTime.of(23, 0));
+    assert(expired.length == 4);
+    assert(expired[3].getTrainNumber().equals("T22b"));
+    assert(tdr.getNoDepartures() == 1);
+    assert(tdr.getDeparture("T23") != null);
+  }
+
   @Test
   public void addDuplicateDepartureTest() {
     try {
@@ -157,9 +183,14 @@ public class TrainDepartureRegistryTest {
     tdr.addDeparture(new TrainDeparture(LocalTime.of(17, 40), "G7", "AR890", "Alesund"));
     tdr.addDeparture(new TrainDeparture(LocalTime.of(22, 25), "J10", "AR333", "Bodø"));
 
-    tdr.deleteOldDepartures(LocalTime.of(15, 0));
+    TrainDeparture[] deleted = tdr.deleteOldDepartures(LocalTime.of(15, 0));
     System.out.println(tdr);
     assert(tdr.getNoDepartures() == 6);
+    assert(deleted.length == 5);
+    assert(deleted[0].getTrainNumber().equals("AR123"));
+    assert(deleted[4].getTrainNumber().equals("AR101"));
+    assert(!tdr.departureExists("AR101"));
+    assert(tdr.departureExists("AR234")); // Delayed past current time.
   }
 
   @Test
@@ -179,4 +210,192 @@ public class TrainDepartureRegistryTest {
 
     assert(tdr.getHighestTrackNo() == 5);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void modifyDepartureByTrainNumberTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.setDelay("AR123", LocalTime.of(0, 10));
+    tdr.setTrack("AR123", (short) 3);
+    tdr.setComment("AR123", "Few tickets left");
+    TrainDeparture t = tdr.getDeparture("AR123");
+    assert(t.getDelayInMinutes() == 10);
+    assert(t.getTrack() == 3);
+    assert(t.getComment().equals("Few tickets left"));
+    try {
+      tdr.setDelay("Nonexistent ID", LocalTime.of(0, 10));
+      throw new Error("Test failed. Nonexistent departure was modified.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  @Test
+  public void deletedDepartureNoLongerExistsTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.deleteOldDepartures(LocalTime.of(10, 0));
+    assert(!tdr.departureExists("AR123"));
+    assert(tdr.departureExists("AR762"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(18, 15), "A1", "AR123", "Oslo"));
+    assert(tdr.getNoDepartures() == 2);
+  }
+
+  @Test
+  public void getNextDeparturesTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR456", "Bergen"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(11, 20), "C3", "AR789", "Stavanger"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(13, 0), "D4", "AR101", "Kristiansand"));
+    TrainDeparture[] deps = tdr.getNextDepartures(LocalTime.of(9, 45), 3);
+    assert(deps.length == 3);
+    assert(deps[0].getTrainNumber().equals("AR456"));
+    assert(deps[1].getTrainNumber().equals("AR789"));
+    assert(deps[2].getTrainNumber().equals("AR762"));
+    assert(tdr.getNextDepartures(LocalTime.of(13, 1), 3).length == 0);
+  }
+
+  @Test
+  public void setDelayRepositionsDepartureTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR456", "Bergen"));
+    tdr.setDelay("AR123", LocalTime.of(2, 0));
+    TrainDeparture[] deps = tdr.getNextDepartures(LocalTime.of(0, 0), 10);
+    assert(deps[0].getTrainNumber().equals("AR456"));
+    assert(deps[1].getTrainNumber().equals("AR123"));
+    tdr.deleteOldDepartures(LocalTime.of(10, 0));
+    assert(tdr.getNoDepartures() == 1);
+    assert(tdr.departureExists("AR123"));
+  }
+
+  @Test
+  public void getDeparturesByDestinationIgnoreCaseAndPrefixTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR456", "trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(11, 20), "C3", "AR789", "Trondheim S"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(13, 0), "D4", "AR101", "Tromsø"));
+
+    assert(tdr.getDeparturesByDestination("Trondheim").length == 1);
+    TrainDeparture[] deps = tdr.getDeparturesByDestinationIgnoreCase("TRONDHEIM");
+    assert(deps.length == 2);
+    assert(deps[0].getTrainNumber().equals("AR456"));
+    deps = tdr.getDeparturesByDestinationPrefix("tron");
+    assert(deps.length == 3);
+    assert(deps[0].getTrainNumber().equals("AR456"));
+    assert(deps[1].getTrainNumber().equals("AR789"));
+    assert(deps[2].getTrainNumber().equals("AR762"));
+    assert(tdr.getDeparturesByDestinationPrefix("Trom").length == 1);
+    assert(tdr.getDeparturesByDestinationPrefix("Bergen").length == 0);
+
+    tdr.setDelay("AR762", LocalTime.of(0, 0));
+    tdr.setDelay("AR456", LocalTime.of(3, 0));
+    deps = tdr.getDeparturesByDestinationPrefix("tron");
+    assert(deps[2].getTrainNumber().equals("AR456"));
+    tdr.deleteOldDepartures(LocalTime.of(12, 0));
+    assert(tdr.getDeparturesByDestinationPrefix("tron").length == 2);
+  }
+
+  @Test
+  public void writeBoardTest() throws IOException {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(12, 31), "F4", "AR762", "Trondheim"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 45), "B2", "AR456", "Bergen"));
+
+    StringWriter out = new StringWriter();
+    tdr.writeBoard(out);
+    assert(out.toString().equals(tdr.toString()));
+
+    StringBuilder page = new StringBuilder();
+    tdr.writeBoard(page, LocalTime.of(9, 0), 1);
+    assert(page.toString().equals("Departures from 09:00:\n"
+        + tdr.getDeparture("AR456").toString()));
+  }
+
+  @Test
+  public void trackIndexTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo",
+        (short) 4, ""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 45), "B2", "AR456", "Bergen",
+        (short) 4, ""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 30), "C3", "AR789", "Tromsø",
+        (short) 7, ""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(10, 0), "D4", "AR012", "Bodø"));
+    assert(tdr.getHighestTrackNo() == 7);
+    TrainDeparture[] deps = tdr.getDeparturesByTrack((short) 4, LocalTime.of(8, 0), 60);
+    assert(deps.length == 2 && deps[0].getTrainNumber().equals("AR123"));
+    tdr.setDelay("AR123", LocalTime.of(1, 0));
+    deps = tdr.getDeparturesByTrack((short) 4, LocalTime.of(8, 0), 60);
+    assert(deps.length == 1 && deps[0].getTrainNumber().equals("AR456"));
+    tdr.setTrack("AR012", (short) 9);
+    assert(tdr.getHighestTrackNo() == 9);
+    try {
+      tdr.setTrack("AR012", (short) 0);
+      throw new Error("Test failed. Track 0 accepted.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    assert(tdr.getDeparturesByTrack((short) 9, LocalTime.of(10, 0), 1).length == 1);
+
+    assert(tdr.unsetTrackBelowLimit((short) 5) == 2);
+    assert(tdr.getHighestTrackNo() == 4);
+    assert(tdr.getDeparture("AR789").getTrack() == -1);
+    assert(tdr.getDeparturesByTrack((short) 7, LocalTime.of(0, 0), 24 * 60).length == 0);
+    tdr.deleteOldDepartures(LocalTime.of(9, 30)); // Both departures on track 4 have left.
+    assert(tdr.getHighestTrackNo() == 0);
+  }
+
+  @Test
+  public void applyUpdatesTest() {
+    TrainDepartureRegistry tdr = new TrainDepartureRegistry();
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo",
+        (short) 4, ""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(8, 45), "B2", "AR456", "Bergen",
+        (short) 4, ""));
+    tdr.addDeparture(new TrainDeparture(LocalTime.of(9, 30), "C3", "AR789", "Oslo"));
+    DepartureSubscription events = tdr.subscribe(16, DepartureSubscription.OverflowPolicy.CLOSE);
+    long version = tdr.getVersion();
+    BatchUpdateReport report = tdr.applyUpdates(List.of(
+        DepartureUpdate.delay("AR123", LocalTime.of(0, 20)),
+        DepartureUpdate.delay("XX999", LocalTime.of(0, 5)),
+        DepartureUpdate.delay("AR123", LocalTime.of(1, 0)),
+        DepartureUpdate.track("AR789", (short) 4),
+        DepartureUpdate.comment("AR456", "Signal fault"),
+        DepartureUpdate.comment("AR123", "Signal fault")));
+    assert(report.getNoUpdates() == 6 && report.getNoApplied() == 5);
+    assert(report.isApplied(0) && !report.isApplied(1) && report.getError(1).contains("XX999"));
+    assert(report.getErrors().equals(List.of("Update 2: " + report.getError(1))));
+    // Every change to AR123 is one event with its state after the batch.
+    assert(tdr.getVersion() == version + 3);
+    DepartureEvent event = events.poll();
+    assert(event.getType() == DepartureEvent.Type.UPDATED && event.getVersion() == version + 1
+        && event.getDeparture().getDelay().equals(LocalTime.of(1, 0))
+        && event.getDeparture().getComment().equals("Signal fault"));
+    assert(events.poll().getType() == DepartureEvent.Type.TRACK_CHANGED);
+    assert(events.poll().getType() == DepartureEvent.Type.COMMENT_CHANGED);
+    assert(events.poll() == null);
+    // Indexes follow the new times and tracks.
+    TrainDeparture[] next = tdr.getNextDepartures(LocalTime.of(8, 0), 3);
+    assert(next[0].getTrainNumber().equals("AR456") && next[1].getTrainNumber().equals("AR123")
+        && next[2].getTrainNumber().equals("AR789"));
+    TrainDeparture[] onTrack = tdr.getDeparturesByTrack((short) 4, LocalTime.of(9, 0), 60);
+    assert(onTrack.length == 2 && onTrack[0].getTrainNumber().equals("AR123"));
+    TrainDeparture[] oslo = tdr.getDeparturesByDestination("Oslo");
+    assert(oslo[0].getTrainNumber().equals("AR123"));
+    assert(tdr.getDeparture("AR456").getComment().equals("Signal fault"));
+    try {
+      DepartureUpdate.track("AR123", (short) 0);
+      throw new Error("Test failed. Update to track 0 made.");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
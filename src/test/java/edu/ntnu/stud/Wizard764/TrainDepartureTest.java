@@ -1,6 +1,9 @@
 package edu.ntnu.stud.Wizard764;
 
 import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 public class TrainDepartureTest {
@@ -207,4 +210,103 @@ public class TrainDepartureTest {
         System.out.println(a);
         System.out.println(LocalTime.of(0, 0).toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTimesInMinutes() {
+        TrainDeparture a = new TrainDeparture(724, "TestLine", "1771", "TestDestination",
+                68, (short) 4, "");
+        assert(a.getDepartureTime().equals(LocalTime.of(12, 4)));
+        assert(a.getDelay().equals(LocalTime.of(1, 8)));
+        assert(a.getDepartureTimeIncDelay().equals(LocalTime.of(13, 12)));
+        assert(a.getDepartureTimeIncDelayInMinutes() == 792);
+
+        TrainDeparture b = new TrainDeparture(LocalTime.of(12, 4, 30), "TestLine", "1772",
+                "TestDestination", LocalTime.of(1, 8));
+        assert(b.getDepartureTimeInMinutes() == 724);
+        assert(b.getDepartureTime().equals(LocalTime.of(12, 4)));
+        b.setDelay(LocalTime.of(0, 5));
+        assert(b.getDelayInMinutes() == 5);
+        try {
+            new TrainDeparture(24 * 60, "TestLine", "1773", "TestDestination", 0, (short) 4, "");
+            throw new Error("Test failed. Departure constructed outside of the day.");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception Message: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testToStringCachedUntilChanged() {
+        TrainDeparture a = new TrainDeparture(LocalTime.of(19, 0), "TestLine", "1771",
+                "TestDestination", LocalTime.of(0, 10), (short) 4, "Few tickets left");
+        String first = a.toString();
+        assert(a.toString() == first);
+        a.setTrack((short) 4); // Same value, nothing changes.
+        a.setComment("Few tickets left");
+        assert(a.toString() == first);
+        a.setTrack((short) 8);
+        String second = a.toString();
+        assert(second != first);
+        assert(second.contains("Track: 8"));
+        a.setCommentState(false);
+        assert(!a.toString().contains("Few tickets left"));
+        a.setCommentState(true);
+        a.setDelay(LocalTime.of(0, 0));
+        assert(!a.toString().contains("Delay"));
+        a.unsetTrack();
+        assert(!a.toString().contains("Track"));
+    }
+
+    @Test
+    public void testAppendToMatchesToString() throws IOException {
+        TrainDeparture[][] pairs = {
+            {new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo"),
+                new TrainDeparture(LocalTime.of(8, 15), "A1", "AR123", "Oslo")},
+            {new TrainDeparture(LocalTime.of(23, 50), "N1", "NT1", "Bodø", (short) 12,
+                "Replacement bus from Trondheim, see the notice on the platform"),
+                new TrainDeparture(LocalTime.of(23, 50), "N1", "NT1", "Bodø", (short) 12,
+                "Replacement bus from Trondheim, see the notice on the platform")}};
+        for (TrainDeparture[] pair : pairs) {
+            pair[0].setDelay(LocalTime.of(0, 20)); // Past midnight for the second pair.
+            pair[1].setDelay(LocalTime.of(0, 20));
+            StringBuilder out = new StringBuilder(">");
+            pair[0].appendTo(out); // Not rendered before, so rendered and kept now.
+            assert(out.toString().equals(">" + pair[1].toString()));
+            out.setLength(1);
+            pair[1].appendTo(out); // Kept by toString() above.
+            assert(out.toString().equals(">" + pair[1].toString()));
+        }
+    }
+
+    @Test
+    public void testDelayedPastMidnight() {
+        TrainDeparture a = new TrainDeparture(LocalTime.of(23, 50), "N1", "NT1", "Bodø");
+        a.setDelay(LocalTime.of(0, 40));
+        assert(a.departsNextDay());
+        assert(a.getDepartureTimeIncDelayInMinutes() == 24 * 60 + 30);
+        assert(a.getDepartureTimeIncDelay().equals(LocalTime.of(0, 30)));
+        assert(a.getDepartureDateTimeIncDelay(LocalDate.of(2023, 12, 31))
+                .equals(LocalDateTime.of(2024, 1, 1, 0, 30)));
+        assert(a.toString().contains("00:30 (next day)"));
+    }
+
+    @Test
+    public void testRestoreDelayedPastMidnight() {
+        TrainDeparture a = TrainDeparture.restore(23 * 60 + 50, "N1", "NT1", "Bodø", 40,
+                (short) 3, "Night train");
+        assert(a.departsNextDay());
+        assert(a.getDepartureTimeIncDelay().equals(LocalTime.of(0, 30)));
+        assert(a.getTrack() == 3 && a.getComment().equals("Night train"));
+        try {
+            TrainDeparture.restore(23 * 60 + 50, "N1", "NT2", "Bodø", 24 * 60, (short) -1, "");
+            throw new Error("Test failed. Departure restored with a delay of a whole day.");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception Message: " + e.getMessage());
+        }
+        try {
+            TrainDeparture.restore(23 * 60 + 50, "N1", "NT3", "Bodø", 0, (short) 0, "");
+            throw new Error("Test failed. Departure restored on track 0.");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception Message: " + e.getMessage());
+        }
+    }
+}